@@ -38,6 +38,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -54,6 +55,13 @@ import java.util.concurrent.atomic.AtomicLong;
  * via the parameter {@code refreshOnly}. Requests that are not refresh ahead are
  * client issued and executed immediately, together with any pending refresh ahead requests.
  *
+ * <p>Adaptive mode: Batch size and delay are tuned from the observed arrival rate of
+ * requests and the latency of the bulk loads, see
+ * {@link CoalescingBulkLoaderConfig.Builder#adaptive(boolean)}. The batch size is the number
+ * of requests arriving within one bulk load latency, the delay is the time to fill the batch.
+ * Both stay within the configured minimum and maximum. Under low load the batch size goes down
+ * to the minimum, so requests are not delayed without benefit.
+ *
  * <p>Usage: Either use the constructor
  * {@link CoalescingBulkLoader#CoalescingBulkLoader(AsyncBulkCacheLoader, long, int, boolean)}
  * and wrap a loader explicitly, or use the declarative configuration with
@@ -63,14 +71,34 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, AutoCloseable {
 
+  /**
+   * Weight of a new sample for the moving averages of arrival rate and latency.
+   */
+  private static final double SAMPLE_WEIGHT = 0.25;
+
   private final long maxDelayMillis;
   private final int maxBatchSize;
+  private final long minDelayMillis;
+  private final int minBatchSize;
+  private final boolean adaptive;
   private final boolean refreshOnly;
   private final AsyncBulkCacheLoader<K, V> forwardingLoader;
   private final TimeReference timeReference;
   private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
   private final AtomicLong queueSize = new AtomicLong();
   private final Queue<Request<K, V>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicLong arrivalCount = new AtomicLong();
+  private final AtomicLong[] flushCounts = new AtomicLong[FlushReason.values().length];
+  /** Effective batch size, equal to the maximum if not adaptive */
+  private volatile int batchSize;
+  /** Effective delay, equal to the maximum if not adaptive */
+  private volatile long delayMillis;
+  /** Moving average of requests per millisecond. Guarded by pending */
+  private double arrivalRate;
+  private long lastSampleTime = -1;
+  private long lastArrivalCount;
+  /** Moving average of the bulk load latency in milliseconds. Guarded by this */
+  private double batchLatency = -1;
 
   /**
    * Constructor using the default time reference {@link TimeReference#DEFAULT}
@@ -92,12 +120,45 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
   public CoalescingBulkLoader(AsyncBulkCacheLoader<K, V> forwardingLoader,
                               TimeReference timeReference, long maxDelayMillis, int maxBatchSize,
                               boolean refreshOnly) {
+    this(forwardingLoader, timeReference, maxDelayMillis, maxBatchSize, refreshOnly,
+      false, maxDelayMillis, maxBatchSize);
+  }
+
+  /**
+   * Constructor using the parameters of the configuration section.
+   *
+   * @param timeReference if the cache is using a different time reference, the instance is
+   *                      used to translate to milli seconds via {@link TimeReference#toMillis(long)}
+   */
+  public CoalescingBulkLoader(AsyncBulkCacheLoader<K, V> forwardingLoader,
+                              TimeReference timeReference, CoalescingBulkLoaderConfig config) {
+    this(forwardingLoader, timeReference, config.getMaxDelay(), config.getMaxBatchSize(),
+      config.isRefreshOnly(), config.isAdaptive(), config.getMinDelay(), config.getMinBatchSize());
+  }
+
+  private CoalescingBulkLoader(AsyncBulkCacheLoader<K, V> forwardingLoader,
+                               TimeReference timeReference, long maxDelayMillis,
+                               int maxBatchSize, boolean refreshOnly, boolean adaptive,
+                               long minDelayMillis, int minBatchSize) {
     Objects.requireNonNull(forwardingLoader, "forwardingLoader");
     this.maxDelayMillis = maxDelayMillis;
     this.maxBatchSize = maxBatchSize;
     this.forwardingLoader = forwardingLoader;
     this.timeReference = timeReference;
     this.refreshOnly = refreshOnly;
+    this.adaptive = adaptive;
+    this.minDelayMillis = Math.min(minDelayMillis, maxDelayMillis);
+    this.minBatchSize = Math.max(1, Math.min(minBatchSize, maxBatchSize));
+    for (int i = 0; i < flushCounts.length; i++) {
+      flushCounts[i] = new AtomicLong();
+    }
+    if (adaptive) {
+      batchSize = this.minBatchSize;
+      delayMillis = this.minDelayMillis;
+    } else {
+      batchSize = maxBatchSize;
+      delayMillis = maxDelayMillis;
+    }
   }
 
   @Override
@@ -111,16 +172,31 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
       flush |= !context.isRefreshAhead();
     }
     int sizeToAdd = keys.size();
+    arrivalCount.addAndGet(sizeToAdd);
     long totalSize = queueSize.addAndGet(sizeToAdd);
     if (refreshOnly && flush) {
-      flush();
-    } else if (totalSize >= maxBatchSize) {
+      flush(FlushReason.CLIENT_REQUEST);
+    } else if (totalSize >= batchSize) {
       instantLoadAndScheduleTimer();
     } else if (totalSize == sizeToAdd) {
       startDelay();
     }
   }
 
+  /**
+   * Reason requests were forwarded to the loader.
+   */
+  public enum FlushReason {
+    /** The batch size was reached */
+    BATCH_FULL,
+    /** The oldest request was delayed for the maximum time */
+    DELAY,
+    /** A request that is not a refresh ahead, with {@code refreshOnly} enabled */
+    CLIENT_REQUEST,
+    /** Call of {@link #flush()} or {@link #forwardRequests(boolean, boolean)} */
+    EXPLICIT
+  }
+
   private static class Request<K, V> implements DataAware<K, V> {
     K key;
     BulkLoadContext<K, V> context;
@@ -132,7 +208,7 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
    * @param requestMap concurrent map used to keep track during callbacks
    */
   private void startLoad(ConcurrentMap<K, BulkLoadContext<K, V>> requestMap) {
-    BulkLoadContext<K, V> context = createMergedContext(requestMap);
+    BulkLoadContext<K, V> context = createMergedContext(requestMap, currentMillis());
     try {
       forwardingLoader.loadAll(context.getKeys(), context, context.getCallback());
     } catch (Throwable e) {
@@ -140,7 +216,8 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
     }
   }
 
-  private BulkLoadContext<K, V> createMergedContext(ConcurrentMap<K, BulkLoadContext<K, V>> requestMap) {
+  private BulkLoadContext<K, V> createMergedContext(ConcurrentMap<K, BulkLoadContext<K, V>> requestMap,
+                                                    long loadStartMillis) {
     long startTime = Long.MAX_VALUE;
     Set<K> keys = new HashSet<>();
     Map<K, Context<K, V>> contextMap = new HashMap<>();
@@ -155,6 +232,12 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
     }
     long finalStartTime = startTime;
     BulkLoadContext<K, V> finalFirstContext = firstContext;
+    AtomicBoolean latencyRecorded = new AtomicBoolean();
+    Runnable checkCompleted = () -> {
+      if (requestMap.isEmpty() && latencyRecorded.compareAndSet(false, true)) {
+        recordLatency(currentMillis() - loadStartMillis);
+      }
+    };
     BulkCallback<K, V> callback = new BulkCallback<K, V>() {
       @Override
       public void onLoadSuccess(Map<? extends K, ? extends V> data) {
@@ -169,6 +252,7 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
           throw new IllegalStateException("unexpected callback for this key");
         }
         ctx.getCallback().onLoadSuccess(key, value);
+        checkCompleted.run();
       }
       @Override
       public void onLoadFailure(Throwable exception) {
@@ -176,12 +260,14 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
           entry.getValue().getCallback().onLoadFailure(entry.getKey(), exception);
         }
         requestMap.clear();
+        checkCompleted.run();
       }
       @Override
       public void onLoadFailure(K key, Throwable exception) {
         BulkLoadContext<K, V> ctx = requestMap.remove(key);
         if (ctx != null) {
           ctx.getCallback().onLoadFailure(key, exception);
+          checkCompleted.run();
         }
       }
     };
@@ -202,7 +288,7 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
   }
 
   private void startDelay() {
-    scheduleTimer(maxDelayMillis);
+    scheduleTimer(delayMillis);
   }
 
   private void scheduleTimer(long millis) {
@@ -231,23 +317,26 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
    */
   private void instantLoadAndScheduleTimer() {
     do {
-      forwardRequests(false, true);
-    } while (queueSize.get() >= maxBatchSize);
+      forwardRequests(false, true, FlushReason.BATCH_FULL);
+    } while (queueSize.get() >= batchSize);
     Request<K, V> next = pending.peek();
     if (next == null) {
       return;
     }
     long startTime = timeReference.toMillis(next.context.getStartTime());
-    long now = timeReference.toMillis(timeReference.millis());
-    scheduleTimer(startTime + maxDelayMillis - now);
+    scheduleTimer(startTime + delayMillis - currentMillis());
   }
 
   /**
    * Send all pending requests to the loader. This is used for testing.
    */
   public void flush() {
+    flush(FlushReason.EXPLICIT);
+  }
+
+  private void flush(FlushReason reason) {
     do {
-      forwardRequests(false, false);
+      forwardRequests(false, false, reason);
     } while (queueSize.get() > 0);
   }
 
@@ -259,11 +348,18 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
    * @return true if there might be more to process
    */
   public boolean forwardRequests(boolean timerEvent, boolean onlyWhenFull) {
+    return forwardRequests(timerEvent, onlyWhenFull,
+      timerEvent ? FlushReason.DELAY : FlushReason.EXPLICIT);
+  }
+
+  private boolean forwardRequests(boolean timerEvent, boolean onlyWhenFull, FlushReason reason) {
     long sizeRemaining;
     do {
       ConcurrentMap<K, BulkLoadContext<K, V>> requestMap;
+      FlushReason effectiveReason = reason;
       synchronized (pending) {
-        if (onlyWhenFull && queueSize.get() < maxBatchSize) {
+        int size = batchSize;
+        if (onlyWhenFull && queueSize.get() < size) {
           return false;
         }
         if (timerEvent) {
@@ -271,17 +367,20 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
           if (next == null) {
             return false;
           }
-          if (queueSize.get() < maxBatchSize) {
+          if (queueSize.get() < size) {
             long startTime = timeReference.toMillis(next.context.getStartTime());
-            long now = timeReference.toMillis(timeReference.millis());
-            if (now - startTime < maxDelayMillis) {
-              scheduleTimer(startTime + maxDelayMillis - now);
+            long now = currentMillis();
+            if (now - startTime < delayMillis) {
+              scheduleTimer(startTime + delayMillis - now);
               return false;
             }
           }
         }
+        if (timerEvent && queueSize.get() >= size) {
+          effectiveReason = FlushReason.BATCH_FULL;
+        }
         requestMap = new ConcurrentHashMap<>();
-        for (int i = 0; i < maxBatchSize; i++) {
+        for (int i = 0; i < size; i++) {
           Request<K, V> rq = pending.poll();
           if (rq == null) {
             break;
@@ -289,14 +388,55 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
           requestMap.put(rq.key, rq.context);
         }
         sizeRemaining = queueSize.addAndGet(-requestMap.size());
+        if (adaptive) {
+          adapt();
+        }
       }
       if (!requestMap.isEmpty()) {
+        flushCounts[effectiveReason.ordinal()].incrementAndGet();
         startLoad(requestMap);
       }
-    } while (sizeRemaining >= maxBatchSize);
+    } while (sizeRemaining >= batchSize);
     return true;
   }
 
+  /**
+   * Update the arrival rate and derive batch size and delay. The batch size is the number
+   * of requests arriving during one bulk load, the delay is the time to fill the batch.
+   * Called when requests are forwarded, while holding the lock on pending.
+   */
+  private void adapt() {
+    long now = currentMillis();
+    long arrived = arrivalCount.get();
+    if (lastSampleTime < 0) {
+      lastSampleTime = now;
+      lastArrivalCount = arrived;
+      return;
+    }
+    long elapsed = now - lastSampleTime;
+    if (elapsed <= 0) {
+      return;
+    }
+    double rate = (arrived - lastArrivalCount) / (double) elapsed;
+    arrivalRate = arrivalRate == 0 ? rate : arrivalRate + SAMPLE_WEIGHT * (rate - arrivalRate);
+    lastSampleTime = now;
+    lastArrivalCount = arrived;
+    double latency = Math.max(0, getBatchLatencyMillis());
+    int size = (int) Math.ceil(arrivalRate * latency);
+    size = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    long delay = arrivalRate > 0 ? (long) Math.ceil(size / arrivalRate) : maxDelayMillis;
+    delayMillis = Math.max(minDelayMillis, Math.min(maxDelayMillis, delay));
+    batchSize = size;
+  }
+
+  private synchronized void recordLatency(long millis) {
+    batchLatency = batchLatency < 0 ? millis : batchLatency + SAMPLE_WEIGHT * (millis - batchLatency);
+  }
+
+  private long currentMillis() {
+    return timeReference.toMillis(timeReference.millis());
+  }
+
   /**
    * Checks whether pending requests are due to send, then sends as many requests
    * as possible until maxBatchSize is reached
@@ -309,6 +449,37 @@ public class CoalescingBulkLoader<K, V> implements AsyncBulkCacheLoader<K, V>, A
     return queueSize.get();
   }
 
+  /**
+   * Number of requests that are forwarded to the loader in one batch. Changes
+   * in adaptive mode, otherwise the configured maximum.
+   */
+  public int getCurrentBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Maximum time requests are delayed. Changes in adaptive mode, otherwise the
+   * configured maximum.
+   */
+  public long getCurrentDelayMillis() {
+    return delayMillis;
+  }
+
+  /**
+   * Number of batches forwarded to the loader for the given reason.
+   */
+  public long getFlushCount(FlushReason reason) {
+    return flushCounts[reason.ordinal()].get();
+  }
+
+  /**
+   * Moving average of the time from forwarding a batch until all its keys are
+   * completed, in milliseconds. -1 if no batch was completed yet.
+   */
+  public synchronized double getBatchLatencyMillis() {
+    return batchLatency;
+  }
+
   @Override
   public void close() throws Exception {
     queueSize.set(Long.MIN_VALUE);
@@ -37,6 +37,9 @@ public class CoalescingBulkLoaderConfig
   private long maxDelay = 100;
   private int maxBatchSize = 100;
   private boolean refreshOnly = true;
+  private boolean adaptive = false;
+  private long minDelay = 0;
+  private int minBatchSize = 1;
 
   public long getMaxDelay() {
     return maxDelay;
@@ -67,6 +70,35 @@ public class CoalescingBulkLoaderConfig
     this.refreshOnly = refreshOnly;
   }
 
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  public void setAdaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+  }
+
+  public long getMinDelay() {
+    return minDelay;
+  }
+
+  /**
+   * Delay in milliseconds.
+   *
+   * @see Builder#minDelay(long, TimeUnit)
+   */
+  public void setMinDelay(long minDelay) {
+    this.minDelay = minDelay;
+  }
+
+  public int getMinBatchSize() {
+    return minBatchSize;
+  }
+
+  public void setMinBatchSize(int minBatchSize) {
+    this.minBatchSize = minBatchSize;
+  }
+
   @Override
   public Builder builder() {
     return new Builder(this);
@@ -108,6 +140,34 @@ public class CoalescingBulkLoaderConfig
       return this;
     }
 
+    /**
+     * Tune batch size and delay from the observed arrival rate of requests and the
+     * latency of the bulk loads. The batch size is between {@link #minBatchSize(int)}
+     * and {@link #maxBatchSize(int)}, the delay is between {@link #minDelay(long, TimeUnit)}
+     * and {@link #maxDelay(long, TimeUnit)}. Default is {@code false}.
+     */
+    public Builder adaptive(boolean v) {
+      config.setAdaptive(v);
+      return this;
+    }
+
+    /**
+     * Lower bound of the delay in adaptive mode. Default is 0.
+     */
+    public Builder minDelay(long duration, TimeUnit unit) {
+      config.setMinDelay(unit.toMillis(duration));
+      return this;
+    }
+
+    /**
+     * Lower bound of the batch size in adaptive mode. Default is 1, which
+     * means requests are forwarded immediately under low load.
+     */
+    public Builder minBatchSize(int v) {
+      config.setMinBatchSize(v);
+      return this;
+    }
+
     @Override
     public CoalescingBulkLoaderConfig config() {
       return config;
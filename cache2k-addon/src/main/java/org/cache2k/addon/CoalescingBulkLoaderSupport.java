@@ -62,8 +62,8 @@ public class CoalescingBulkLoaderSupport extends ToggleFeature
       }
       CoalescingBulkLoaderConfig config =
         ctx.getConfig().getSections().getSection(CoalescingBulkLoaderConfig.class, DEFAULT_CONFIG);
-      return new CoalescingBulkLoader<K, V>((AsyncBulkCacheLoader<K, V>) loader, buildContext.getTimeReference(),
-        config.getMaxDelay(), config.getMaxBatchSize(), config.isRefreshOnly());
+      return new CoalescingBulkLoader<K, V>((AsyncBulkCacheLoader<K, V>) loader,
+        buildContext.getTimeReference(), config);
     };
     ctx.getConfig().setAsyncLoader(xy);
   }
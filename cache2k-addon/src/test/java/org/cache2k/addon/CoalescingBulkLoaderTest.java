@@ -244,6 +244,89 @@ public class CoalescingBulkLoaderTest {
     cache.close();
   }
 
+  /**
+   * Under low load the adaptive loader forwards single requests immediately.
+   */
+  @Test
+  public void adaptive_lowLoad() throws Exception {
+    IdentBulkLoader bulkLoader = new IdentBulkLoader();
+    CoalescingBulkLoaderConfig cfg = new CoalescingBulkLoaderConfig().builder()
+      .adaptive(true)
+      .maxBatchSize(50)
+      .maxDelay(2000, TimeUnit.MILLISECONDS)
+      .refreshOnly(false)
+      .config();
+    CoalescingBulkLoader<Integer, Integer> coalescingLoader =
+      new CoalescingBulkLoader<>(bulkLoader, TimeReference.DEFAULT, cfg);
+    Cache<Integer, Integer> cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .bulkLoader(coalescingLoader)
+      .build();
+    CompletableFuture<Void> req = cache.loadAll(asList(1));
+    assertTrue("not delayed", req.isDone());
+    assertEquals(1, coalescingLoader.getCurrentBatchSize());
+    assertEquals(1, coalescingLoader.getFlushCount(CoalescingBulkLoader.FlushReason.BATCH_FULL));
+    assertThat(coalescingLoader.getBatchLatencyMillis()).isGreaterThanOrEqualTo(0);
+    cache.close();
+  }
+
+  /**
+   * With a steady request rate and a slow backend, the batch size grows.
+   */
+  @Test
+  public void adaptive_batchSizeGrows() throws Exception {
+    IdentBulkLoader bulkLoader = new IdentBulkLoader();
+    AsyncBulkCacheLoader<Integer, Integer> slowLoader = (keys, context, callback) ->
+      context.getExecutor().execute(() -> {
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException ignore) { }
+        bulkLoader.loadAll(keys, context, callback);
+      });
+    CoalescingBulkLoaderConfig cfg = new CoalescingBulkLoaderConfig().builder()
+      .adaptive(true)
+      .maxBatchSize(50)
+      .maxDelay(100, TimeUnit.MILLISECONDS)
+      .refreshOnly(false)
+      .config();
+    CoalescingBulkLoader<Integer, Integer> coalescingLoader =
+      new CoalescingBulkLoader<>(slowLoader, TimeReference.DEFAULT, cfg);
+    Cache<Integer, Integer> cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .bulkLoader(coalescingLoader)
+      .build();
+    List<CompletableFuture<Void>> requests = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      requests.add(cache.loadAll(asList(i)));
+      if (i % 5 == 0) {
+        Thread.sleep(1);
+      }
+    }
+    for (CompletableFuture<Void> req : requests) {
+      req.get();
+    }
+    assertThat(coalescingLoader.getBatchLatencyMillis()).isGreaterThanOrEqualTo(20);
+    assertThat(coalescingLoader.getCurrentBatchSize()).isGreaterThan(1);
+    assertThat(bulkLoader.getMaxBulkRequestSize()).isGreaterThan(1);
+    assertThat(coalescingLoader.getCurrentDelayMillis()).isBetween(0L, 100L);
+    cache.close();
+  }
+
+  @Test
+  public void flushReasons() throws Exception {
+    IdentBulkLoader bulkLoader = new IdentBulkLoader();
+    CoalescingBulkLoader<Integer, Integer> coalescingLoader =
+      new CoalescingBulkLoader<>(bulkLoader, Long.MAX_VALUE, 2, true);
+    Cache<Integer, Integer> cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .bulkLoader(coalescingLoader)
+      .build();
+    cache.loadAll(asList(1, 2)).get();
+    cache.loadAll(asList(3)).get();
+    assertEquals(2, coalescingLoader.getCurrentBatchSize());
+    assertEquals(Long.MAX_VALUE, coalescingLoader.getCurrentDelayMillis());
+    assertEquals(2, coalescingLoader.getFlushCount(CoalescingBulkLoader.FlushReason.CLIENT_REQUEST));
+    assertEquals(0, coalescingLoader.getFlushCount(CoalescingBulkLoader.FlushReason.DELAY));
+    cache.close();
+  }
+
   @Test(expected = NullPointerException.class)
   public void constructor() {
     CoalescingBulkLoader<Integer, Integer> coalescingLoader = new CoalescingBulkLoader<>(
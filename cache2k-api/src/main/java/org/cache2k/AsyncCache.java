@@ -0,0 +1,79 @@
+package org.cache2k;
+
+/*
+ * #%L
+ * cache2k API
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non blocking view of a cache. Operations return immediately with a
+ * {@code CompletableFuture}. The view is requested via
+ * {@code cache.requestInterface(AsyncCache.class)}.
+ *
+ * <p>If the value is present in the cache, the future is completed when returned.
+ * With an {@link org.cache2k.io.AsyncCacheLoader} the load is started in the calling
+ * thread and completes when the loader calls back. A synchronous loader or compute
+ * function is run in the loader executor, see {@link Cache2kBuilder#loaderExecutor}.
+ * If the executor rejects the task, the calling thread is used to produce back pressure.
+ *
+ * <p>Concurrent requests for the same key share the same load. A request that arrives while
+ * a load is running is completed after the load finished, without calling the loader again.
+ *
+ * @author Jens Wilke
+ * @see Cache#requestInterface(Class)
+ * @since 2.6
+ */
+public interface AsyncCache<K, V> extends DataAware<K, V> {
+
+  /**
+   * Get the value, loading it if missing or expired.
+   * Loader exceptions complete the future exceptionally, according to the
+   * resilience policy.
+   *
+   * @see Cache#get(Object)
+   */
+  CompletableFuture<V> getAsync(K key);
+
+  /**
+   * Get the values for the keys. Missing values are loaded in parallel. As with
+   * {@link Cache#getAll(Iterable)} loader exceptions are thrown when the value
+   * of the affected key is accessed in the returned map.
+   *
+   * @see Cache#getAll(Iterable)
+   */
+  CompletableFuture<Map<K, V>> getAllAsync(Iterable<? extends K> keys);
+
+  /**
+   * If the key has no mapping, compute the value with the function and insert it.
+   * The function is run in the loader executor. Exceptions of the function complete
+   * the future exceptionally.
+   *
+   * @see Cache#computeIfAbsent(Object, Function)
+   */
+  CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> function);
+
+  /**
+   * The cache this view operates on.
+   */
+  Cache<K, V> getCache();
+
+}
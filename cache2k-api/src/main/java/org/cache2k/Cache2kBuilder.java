@@ -598,6 +598,27 @@ public class Cache2kBuilder<K, V>
     return this;
   }
 
+  /**
+   * When {@code true}, a read of an expired entry, which is still present in the cache, returns
+   * the expired value immediately and starts a load via the loader executor. This applies to
+   * {@link Cache#get}, {@link Cache#getEntry} and {@link Cache#getAll}. There is
+   * only one load per entry at a time, concurrent reads return the expired value as well.
+   * Expired data is kept in the cache, like with {@link #keepDataAfterExpired(boolean)},
+   * until replaced by the load or evicted. In contrast to {@link #refreshAhead(boolean)} loads
+   * are only done for entries that are read after expiry.
+   *
+   * <p>If the loader executor rejects the load, the value is loaded by the reading thread.
+   * Expired entries containing an exception are loaded by the reading thread as well.
+   *
+   * <p>By default, stale while revalidate is not enabled.
+   *
+   * @see #loaderExecutor(Executor)
+   */
+  public final Cache2kBuilder<K, V> staleWhileRevalidate(boolean f) {
+    cfg().setStaleWhileRevalidate(f);
+    return this;
+  }
+
   /**
    * By default the time of expiry is not exact, which means, a value might be visible for up to
    * a second longer after the requested time of expiry. The time lag depends on the system load
@@ -988,4 +1009,81 @@ public class Cache2kBuilder<K, V>
     return CacheManager.PROVIDER.createCache(getManager(), cfg());
   }
 
+  /**
+   * Builds a cache with {@code int} keys. The key type must be {@link Integer}.
+   *
+   * @throws IllegalArgumentException if the key type is not {@link Integer}
+   * @see #build()
+   */
+  @SuppressWarnings("unchecked")
+  public final IntCache<V> buildForIntKey() {
+    checkKeyType(Integer.class);
+    Cache<Integer, V> cache = (Cache<Integer, V>) build();
+    if (cache instanceof IntCache) {
+      return (IntCache<V>) cache;
+    }
+    return new IntCacheAdapter<V>(cache);
+  }
+
+  /**
+   * Builds a cache with {@code long} keys. The key type must be {@link Long}.
+   *
+   * @throws IllegalArgumentException if the key type is not {@link Long}
+   * @see #build()
+   */
+  @SuppressWarnings("unchecked")
+  public final LongCache<V> buildForLongKey() {
+    checkKeyType(Long.class);
+    Cache<Long, V> cache = (Cache<Long, V>) build();
+    if (cache instanceof LongCache) {
+      return (LongCache<V>) cache;
+    }
+    return new LongCacheAdapter<V>(cache);
+  }
+
+  private void checkKeyType(Class<?> expectedType) {
+    if (cfg().getKeyType() == null || cfg().getKeyType().getType() != expectedType) {
+      throw new IllegalArgumentException(
+        expectedType.getSimpleName() + " key type expected, was: " + cfg().getKeyType());
+    }
+  }
+
+  /**
+   * Adds the primitive key methods to a cache without native support, e.g. a wrapped cache.
+   */
+  private static final class IntCacheAdapter<V>
+    extends ForwardingCache<Integer, V> implements IntCache<V> {
+
+    private final Cache<Integer, V> cache;
+
+    private IntCacheAdapter(Cache<Integer, V> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    protected Cache<Integer, V> delegate() {
+      return cache;
+    }
+
+  }
+
+  /**
+   * Adds the primitive key methods to a cache without native support, e.g. a wrapped cache.
+   */
+  private static final class LongCacheAdapter<V>
+    extends ForwardingCache<Long, V> implements LongCache<V> {
+
+    private final Cache<Long, V> cache;
+
+    private LongCacheAdapter(Cache<Long, V> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    protected Cache<Long, V> delegate() {
+      return cache;
+    }
+
+  }
+
 }
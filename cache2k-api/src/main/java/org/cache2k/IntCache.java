@@ -0,0 +1,72 @@
+package org.cache2k;
+
+/*
+ * #%L
+ * cache2k API
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.annotation.Nullable;
+
+/**
+ * Cache with {@code int} keys. The methods with a primitive key parameter avoid boxing
+ * the key on the call path. A cache hit does not allocate. The implementation may fall
+ * back to the boxed key, e.g. when a new entry is inserted.
+ *
+ * <p>Obtained via {@link Cache2kBuilder#buildForIntKey()}. Caches with additional
+ * features like listeners or a writer get the default implementation, which boxes the key.
+ *
+ * @author Jens Wilke
+ */
+public interface IntCache<V> extends Cache<Integer, V> {
+
+  /**
+   * @see Cache#get(Object)
+   */
+  default @Nullable V get(int key) {
+    return get((Integer) key);
+  }
+
+  /**
+   * @see Cache#peek(Object)
+   */
+  default @Nullable V peek(int key) {
+    return peek((Integer) key);
+  }
+
+  /**
+   * @see Cache#containsKey(Object)
+   */
+  default boolean containsKey(int key) {
+    return containsKey((Integer) key);
+  }
+
+  /**
+   * @see Cache#put(Object, Object)
+   */
+  default void put(int key, V value) {
+    put((Integer) key, value);
+  }
+
+  /**
+   * @see Cache#remove(Object)
+   */
+  default void remove(int key) {
+    remove((Integer) key);
+  }
+
+}
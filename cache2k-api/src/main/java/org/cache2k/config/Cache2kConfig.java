@@ -102,6 +102,7 @@ public class Cache2kConfig<K, V> implements ConfigBean<Cache2kConfig<K, V>, Cach
   private boolean sharpExpiry = false;
   private boolean strictEviction = false;
   private boolean refreshAhead = false;
+  private boolean staleWhileRevalidate = false;
   private boolean permitNullValues = false;
   private boolean recordModificationTime = false;
   private boolean boostConcurrency = false;
@@ -215,6 +216,20 @@ public class Cache2kConfig<K, V> implements ConfigBean<Cache2kConfig<K, V>, Cach
     this.refreshAhead = v;
   }
 
+  /**
+   * @see Cache2kBuilder#staleWhileRevalidate(boolean)
+   */
+  public boolean isStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /**
+   * @see Cache2kBuilder#staleWhileRevalidate(boolean)
+   */
+  public void setStaleWhileRevalidate(boolean v) {
+    this.staleWhileRevalidate = v;
+  }
+
   public @Nullable CacheType<K> getKeyType() {
     return keyType;
   }
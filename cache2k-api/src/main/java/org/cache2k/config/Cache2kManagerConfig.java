@@ -36,6 +36,8 @@ public class Cache2kManagerConfig
   private boolean ignoreMissingCacheConfiguration = false;
   private boolean skipCheckOnStartup = false;
   private boolean ignoreAnonymousCache = false;
+  private boolean sharedTimer = false;
+  private boolean coarseTimeReference = false;
 
   public boolean isIgnoreMissingCacheConfiguration() {
     return ignoreMissingCacheConfiguration;
@@ -94,6 +96,40 @@ public class Cache2kManagerConfig
     ignoreAnonymousCache = f;
   }
 
+  public boolean isSharedTimer() {
+    return sharedTimer;
+  }
+
+  /**
+   * All caches of the manager use one common timer for expiry and refresh, instead of
+   * a timer for each cache. This reduces the timer structures and scheduler wakeups
+   * when many caches are used. Only caches with default time reference, scheduler
+   * and timer lag use the common timer. The option can be combined with
+   * {@link #setCoarseTimeReference(boolean)}, the common timer uses the coarse time reference
+   * then.
+   *
+   * <p>Clearing or closing a cache cancels its timer tasks by scanning the pending tasks of
+   * all caches, so the cost grows with the total number of tasks in the common timer.
+   * For setups that clear or close caches frequently, separate timers are the better choice.
+   */
+  public void setSharedTimer(boolean f) {
+    sharedTimer = f;
+  }
+
+  public boolean isCoarseTimeReference() {
+    return coarseTimeReference;
+  }
+
+  /**
+   * Caches without a configured time reference read the time from a common clock that
+   * is updated by a background thread, instead of calling {@link System#currentTimeMillis()}
+   * on each access to an entry that needs a time check. The time may be behind by a few
+   * milliseconds.
+   */
+  public void setCoarseTimeReference(boolean f) {
+    coarseTimeReference = f;
+  }
+
   /**
    * Not supported, but will eventually get one.
    */
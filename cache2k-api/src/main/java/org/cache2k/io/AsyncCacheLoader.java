@@ -112,6 +112,26 @@ public interface AsyncCacheLoader<K, V> extends DataAwareCustomization<K, V> {
      * is using the flag to delay refresh requests and combine them into bulk requests.
      */
     boolean isRefreshAhead();
+
+    /**
+     * The load was cancelled by the cache, for example because the configured load timeout
+     * was reached. After cancellation, calls to the callback are ignored.
+     *
+     * @since 2.6
+     */
+    default boolean isCancelled() {
+      return false;
+    }
+
+    /**
+     * Register an action that is run when the load is cancelled, for example to abort
+     * an in-flight remote request. If the load is already cancelled, the action
+     * runs immediately. The action should not block, since it may run in the
+     * timer thread of the cache.
+     *
+     * @since 2.6
+     */
+    default void onCancel(Runnable action) { }
   }
 
   /**
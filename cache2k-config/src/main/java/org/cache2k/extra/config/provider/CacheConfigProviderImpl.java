@@ -23,6 +23,7 @@ package org.cache2k.extra.config.provider;
 import org.cache2k.CacheException;
 import org.cache2k.CacheManager;
 import org.cache2k.config.Cache2kConfig;
+import org.cache2k.config.Cache2kManagerConfig;
 import org.cache2k.config.CustomizationSupplierByClassName;
 import org.cache2k.core.spi.CacheConfigProvider;
 import org.cache2k.extra.config.generic.ConfigurationException;
@@ -146,6 +147,11 @@ public class CacheConfigProviderImpl
     return names;
   }
 
+  @Override
+  public Cache2kManagerConfig getManagerConfig(CacheManager mgr) {
+    return getManagerContext(mgr).getManagerConfiguration();
+  }
+
   private static String getFileName(CacheManager mgr) {
     if (mgr.isDefaultManager()) {
       return DEFAULT_CONFIGURATION_FILE;
@@ -25,9 +25,14 @@ import org.cache2k.Cache2kBuilder;
 import org.cache2k.CacheManager;
 import org.cache2k.config.Cache2kConfig;
 import org.cache2k.config.CustomizationSupplierByClassName;
+import org.cache2k.core.CacheManagerImpl;
+import org.cache2k.core.LoadTimeoutConfig;
+import org.cache2k.core.api.InternalCache;
 import org.cache2k.core.spi.CacheConfigProvider;
+import org.cache2k.core.timing.CoarseTimeReference;
 import org.cache2k.extra.config.provider.CacheConfigProviderImpl;
 import org.cache2k.extra.config.generic.ConfigurationException;
+import org.cache2k.operation.TimeReference;
 import org.cache2k.testing.category.FastTests;
 import org.hamcrest.CoreMatchers;
 import org.junit.Ignore;
@@ -35,6 +40,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.*;
@@ -327,6 +333,101 @@ public class IntegrationTest {
     assertTrue(cfg.isExternalConfigurationPresent());
   }
 
+  @Test
+  public void sharedTimer() {
+    CacheManager mgr = CacheManager.getInstance("sharedTimer");
+    CacheManagerImpl impl = (CacheManagerImpl) mgr;
+    assertTrue(impl.isSharedTimer());
+    Cache c1 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("cache1")
+      .build();
+    Cache c2 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("cache2")
+      .build();
+    Cache c3 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("ownLag")
+      .timerLag(7, TimeUnit.MILLISECONDS)
+      .build();
+    c1.put("a", "b");
+    c2.put("a", "b");
+    assertEquals(2, impl.getSharedTimer().getClientCount());
+    c1.close();
+    c2.close();
+    assertTrue(impl.getSharedTimer().isClosed());
+    c3.close();
+    mgr.close();
+  }
+
+  /**
+   * The load timeout uses its own client of the shared timer, not the timer of the timing.
+   */
+  @Test
+  public void sharedTimerForLoadTimeout() {
+    CacheManager mgr = CacheManager.getInstance("sharedTimer");
+    CacheManagerImpl impl = (CacheManagerImpl) mgr;
+    Cache c = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("loadTimeout")
+      .with(LoadTimeoutConfig.class, b -> b.timeout(5, TimeUnit.SECONDS))
+      .build();
+    assertEquals(2, impl.getSharedTimer().getClientCount());
+    c.close();
+    assertTrue(impl.getSharedTimer().isClosed());
+    mgr.close();
+  }
+
+  @Test
+  public void coarseTimeReference() {
+    CacheManager mgr = CacheManager.getInstance("coarseTimeReference");
+    Cache c1 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("cache1")
+      .build();
+    Cache c2 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("ownClock")
+      .timeReference(TimeReference.DEFAULT)
+      .build();
+    TimeReference clock = ((InternalCache) c1).getClock();
+    assertThat(clock, instanceOf(CoarseTimeReference.class));
+    assertSame(clock, ((CacheManagerImpl) mgr).getDefaultTimeReference());
+    assertSame(TimeReference.DEFAULT, ((InternalCache) c2).getClock());
+    mgr.close();
+  }
+
+  /**
+   * Caches using the coarse time reference of the manager also use the shared timer.
+   */
+  @Test
+  public void sharedTimerWithCoarseTimeReference() {
+    CacheManager mgr = CacheManager.getInstance("sharedTimerCoarseTimeReference");
+    CacheManagerImpl impl = (CacheManagerImpl) mgr;
+    Cache c1 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("cache1")
+      .build();
+    Cache c2 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("cache2")
+      .build();
+    Cache c3 = new Cache2kBuilder<String, String>() { }
+      .manager(mgr)
+      .name("ownClock")
+      .timeReference(TimeReference.DEFAULT)
+      .build();
+    assertThat(((InternalCache) c1).getClock(), instanceOf(CoarseTimeReference.class));
+    assertSame(impl.getDefaultTimeReference(), impl.getSharedTimer().getClock());
+    assertEquals(2, impl.getSharedTimer().getClientCount());
+    c1.close();
+    c2.close();
+    assertTrue(impl.getSharedTimer().isClosed());
+    c3.close();
+    mgr.close();
+  }
+
   @Test (expected = IllegalArgumentException.class)
   public void empty() {
     Cache c = new Cache2kBuilder<String, String>() { }
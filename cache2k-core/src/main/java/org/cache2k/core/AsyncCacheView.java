@@ -0,0 +1,157 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.AsyncCache;
+import org.cache2k.Cache;
+import org.cache2k.core.operation.Operations;
+import org.cache2k.core.operation.Semantic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Implements {@link AsyncCache} with the {@link EntryAction} processing. An action for
+ * an entry that is processing is enqueued and runs after the running action completed,
+ * so concurrent requests for the same key share one load.
+ *
+ * @author Jens Wilke
+ */
+class AsyncCacheView<K, V> implements AsyncCache<K, V> {
+
+  @SuppressWarnings("unchecked")
+  private final Operations<K, V> ops = Operations.SINGLETON;
+  private final BaseCache<K, V> cache;
+  private final HeapCache<K, V> heapCache;
+
+  AsyncCacheView(BaseCache<K, V> cache) {
+    this.cache = cache;
+    heapCache = cache.getHeapCache();
+  }
+
+  @Override
+  public CompletableFuture<V> getAsync(K key) {
+    Entry<K, V> e = heapCache.lookupEntry(key);
+    if (isFresh(e)) {
+      return completedValue(e.getValueOrException());
+    }
+    return execute(key, e, ops.get(key), !cache.isAsyncLoaderPresent(),
+      action -> HeapCache.returnValue(action.getResult()));
+  }
+
+  @Override
+  public CompletableFuture<Map<K, V>> getAllAsync(Iterable<? extends K> keys) {
+    Set<K> keySet = HeapCache.generateKeySet(keys);
+    BulkResultCollector<K, V> collect = new BulkResultCollector<>();
+    List<CompletableFuture<EntryAction<K, V, V>>> loads = new ArrayList<>();
+    boolean offload = !cache.isAsyncLoaderPresent();
+    for (K key : keySet) {
+      Entry<K, V> e = heapCache.lookupEntry(key);
+      if (isFresh(e)) {
+        collect.put(key, e.getValueOrException());
+      } else {
+        loads.add(execute(key, e, ops.get(key), offload, action -> action));
+      }
+    }
+    return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]))
+      .thenApply(unused -> {
+        for (CompletableFuture<EntryAction<K, V, V>> f : loads) {
+          EntryAction<K, V, V> action = f.join();
+          if (action.isResultAvailable()) {
+            collect.put(action.getKey(), action.getResult());
+          }
+        }
+        return collect.mapOrThrowIfAllFaulty();
+      });
+  }
+
+  @Override
+  public CompletableFuture<V> computeIfAbsentAsync(
+    K key, Function<? super K, ? extends V> function) {
+    Entry<K, V> e = heapCache.lookupEntry(key);
+    if (isFresh(e)) {
+      return completedValue(e.getValueOrException());
+    }
+    return execute(key, e, ops.computeIfAbsent(key, function), true,
+      action -> HeapCache.returnValue(action.getResult()));
+  }
+
+  @Override
+  public Cache<K, V> getCache() {
+    return cache;
+  }
+
+  private boolean isFresh(Entry<K, V> e) {
+    return e != null && e.hasFreshData(heapCache.getClock());
+  }
+
+  private CompletableFuture<V> completedValue(Object valueOrException) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    try {
+      future.complete(HeapCache.returnValue(valueOrException));
+    } catch (RuntimeException ex) {
+      future.completeExceptionally(ex);
+    }
+    return future;
+  }
+
+  /**
+   * Start the action and complete the future when the action completes.
+   *
+   * @param offload run the action in the loader executor, because it might block
+   * @param result extract the result from the completed action, may throw an exception
+   */
+  private <R, T> CompletableFuture<T> execute(K key, Entry<K, V> e, Semantic<K, V, R> op,
+                                              boolean offload,
+                                              Function<EntryAction<K, V, R>, T> result) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    EntryAction<K, V, R> action = cache.createEntryAction(key, e, op, completedAction -> {
+      RuntimeException exceptionToPropagate = completedAction.getExceptionToPropagate();
+      if (exceptionToPropagate != null) {
+        future.completeExceptionally(exceptionToPropagate);
+        return;
+      }
+      try {
+        future.complete(result.apply(completedAction));
+      } catch (RuntimeException ex) {
+        future.completeExceptionally(ex);
+      }
+    });
+    Runnable start = () -> {
+      try {
+        action.start();
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    };
+    if (offload) {
+      heapCache.executeLoader(start);
+    } else {
+      start.run();
+    }
+    return future;
+  }
+
+}
@@ -20,6 +20,7 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.AsyncCache;
 import org.cache2k.Cache;
 import org.cache2k.CacheEntry;
 import org.cache2k.CacheException;
@@ -126,6 +127,9 @@ public abstract class BaseCache<K, V> implements InternalCache<K, V> {
       type.isAssignableFrom(CacheControl.class)) {
       return (X) new BaseCacheControl(this);
     }
+    if (type.equals(AsyncCache.class)) {
+      return (X) new AsyncCacheView<K, V>(this);
+    }
     if (type.isAssignableFrom(this.getClass())) {
       return (X) this;
     }
@@ -166,7 +170,15 @@ public abstract class BaseCache<K, V> implements InternalCache<K, V> {
   }
 
   protected <R> R execute(K key, Entry<K, V> e, Semantic<K, V, R> op) {
+    return execute(key, e, op, false);
+  }
+
+  /**
+   * @param limitLoad apply the load limit, only for single entry requests
+   */
+  protected <R> R execute(K key, Entry<K, V> e, Semantic<K, V, R> op, boolean limitLoad) {
     EntryAction<K, V, R> action = createEntryAction(key, e, op);
+    action.limitLoad = limitLoad;
     action.start();
     RuntimeException t = action.getExceptionToPropagate();
     if (t != null) {
@@ -178,6 +190,23 @@ public abstract class BaseCache<K, V> implements InternalCache<K, V> {
   protected abstract <R> EntryAction<K, V, R> createEntryAction(K key, Entry<K, V> e,
                                                                 Semantic<K, V, R> op);
 
+  /**
+   * Create an entry action, which calls the callback when completed. If the entry is
+   * processing, the action is enqueued and runs after the current processing.
+   */
+  protected abstract <R> EntryAction<K, V, R> createEntryAction(
+    K key, Entry<K, V> e, Semantic<K, V, R> op, EntryAction.CompletedCallback<K, V, R> cb);
+
+  public abstract HeapCache<K, V> getHeapCache();
+
+  /**
+   * True, if loads complete asynchronously and an action can be started
+   * in the calling thread without blocking it.
+   */
+  protected boolean isAsyncLoaderPresent() {
+    return false;
+  }
+
   @Override
   public void closeCustomization(Object customization, String customizationName) {
     if (customization instanceof AutoCloseable) {
@@ -172,6 +172,12 @@ class CacheBaseInfo implements InternalCacheInfo {
   @Override
   public long getRefreshRejectedCount() { return metrics.getRefreshRejectedCount(); }
   @Override
+  public long getRefreshDeferredCount() { return metrics.getRefreshDeferredCount(); }
+  @Override
+  public long getLoadQueuedCount() { return metrics.getLoadQueuedCount(); }
+  @Override
+  public long getLoadShedCount() { return metrics.getLoadShedCount(); }
+  @Override
   public long getSuppressedExceptionCount() { return metrics.getSuppressedExceptionCount(); }
   @Override
   public long getLoadExceptionCount() {
@@ -262,6 +268,9 @@ class CacheBaseInfo implements InternalCacheInfo {
       .append("heapHit=").append(getHeapHitCount()).append(", ")
       .append("refresh=").append(getRefreshCount()).append(", ")
       .append("refreshRejected=").append(getRefreshRejectedCount()).append(", ")
+      .append("refreshDeferred=").append(getRefreshDeferredCount()).append(", ")
+      .append("loadQueued=").append(getLoadQueuedCount()).append(", ")
+      .append("loadShed=").append(getLoadShedCount()).append(", ")
       .append("refreshedHit=").append(getRefreshedHitCount()).append(", ")
       .append("loadException=").append(getLoadExceptionCount()).append(", ")
       .append("suppressedException=").append(getSuppressedExceptionCount()).append(", ")
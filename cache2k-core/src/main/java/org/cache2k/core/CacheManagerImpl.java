@@ -25,12 +25,19 @@ import org.cache2k.Cache2kBuilder;
 import org.cache2k.CacheException;
 import org.cache2k.CacheManager;
 import org.cache2k.config.Cache2kConfig;
+import org.cache2k.config.Cache2kManagerConfig;
 import org.cache2k.core.api.InternalCacheCloseContext;
 import org.cache2k.core.api.InternalCache;
 import org.cache2k.core.api.InternalCacheBuildContext;
 import org.cache2k.core.spi.CacheLifeCycleListener;
 import org.cache2k.core.spi.CacheManagerLifeCycleListener;
 import org.cache2k.core.log.Log;
+import org.cache2k.core.timing.CoarseTimeReference;
+import org.cache2k.core.timing.DefaultSchedulerProvider;
+import org.cache2k.core.timing.SharedTimer;
+import org.cache2k.core.timing.Timer;
+import org.cache2k.core.timing.TimerTask;
+import org.cache2k.operation.TimeReference;
 import org.cache2k.spi.Cache2kCoreProvider;
 
 import java.lang.reflect.Array;
@@ -46,6 +53,8 @@ import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 /**
  * @author Jens Wilke
@@ -107,6 +116,8 @@ public class CacheManagerImpl extends CacheManager {
   private final boolean defaultManager;
   private final Cache2kCoreProviderImpl provider;
   private boolean closing;
+  private SharedTimer sharedTimer;
+  private CoarseTimeReference coarseTimeReference;
 
   public CacheManagerImpl(Cache2kCoreProviderImpl provider, ClassLoader cl, String name,
                           boolean defaultManager) {
@@ -191,6 +202,82 @@ public class CacheManagerImpl extends CacheManager {
     }
   }
 
+  /**
+   * True, if caches should use the timer shared within this manager.
+   *
+   * @see Cache2kManagerConfig#setSharedTimer(boolean)
+   */
+  public boolean isSharedTimer() {
+    return Cache2kCoreProviderImpl.CACHE_CONFIGURATION_PROVIDER
+      .getManagerConfig(this).isSharedTimer();
+  }
+
+  /**
+   * Timer for one cache using the shared timer of this manager. The shared timer
+   * is created on first use and closed when the last client is closed. It uses the
+   * default time reference of the manager, see {@link #getSharedTimerClock()}.
+   */
+  public Timer createSharedTimerClient(Predicate<TimerTask> ownTasks) {
+    synchronized (lock) {
+      checkClosed();
+      if (sharedTimer == null || sharedTimer.isClosed()) {
+        sharedTimer = new SharedTimer(getSharedTimerClock(),
+          DefaultSchedulerProvider.INSTANCE.supply(ForkJoinPool.commonPool()),
+          HeapCache.TUNABLE.timerLagMillis);
+      }
+      return sharedTimer.createClient(ownTasks);
+    }
+  }
+
+  /**
+   * True, if a cache can schedule into the shared timer. The cache needs the
+   * default scheduler and timer lag and the time reference of the shared timer.
+   */
+  public boolean canUseSharedTimer(Cache2kConfig<?, ?> cfg, TimeReference clock) {
+    return isSharedTimer() && cfg.getScheduler() == null && cfg.getTimerLag() == null
+      && clock == getSharedTimerClock();
+  }
+
+  /**
+   * Time reference of the shared timer. This is the coarse time reference, if enabled,
+   * so both options can be combined. Only caches with this time reference can use
+   * the shared timer.
+   */
+  public TimeReference getSharedTimerClock() {
+    TimeReference clock = getDefaultTimeReference();
+    return clock != null ? clock : TimeReference.DEFAULT;
+  }
+
+  /**
+   * Time reference for caches without a configured time reference, if
+   * {@link Cache2kManagerConfig#setCoarseTimeReference(boolean)} is enabled.
+   * The instance is created on first use and stopped when the manager is closed.
+   *
+   * @return the coarse time reference or {@code null}, if not enabled
+   */
+  public TimeReference getDefaultTimeReference() {
+    if (!Cache2kCoreProviderImpl.CACHE_CONFIGURATION_PROVIDER
+      .getManagerConfig(this).isCoarseTimeReference()) {
+      return null;
+    }
+    synchronized (lock) {
+      checkClosed();
+      if (coarseTimeReference == null) {
+        coarseTimeReference = new CoarseTimeReference();
+      }
+      return coarseTimeReference;
+    }
+  }
+
+  /**
+   * The shared timer or {@code null}, if not used yet.
+   */
+  public SharedTimer getSharedTimer() {
+    synchronized (lock) {
+      return sharedTimer;
+    }
+  }
+
   @Override
   public boolean isDefaultManager() {
     return defaultManager;
@@ -310,6 +397,9 @@ public class CacheManagerImpl extends CacheManager {
     }
     ((Cache2kCoreProviderImpl) PROVIDER).removeManager(this);
     synchronized (lock) {
+      if (coarseTimeReference != null) {
+        coarseTimeReference.close();
+      }
       for (Cache c : cacheNames.values()) {
         log.warn("unable to close cache: " + c.getName());
       }
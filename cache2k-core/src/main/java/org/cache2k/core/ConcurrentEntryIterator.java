@@ -20,6 +20,7 @@ package org.cache2k.core;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -31,7 +32,8 @@ import java.util.NoSuchElementException;
  * entry is rehashed. In this case it is most likely that entries are missed.
  * If an expansion occurred, the iteration will restart from the beginning. To ensure that every
  * entry is only iterated once, the iterator has an internal bookkeeping, what was previously
- * iterated.
+ * iterated. Buckets that are already moved by an incremental expansion are iterated
+ * in the new table.
  *
  * <p>Clear: A clear operation stops current iterations.
  *
@@ -42,12 +44,23 @@ import java.util.NoSuchElementException;
 public class ConcurrentEntryIterator<K, V> implements Iterator<Entry<K, V>> {
 
   private final HeapCache<K, V> cache;
-  private Entry<K, V> lastEntry = null;
-  private Entry<K, V> nextEntry = null;
   private long clearCount;
   private StampedHash<K, V> hash;
   private Entry<K, V>[] hashArray;
   private HashMap<K, K> seen = new HashMap<K, K>();
+  private Entry<K, V> nextEntry = null;
+
+  /** Next bucket index within {@link #hashArray} */
+  private int idx = 0;
+
+  /** Next entry to examine within the current collision chain */
+  private Entry<K, V> chain;
+
+  /**
+   * Collision chains of the current bucket, that still need to be examined. More then one
+   * if the bucket was moved by an incremental expansion.
+   */
+  private final ArrayList<Entry<K, V>> pendingChains = new ArrayList<Entry<K, V>>();
 
   public ConcurrentEntryIterator(HeapCache<K, V> cache) {
     this.cache = cache;
@@ -97,7 +110,6 @@ public class ConcurrentEntryIterator<K, V> implements Iterator<Entry<K, V>> {
   }
 
   private Entry<K, V> nextEntry() {
-    Entry<K, V> e;
     if (hashArray == null) {
       return null;
     }
@@ -109,52 +121,47 @@ public class ConcurrentEntryIterator<K, V> implements Iterator<Entry<K, V>> {
       clearOutReferences();
       return null;
     }
-    int idx = 0;
-    if (lastEntry != null) {
-      e = lastEntry.another;
-      if (e != null) {
-        e = checkIteratedOrNext(e);
-        if (e != null) {
-          lastEntry = e;
+    for (;;) {
+      while (chain != null) {
+        Entry<K, V> e = chain;
+        chain = e.another;
+        K key = cache.keyObjFromEntry(e);
+        if (!seen.containsKey(key)) {
+          markIterated(key, cache.spreadedHashFromEntry(e));
           return e;
         }
       }
-      idx = (cache.spreadedHashFromEntry(lastEntry) & (hashArray.length - 1)) + 1;
-    }
-    for (;;) {
+      if (!pendingChains.isEmpty()) {
+        chain = pendingChains.remove(pendingChains.size() - 1);
+        continue;
+      }
       if (idx >= hashArray.length) {
         if (switchAndCheckAbort()) {
           return null;
         }
         idx = 0;
       }
-      e = hashArray[idx];
-      if (e != null) {
-        e = checkIteratedOrNext(e);
-        if (e != null) {
-          lastEntry = e;
-          return e;
-        }
-      }
-      idx++;
+      addBucket(hashArray, idx++);
     }
   }
 
-  private boolean needsAbort() {
-    return clearCount != hash.getClearOrCloseCount();
+  /**
+   * Add the collision chain of the bucket. If the bucket was moved by an
+   * incremental expansion, add the two buckets it was split into.
+   */
+  private void addBucket(Entry<K, V>[] tab, int i) {
+    Entry<K, V> e = tab[i];
+    if (e instanceof StampedHash.ForwardingEntry) {
+      Entry<K, V>[] next = ((StampedHash.ForwardingEntry<K, V>) e).table;
+      addBucket(next, i + tab.length);
+      addBucket(next, i);
+    } else if (e != null) {
+      pendingChains.add(e);
+    }
   }
 
-  private Entry<K, V> checkIteratedOrNext(Entry<K, V> e) {
-    do {
-      K key = cache.keyObjFromEntry(e);
-      boolean notYetIterated = !seen.containsKey(key);
-      if (notYetIterated) {
-        markIterated(key, cache.spreadedHashFromEntry(e));
-        return e;
-      }
-      e = e.another;
-    } while (e != null);
-    return null;
+  private boolean needsAbort() {
+    return clearCount != hash.getClearOrCloseCount();
   }
 
   /**
@@ -198,6 +205,8 @@ public class ConcurrentEntryIterator<K, V> implements Iterator<Entry<K, V>> {
     hash = null;
     hashArray = null;
     seen = null;
+    chain = null;
+    pendingChains.clear();
   }
 
   /**
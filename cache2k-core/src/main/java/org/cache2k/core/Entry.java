@@ -133,7 +133,8 @@ class CompactEntry<K, V> implements CacheEntry<K, V> {
   }
 
   /**
-   * Get the raw object reference. Is {@code null} for the {@link IntHeapCache}.
+   * Get the raw object reference. Is {@code null} for the {@link IntHeapCache}
+   * and the {@link LongHeapCache}.
    */
   public K getKeyObj() {
     return key;
@@ -549,6 +550,19 @@ public class Entry<K, V> extends CompactEntry<K, V>
     }
   }
 
+  /**
+   * Marker for entries in the window of {@link org.cache2k.core.eviction.TinyLfuEviction}
+   */
+  public boolean isWindow() { return (hotAndWeight & 0x40000000) != 0; }
+
+  public void setWindow(boolean f) {
+    if (f) {
+      hotAndWeight = hotAndWeight | 0x40000000;
+    } else {
+      hotAndWeight = hotAndWeight & ~0x40000000;
+    }
+  }
+
   /**
    * Store weight as 16 bit floating point number.
    */
@@ -592,7 +606,7 @@ public class Entry<K, V> extends CompactEntry<K, V>
     sb.append(", key=");
     Object key = getKeyObj();
     if (key == null) {
-      sb.append(hashCode);
+      sb.append(getKey());
     } else {
       sb.append(key);
       if (c != null && (HeapCache.spreadHash(key.hashCode()) != hashCode)) {
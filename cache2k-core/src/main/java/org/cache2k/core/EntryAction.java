@@ -26,6 +26,8 @@ import org.cache2k.CacheException;
 import org.cache2k.core.api.CommonMetrics;
 import org.cache2k.core.api.InternalCache;
 import org.cache2k.operation.TimeReference;
+import org.cache2k.core.timing.Timer;
+import org.cache2k.core.timing.TimerTask;
 import org.cache2k.core.timing.Timing;
 import org.cache2k.event.CacheEntryExpiredListener;
 import org.cache2k.expiry.ExpiryTimeValues;
@@ -40,9 +42,12 @@ import org.cache2k.CustomizationException;
 import org.cache2k.io.AsyncCacheLoader;
 import org.cache2k.core.experimentalApi.AsyncCacheWriter;
 import org.cache2k.core.operation.ExaminationEntry;
+import org.cache2k.core.operation.Operations;
 import org.cache2k.core.operation.Progress;
 import org.cache2k.core.operation.Semantic;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import static org.cache2k.core.Entry.ProcessingState.*;
@@ -128,6 +133,11 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
    */
   boolean loadAndRestart = false;
 
+  /**
+   * Apply the load limit, if configured. Only set for single entry requests.
+   */
+  boolean limitLoad = false;
+
   /**
    * Loader was called or a refreshed entry was revived
    */
@@ -185,6 +195,22 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
    */
   private boolean bulkMode;
 
+  /**
+   * Scheduled if a load timeout is configured and an async load is running.
+   */
+  private volatile TimerTask loadTimeoutTask;
+
+  /**
+   * The async load was cancelled by the timeout. Set with the entry lock,
+   * callbacks after that are ignored.
+   */
+  private volatile boolean loadCancelled;
+
+  /**
+   * Actions registered via {@link #onCancel(Runnable)}. Guarded by this.
+   */
+  private List<Runnable> cancelActions;
+
   private volatile RuntimeException exceptionToPropagate;
   /** @see #isResultAvailable() */
   private volatile boolean resultAvailable;
@@ -320,6 +346,25 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
     return refresh;
   }
 
+  @Override
+  public boolean isCancelled() {
+    return loadCancelled;
+  }
+
+  @Override
+  public void onCancel(Runnable action) {
+    synchronized (this) {
+      if (!loadCancelled) {
+        if (cancelActions == null) {
+          cancelActions = new ArrayList<>();
+        }
+        cancelActions.add(action);
+        return;
+      }
+    }
+    action.run();
+  }
+
   @Override
   public long getMutationStartTime() {
     if (mutationStartTime > 0) {
@@ -603,11 +648,31 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
         return;
       }
     }
+    LoadLimiter limiter =
+      !limitLoad || refresh || asyncLoader() != null ? null : heapCache.getLoadLimiter();
+    if (limiter != null) {
+      boolean staleAvailable = e.isValidOrExpiredAndNoException();
+      try {
+        if (!limiter.acquire(staleAvailable, metrics())) {
+          if (operation == Operations.GET_ENTRY) {
+            entryResult(e);
+          } else {
+            resultOrWrapper(e.getValueOrException());
+          }
+          abort();
+          return;
+        }
+      } catch (LoadSheddingException ex) {
+        mutationAbort(ex);
+        return;
+      }
+    }
     valueDefinitelyLoaded = true;
     loaderWasCalled = true;
     AsyncCacheLoader<K, V> asyncLoader;
     if ((asyncLoader = asyncLoader()) != null) {
       heapEntry.nextProcessingStep(LOAD_ASYNC);
+      startLoadTimeout();
       try {
         asyncLoader.load(key, this, this);
       } catch (Throwable ouch) {
@@ -631,9 +696,15 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
         v = loader.load(key, t0, e);
       }
     } catch (Throwable ouch) {
+      if (limiter != null) {
+        limiter.release();
+      }
       onLoadFailureIntern(ouch);
       return;
     }
+    if (limiter != null) {
+      limiter.release();
+    }
     onLoadSuccessIntern(v);
   }
 
@@ -726,7 +797,9 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
    */
   @Override
   public void onLoadSuccess(V v) {
-    checkEntryStateOnLoadCallback();
+    if (!checkEntryStateOnLoadCallback()) {
+      return;
+    }
     try {
       onLoadSuccessIntern(v);
     } catch (CacheClosedException ex) {
@@ -741,7 +814,9 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
    */
   @Override
   public void onLoadFailure(Throwable t) {
-    checkEntryStateOnLoadCallback();
+    if (!checkEntryStateOnLoadCallback()) {
+      return;
+    }
     try {
       onLoadFailureIntern(t);
     } catch (CacheClosedException ex) {
@@ -754,13 +829,89 @@ public abstract class EntryAction<K, V, R> extends Entry.PiggyBack implements
   /**
    * Make sure only one callback succeeds. The entry reference is volatile,
    * so we are sure its there.
+   *
+   * @return false, if the load was cancelled by the timeout and the callback is ignored
    */
-  private void checkEntryStateOnLoadCallback() {
+  private boolean checkEntryStateOnLoadCallback() {
     synchronized (heapEntry) {
+      if (loadCancelled) {
+        return false;
+      }
       if (!heapEntry.checkAndSwitchProcessingState(LOAD_ASYNC, LOAD_COMPLETE) || completed) {
         throw new IllegalStateException("async callback on wrong entry state. duplicate callback?");
       }
     }
+    TimerTask task = loadTimeoutTask;
+    if (task != null) {
+      heapCache.getLoadTimeoutTimer().cancel(task);
+    }
+    return true;
+  }
+
+  /**
+   * Schedule the timeout for the async load, if configured.
+   */
+  private void startLoadTimeout() {
+    Timer timer = heapCache.getLoadTimeoutTimer();
+    if (timer == null) {
+      return;
+    }
+    TimerTask task = new LoadTimeoutTask();
+    loadTimeoutTask = task;
+    timer.schedule(task, millis() + heapCache.getLoadTimeoutMillis());
+  }
+
+  /**
+   * Timer task for the async load timeout. The cache identifies its own tasks
+   * in a shared timer by the type and the cache instance.
+   */
+  class LoadTimeoutTask extends TimerTask {
+
+    HeapCache<?, ?> getHeapCache() {
+      return heapCache;
+    }
+
+    @Override
+    protected void action() {
+      loadTimeout();
+    }
+
+  }
+
+  /**
+   * Called by the timer. If the async load is still running, cancel it and
+   * complete the load with a {@link LoadTimeoutException}, which frees the entry
+   * for waiting requests.
+   */
+  private void loadTimeout() {
+    synchronized (heapEntry) {
+      if (heapEntry.getEntryAction() != this || completed
+        || !heapEntry.checkAndSwitchProcessingState(LOAD_ASYNC, LOAD_COMPLETE)) {
+        return;
+      }
+      loadCancelled = true;
+    }
+    List<Runnable> actions;
+    synchronized (this) {
+      actions = cancelActions;
+      cancelActions = null;
+    }
+    if (actions != null) {
+      for (Runnable action : actions) {
+        try {
+          action.run();
+        } catch (Throwable t) {
+          heapCache.logAndCountInternalException("load cancel action", t);
+        }
+      }
+    }
+    try {
+      onLoadFailureIntern(new LoadTimeoutException(
+        "no load completion after " + heapCache.getLoadTimeoutMillis() + " millis"));
+    } catch (CacheClosedException ex) {
+    } catch (Throwable internal) {
+      heapCache.logAndCountInternalException("load timeout", internal);
+    }
   }
 
   private void onLoadSuccessIntern(V v) {
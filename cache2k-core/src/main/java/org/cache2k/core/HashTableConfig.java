@@ -0,0 +1,81 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+/**
+ * Configuration section to select the hash table implementation of a cache.
+ *
+ * <p>Example: {@code builder.with(HashTableConfig.class, b -> b.openAddressing(true))}
+ *
+ * @author Jens Wilke
+ */
+public class HashTableConfig implements ConfigSection<HashTableConfig, HashTableConfig.Builder> {
+
+  private boolean openAddressing;
+
+  /**
+   * See {@link Builder#openAddressing(boolean)}
+   */
+  public boolean isOpenAddressing() {
+    return openAddressing;
+  }
+
+  /**
+   * See {@link Builder#openAddressing(boolean)}
+   */
+  public void setOpenAddressing(boolean openAddressing) {
+    this.openAddressing = openAddressing;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, HashTableConfig> {
+
+    private final HashTableConfig config;
+
+    private Builder(HashTableConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Use a hash table with open addressing and a packed array of hash fingerprints,
+     * see {@link OpenAddressingHash}. The default is a hash table with collision chains,
+     * see {@link StampedHash}.
+     */
+    public Builder openAddressing(boolean f) {
+      config.setOpenAddressing(f);
+      return this;
+    }
+
+    @Override
+    public HashTableConfig config() {
+      return config;
+    }
+
+  }
+
+}
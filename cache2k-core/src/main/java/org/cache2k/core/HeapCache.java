@@ -29,6 +29,7 @@ import org.cache2k.core.api.InternalCacheBuildContext;
 import org.cache2k.core.api.CommonMetrics;
 import org.cache2k.core.api.InternalCache;
 import org.cache2k.core.api.InternalCacheInfo;
+import org.cache2k.core.concurrency.VirtualThreadExecutor;
 import org.cache2k.core.eviction.Eviction;
 import org.cache2k.core.eviction.EvictionMetrics;
 import org.cache2k.core.eviction.HeapCacheForEviction;
@@ -38,7 +39,9 @@ import org.cache2k.core.operation.Operations;
 import org.cache2k.core.concurrency.DefaultThreadFactoryProvider;
 import org.cache2k.core.concurrency.ThreadFactoryProvider;
 
+import org.cache2k.core.timing.DefaultTimer;
 import org.cache2k.core.timing.TimeAgnosticTiming;
+import org.cache2k.core.timing.Timer;
 import org.cache2k.core.timing.Timing;
 import org.cache2k.io.CacheLoader;
 import org.cache2k.operation.TimeReference;
@@ -169,6 +172,16 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   private volatile Executor refreshExecutor;
 
+  /** Maximum parallel loads in {@link #getAll(Iterable)} */
+  private final int getAllParallelism;
+
+  /** Limit for concurrent loads or {@code null} */
+  private final LoadLimiter loadLimiter;
+
+  /** Timer for the async load timeout or {@code null} */
+  private Timer loadTimeoutTimer;
+  private final long loadTimeoutMillis;
+
   /**
    * Create executor only if needed.
    */
@@ -203,6 +216,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
   private static final int BACKGROUND_REFRESH = 16;
   private static final int UPDATE_TIME_NEEDED = 32;
   private static final int RECORD_REFRESH_TIME = 64;
+  private static final int STALE_WHILE_REVALIDATE = 128;
 
   protected final boolean isKeepAfterExpired() {
     return (featureBits & KEEP_AFTER_EXPIRED) > 0;
@@ -216,6 +230,10 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   public final boolean isRefreshAhead() { return (featureBits & BACKGROUND_REFRESH) > 0; }
 
+  public final boolean isStaleWhileRevalidate() {
+    return (featureBits & STALE_WHILE_REVALIDATE) > 0;
+  }
+
   /**
    * No need to update the entry last modification time.
    * False, if no time dependent expiry calculations are done.
@@ -249,10 +267,13 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     keyType = cfg.getKeyType();
     name = cfg.getName();
     manager = (CacheManagerImpl) ctx.getCacheManager();
-    hash = createHashTable();
+    HashTableConfig hashTableConfig = cfg.getSections().getSection(HashTableConfig.class);
+    hash = createHashTable(hashTableConfig != null && hashTableConfig.isOpenAddressing());
     clock = ctx.getTimeReference();
     featureBits =
-      featureBit(KEEP_AFTER_EXPIRED, cfg.isKeepDataAfterExpired()) |
+      featureBit(KEEP_AFTER_EXPIRED,
+        cfg.isKeepDataAfterExpired() || cfg.isStaleWhileRevalidate()) |
+      featureBit(STALE_WHILE_REVALIDATE, cfg.isStaleWhileRevalidate()) |
       featureBit(REJECT_NULL_VALUES, !cfg.isPermitNullValues()) |
       featureBit(BACKGROUND_REFRESH, cfg.isRefreshAhead()) |
       featureBit(UPDATE_TIME_NEEDED, cfg.isRecordModificationTime()) |
@@ -282,8 +303,23 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
       }
     });
 
+    LoaderExecutorConfig loaderExecutorConfig =
+      cfg.getSections().getSection(LoaderExecutorConfig.class);
+    getAllParallelism = loaderExecutorConfig != null ?
+      loaderExecutorConfig.getGetAllParallelism() :
+      LoaderExecutorConfig.DEFAULT_GET_ALL_PARALLELISM;
+    LoadLimitConfig loadLimitConfig = cfg.getSections().getSection(LoadLimitConfig.class);
+    loadLimiter = loadLimitConfig != null ? new LoadLimiter(loadLimitConfig) : null;
+    LoadTimeoutConfig loadTimeoutConfig = cfg.getSections().getSection(LoadTimeoutConfig.class);
+    loadTimeoutMillis = loadTimeoutConfig != null ?
+      loadTimeoutConfig.getTimeout().toMillis() : 0;
     if (cfg.getLoaderExecutor() != null) {
       loaderExecutor = ctx.createCustomization(cfg.getLoaderExecutor());
+    } else if (loaderExecutorConfig != null && loaderExecutorConfig.isVirtualThreads()
+      && VirtualThreadExecutor.isSupported()) {
+      loaderExecutor = new VirtualThreadExecutor(
+        VirtualThreadExecutor.newVirtualThreadFactory(getThreadNamePrefix()),
+        loaderExecutorConfig.getMaxConcurrency());
     } else {
       if (cfg.getLoaderThreadCount() > 0) {
         loaderExecutor = provideDefaultLoaderExecutor(cfg.getLoaderThreadCount());
@@ -314,6 +350,30 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     }
   }
 
+  /**
+   * Timer for the async load timeout, if configured. Called after the timing is set.
+   * Uses the shared timer of the cache manager, if enabled, otherwise the timer of
+   * the timing. A separate timer is only started for lazy expiry or without expiry.
+   */
+  public void initLoadTimeoutTimer(InternalCacheBuildContext<K, V> ctx) {
+    if (loadTimeoutMillis == 0) {
+      return;
+    }
+    CacheManager mgr = ctx.getCacheManager();
+    if (mgr instanceof CacheManagerImpl &&
+      ((CacheManagerImpl) mgr).canUseSharedTimer(ctx.getConfig(), clock)) {
+      loadTimeoutTimer = ((CacheManagerImpl) mgr).createSharedTimerClient(
+        task -> task instanceof EntryAction.LoadTimeoutTask &&
+          ((EntryAction<?, ?, ?>.LoadTimeoutTask) task).getHeapCache() == this);
+    } else if (timing.getTimer() != null) {
+      loadTimeoutTimer = timing.getTimer();
+    } else {
+      long lagMillis = ctx.getConfig().getTimerLag() != null ?
+        ctx.getConfig().getTimerLag().toMillis() : TUNABLE.timerLagMillis;
+      loadTimeoutTimer = new DefaultTimer(clock, ctx.createScheduler(), lagMillis);
+    }
+  }
+
   @Override
   public String getName() {
     return name;
@@ -370,6 +430,9 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
   @Override
   public void cancelTimerJobs() {
     timing.cancelAll();
+    if (loadTimeoutTimer != null) {
+      loadTimeoutTimer.cancelAll();
+    }
   }
 
   @Override
@@ -404,6 +467,9 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     executeWithGlobalLock((Supplier<Void>) () -> {
       eviction.close(HeapCache.this);
       timing.close(HeapCache.this);
+      if (loadTimeoutTimer != null && loadTimeoutTimer != timing.getTimer()) {
+        loadTimeoutTimer.close(HeapCache.this);
+      }
       hash.close();
       closeCustomization(loader, "loader");
       for (CacheClosedListener s : cacheClosedListeners) {
@@ -513,7 +579,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   @Override
   public V get(K key) {
-    Entry<K, V> e = getEntryInternal(key);
+    Entry<K, V> e = getEntryInternal(key, true);
     if (e == null) {
       return null;
     }
@@ -573,15 +639,22 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   @Override
   public CacheEntry<K, V> getEntry(K key) {
-    return returnEntry(getEntryInternal(key));
+    return returnEntry(getEntryInternal(key, true));
   }
 
   protected Entry<K, V> getEntryInternal(K key) {
+    return getEntryInternal(key, false);
+  }
+
+  /**
+   * @param limitLoad apply the load limit, only for single entry requests
+   */
+  protected Entry<K, V> getEntryInternal(K key, boolean limitLoad) {
     int hc = spreadHash(key.hashCode());
-    return getEntryInternal(key, hc, toStoredHashCodeOrKey(key, hc));
+    return getEntryInternal(key, hc, toStoredHashCodeOrKey(key, hc), limitLoad);
   }
 
-  protected Entry<K, V> getEntryInternal(K key, int hc, int val) {
+  protected Entry<K, V> getEntryInternal(K key, int hc, int val, boolean limitLoad) {
     if (loader == null) {
       return peekEntryInternal(key, hc, val);
     }
@@ -592,6 +665,10 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
         return e;
       }
       synchronized (e) {
+        if (isStaleWhileRevalidate() && e.isValidOrExpiredAndNoException()
+          && revalidateEventually(e)) {
+          return e;
+        }
         e.waitForProcessing();
         if (e.hasFreshData(clock)) {
           return e;
@@ -605,17 +682,47 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
         break;
       }
     }
+    loadAndEnsureAbort(e, limitLoad);
+    if (e.getValueOrException() == null && isRejectNullValues()) {
+      return null;
+    }
+    return e;
+  }
+
+  private void loadAndEnsureAbort(Entry<K, V> e, boolean limitLoad) {
     boolean finished = false;
     try {
-      load(e);
+      load(e, limitLoad);
       finished = true;
     } finally {
       e.ensureAbort(finished);
     }
-    if (e.getValueOrException() == null && isRejectNullValues()) {
-      return null;
+  }
+
+  /**
+   * Entry has an expired value: Start a load via the loader executor, if no other
+   * processing is running, and return the expired value meanwhile.
+   * Called with the entry lock held.
+   *
+   * @return true, if the stale value should be returned. False, if the loader executor
+   *         rejected the load and the caller needs to load
+   */
+  private boolean revalidateEventually(Entry<K, V> e) {
+    if (e.isProcessing()) {
+      return true;
     }
-    return e;
+    e.startProcessing(Entry.ProcessingState.LOAD, null);
+    try {
+      loaderExecutor.execute(() -> {
+        try {
+          loadAndEnsureAbort(e, false);
+        } catch (CacheClosedException ignore) { }
+      });
+    } catch (RejectedExecutionException ex) {
+      e.processingDone();
+      return false;
+    }
+    return true;
   }
 
   protected void finishLoadOrEviction(Entry<K, V> e, long nextRefreshTime) {
@@ -791,7 +898,12 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   @Override
   public boolean containsKey(K key) {
-    Entry e = lookupEntry(key);
+    int hc = spreadHash(key.hashCode());
+    return containsKey(key, hc, toStoredHashCodeOrKey(key, hc));
+  }
+
+  protected final boolean containsKey(K key, int hc, int val) {
+    Entry e = lookupEntry(key, hc, val);
     if (e != null) {
       metrics.heapHitButNoRead();
       return e.hasFreshData(clock);
@@ -884,26 +996,58 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
 
   @Override
   public void put(K key, V value) {
+    int hc = spreadHash(key.hashCode());
+    put(key, hc, toStoredHashCodeOrKey(key, hc), value);
+  }
+
+  protected final void put(K key, int hc, int val, V value) {
     for (;;) {
-      Entry<K, V> e = lookupOrNewEntry(key);
-      synchronized (e) {
-        e.waitForProcessing();
-        if (e.isGone()) {
-          metrics.goneSpin();
-          continue;
-        }
-        if (!e.isVirgin()) {
-          metrics.heapHitButNoRead();
-        }
-        putValue(e, value);
+      Entry<K, V> e = lookupOrNewEntry(key, hc, val);
+      if (putValueIfNotGone(e, value)) {
+        return;
       }
-      return;
     }
   }
 
+  /**
+   * Put the value into the entry found or inserted by the lookup. Used by
+   * {@link LongHeapCache} after a lookup with the primitive key.
+   *
+   * @return false, if the entry is gone and the lookup needs to be repeated
+   */
+  protected final boolean putValueIfNotGone(Entry<K, V> e, V value) {
+    synchronized (e) {
+      e.waitForProcessing();
+      if (e.isGone()) {
+        metrics.goneSpin();
+        return false;
+      }
+      if (!e.isVirgin()) {
+        metrics.heapHitButNoRead();
+      }
+      putValue(e, value);
+    }
+    return true;
+  }
+
   @Override
   public boolean containsAndRemove(K key) {
-    Entry<K, V> e = lookupEntryNoHitRecord(key);
+    int hc = spreadHash(key.hashCode());
+    return containsAndRemove(key, hc, toStoredHashCodeOrKey(key, hc));
+  }
+
+  protected final boolean containsAndRemove(K key, int hc, int val) {
+    return containsAndRemoveEntry(lookupEntryNoHitRecord(key, hc, val));
+  }
+
+  /**
+   * Remove the entry found by the lookup. Used by {@link LongHeapCache} after a lookup
+   * with the primitive key.
+   *
+   * @param e the entry or {@code null} if the key is not present
+   * @return true, if the entry had fresh data
+   */
+  protected final boolean containsAndRemoveEntry(Entry<K, V> e) {
     if (e == null) {
       return false;
     }
@@ -1097,7 +1241,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     }
     boolean finished = false;
     try {
-      load(e);
+      load(e, false);
       finished = true;
     } finally {
       e.ensureAbort(finished);
@@ -1168,7 +1312,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
   }
 
   protected final Entry<K, V> lookupEntryNoHitRecord(K key, int hc, int val) {
-    return hash.lookup(toEntryKey(key), hc, val);
+    return hash.lookup(key, hc, val);
   }
 
   /**
@@ -1176,7 +1320,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
    * needs to be done under the same lock, to allow a check of the consistency.
    */
   protected Entry<K, V> insertNewEntry(K key, int hc, int val) {
-    Entry<K, V> e = new Entry<K, V>(toEntryKey(key), val);
+    Entry<K, V> e = newEntry(key, val);
     Entry<K, V> e2;
     eviction.evictEventuallyBeforeInsertOnSegment(hc);
     StampedLock l = hash.getSegmentLock(hc);
@@ -1240,8 +1384,14 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     }
   }
 
+  /**
+   * Load the value for the locked entry.
+   *
+   * @param limitLoad apply the load limit, if configured. Only true for single entry
+   *                  requests, so an expired value is served when the load is shed
+   */
   @SuppressWarnings("unchecked")
-  protected void load(Entry<K, V> e) {
+  protected void load(Entry<K, V> e, boolean limitLoad) {
     V v;
     long t0 = !isUpdateTimeNeeded() ? 0 : clock.millis();
     long refreshTime = t0;
@@ -1250,6 +1400,17 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
         return;
       }
     }
+    boolean permit = false;
+    if (limitLoad && loadLimiter != null) {
+      permit = loadLimiter.acquire(
+        !e.hasFreshData(clock) && e.isValidOrExpiredAndNoException(), metrics);
+      if (!permit) {
+        synchronized (e) {
+          e.processingDone();
+        }
+        return;
+      }
+    }
     try {
       checkLoaderPresent();
       if (e.isVirgin()) {
@@ -1258,6 +1419,9 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
         v = loader.load(keyObjFromEntry(e), t0, e);
       }
     } catch (Throwable ouch) {
+      if (permit) {
+        loadLimiter.release();
+      }
       long t = t0;
       if (!metrics.isDisabled() && isUpdateTimeNeeded()) {
         t = clock.millis();
@@ -1265,6 +1429,9 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
       loadGotException(e, t0, t, ouch);
       return;
     }
+    if (permit) {
+      loadLimiter.release();
+    }
     long t = t0;
     if (!metrics.isDisabled() && isUpdateTimeNeeded()) {
       t = clock.millis();
@@ -1442,7 +1609,15 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
   public void timerEventRefresh(Entry<K, V> e, Object task) {
     metrics.timerEvent();
     synchronized (e) {
-      if (e.getTask() != task) { return; }
+      if (e.getTask() != task || timing.rescheduleDeferredTimer(e, task)) { return; }
+      if (!timing.shouldRefresh(e, task)) {
+        expireOrScheduleFinalExpireEvent(e);
+        return;
+      }
+      if (timing.deferRefresh(e, task)) {
+        metrics.refreshDeferred();
+        return;
+      }
       try {
         refreshExecutor.execute(createFireAndForgetAction(e, Operations.SINGLETON.refresh));
       } catch (RejectedExecutionException ex) {
@@ -1480,7 +1655,7 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
   public void timerEventExpireEntry(Entry<K, V> e, Object task) {
     metrics.timerEvent();
     synchronized (e) {
-      if (e.getTask() != task) { return; }
+      if (e.getTask() != task || timing.rescheduleDeferredTimer(e, task)) { return; }
       expireOrScheduleFinalExpireEvent(e);
     }
   }
@@ -1553,12 +1728,31 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
    */
   public Map<K, V> getAll(Iterable<? extends K> inputKeys) {
     Map<K, Object> map = new HashMap<>();
+    if (loader == null || getAllParallelism <= 1) {
+      for (K k : inputKeys) {
+        Entry<K, V> e = getEntryInternal(k);
+        if (e != null) {
+          map.put(keyObjFromEntry(e), e.getValueOrException());
+        }
+      }
+      return convertValueMap(map);
+    }
+    Set<K> keysMissing = new HashSet<>();
     for (K k : inputKeys) {
-      Entry<K, V> e = getEntryInternal(k);
-      if (e != null) {
+      if (keysMissing.contains(k)) {
+        continue;
+      }
+      Entry<K, V> e = lookupEntryNoHitRecord(k);
+      if (e != null && e.hasFreshData(clock)) {
+        recordHit(e);
         map.put(keyObjFromEntry(e), e.getValueOrException());
+      } else {
+        keysMissing.add(k);
       }
     }
+    if (!keysMissing.isEmpty()) {
+      new ParallelGetAll<>(this, keysMissing, map).execute(loaderExecutor, getAllParallelism);
+    }
     return convertValueMap(map);
   }
 
@@ -1605,11 +1799,37 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     return new MyEntryAction<R>(op, key, e);
   }
 
+  @Override
+  protected <R> EntryAction<K, V, R> createEntryAction(
+    K key, Entry<K, V> e, Semantic<K, V, R> op, EntryAction.CompletedCallback<K, V, R> cb) {
+    return new MyEntryAction<R>(op, key, e, cb);
+  }
+
   @Override
   protected <R> MyEntryAction<R> createFireAndForgetAction(Entry<K, V> e, Semantic<K, V, R> op) {
     return new MyEntryAction<R>(op, e.getKey(), e, EntryAction.NOOP_CALLBACK);
   }
 
+  @Override
+  public HeapCache<K, V> getHeapCache() {
+    return this;
+  }
+
+  LoadLimiter getLoadLimiter() {
+    return loadLimiter;
+  }
+
+  /**
+   * Timer for the async load timeout, or {@code null} if no timeout is configured.
+   */
+  Timer getLoadTimeoutTimer() {
+    return loadTimeoutTimer;
+  }
+
+  long getLoadTimeoutMillis() {
+    return loadTimeoutMillis;
+  }
+
   @Override
   public Executor getExecutor() {
     return executor;
@@ -1814,6 +2034,15 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
     return hc;
   }
 
+  /**
+   * Create a new entry for inserting in the hash table.
+   *
+   * @param val the spreaded hash code or the integer key, see {@link #toStoredHashCodeOrKey}
+   */
+  protected Entry<K, V> newEntry(K key, int val) {
+    return new Entry<K, V>(toEntryKey(key), val);
+  }
+
   /**
    * The key object or null, for integer keyed caches
    */
@@ -1830,7 +2059,15 @@ public class HeapCache<K, V> extends BaseCache<K, V> implements HeapCacheForEvic
    */
   public K keyObjFromEntry(Entry<K, V> e) { return e.getKeyObj(); }
 
-  public StampedHash<K, V> createHashTable() {
+  /**
+   * Create the hash table.
+   *
+   * @param openAddressing use {@link OpenAddressingHash}, see {@link HashTableConfig}
+   */
+  public StampedHash<K, V> createHashTable(boolean openAddressing) {
+    if (openAddressing) {
+      return new OpenAddressingHash<K, V>(this);
+    }
     return new StampedHash<K, V>(this);
   }
 
@@ -20,20 +20,57 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.IntCache;
 import org.cache2k.core.api.InternalCacheBuildContext;
 
 /**
  * Overwrite methods so the integer value gets stored directly in the
  * {@code Entry.hashCode} field and {@code Entry.value} is set to null.
  *
+ * <p>The methods of {@link IntCache} pass {@code null} as key object, since the
+ * key is not needed for the lookup or for a new entry.
+ *
  * @author Jens Wilke
  */
-public class IntHeapCache<V> extends HeapCache<Integer, V> {
+public class IntHeapCache<V> extends HeapCache<Integer, V> implements IntCache<V> {
 
   public IntHeapCache(InternalCacheBuildContext<Integer, V> ctx) {
     super(ctx);
   }
 
+  @Override
+  public V get(int key) {
+    Entry<Integer, V> e = getEntryInternal(null, spreadHash(key), key, true);
+    if (e == null) {
+      return null;
+    }
+    return returnValue(e);
+  }
+
+  @Override
+  public V peek(int key) {
+    Entry<Integer, V> e = peekEntryInternal(null, spreadHash(key), key);
+    if (e != null) {
+      return returnValue(e);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean containsKey(int key) {
+    return containsKey(null, spreadHash(key), key);
+  }
+
+  @Override
+  public void put(int key, V value) {
+    put(null, spreadHash(key), key, value);
+  }
+
+  @Override
+  public void remove(int key) {
+    containsAndRemove(null, spreadHash(key), key);
+  }
+
   @Override
   public Integer toEntryKey(Integer key) {
     return null;
@@ -58,7 +95,20 @@ public class IntHeapCache<V> extends HeapCache<Integer, V> {
    * Modified hash table implementation. Rehash needs to calculate the correct hash code again.
    */
   @Override
-  public StampedHash<Integer, V> createHashTable() {
+  public StampedHash<Integer, V> createHashTable(boolean openAddressing) {
+    if (openAddressing) {
+      return new OpenAddressingHash<Integer, V>(this) {
+        @Override
+        protected int spreadedHashFromEntry(int hc) {
+          return spreadHash(hc);
+        }
+
+        @Override
+        protected boolean keyObjIsEqual(Integer key, Entry e) {
+          return true;
+        }
+      };
+    }
     return new StampedHash<Integer, V>(this) {
       @Override
       protected int spreadedHashFromEntry(int hc) {
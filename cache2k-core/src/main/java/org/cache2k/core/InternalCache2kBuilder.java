@@ -155,6 +155,14 @@ public class InternalCache2kBuilder<K, V> implements InternalCacheBuildContext<K
     return createCustomization(DefaultSchedulerProvider.INSTANCE);
   }
 
+  /**
+   * The time reference of the manager, if coarse time is enabled, or the system clock.
+   */
+  private TimeReference defaultTimeReference() {
+    TimeReference managerDefault = manager.getDefaultTimeReference();
+    return managerDefault != null ? managerDefault : TimeReference.DEFAULT;
+  }
+
   /**
    * Starting with 2.0 we don't send an entry with an exception to the loader.
    */
@@ -211,13 +219,17 @@ public class InternalCache2kBuilder<K, V> implements InternalCacheBuildContext<K
       config.getFeatures().stream().forEach(x -> x.enlist(this));
     }
     checkConfiguration();
-    clock = createCustomization(config.getTimeReference(), TimeReference.DEFAULT);
+    clock = config.getTimeReference() != null ?
+      createCustomization(config.getTimeReference()) : defaultTimeReference();
     executor = createCustomization(config.getExecutor(), buildContext -> ForkJoinPool.commonPool());
     HeapCache<K, V> bc;
     Class<?> keyType = config.getKeyType().getType();
     if (keyType == Integer.class) {
       bc = (HeapCache<K, V>)
         new IntHeapCache<V>((InternalCacheBuildContext<Integer, V>) this);
+    } else if (keyType == Long.class) {
+      bc = (HeapCache<K, V>)
+        new LongHeapCache<V>((InternalCacheBuildContext<Long, V>) this);
     } else {
       bc = new HeapCache<K, V>(this);
     }
@@ -228,6 +240,12 @@ public class InternalCache2kBuilder<K, V> implements InternalCacheBuildContext<K
           config.getAdvancedLoader() != null)) {
       throw new IllegalArgumentException("refresh ahead enabled, but no loader defined");
     }
+    if (config.isStaleWhileRevalidate() && !(
+          config.getAsyncLoader() != null ||
+          config.getLoader() != null ||
+          config.getAdvancedLoader() != null)) {
+      throw new IllegalArgumentException("stale while revalidate enabled, but no loader defined");
+    }
 
     CacheLoader<K, V> loader = createCustomization(config.getLoader());
     boolean wiredCache =
@@ -368,10 +386,12 @@ public class InternalCache2kBuilder<K, V> implements InternalCacheBuildContext<K
         this, bc, wc, config, Runtime.getRuntime().availableProcessors());
       Timing rh = Timing.of(this);
       bc.setTiming(rh);
+      bc.initLoadTimeoutTimer(this);
       wc.init();
     } else {
       Timing rh = Timing.of(this);
       bc.setTiming(rh);
+      bc.initLoadTimeoutTimer(this);
       bc.eviction = EVICTION_FACTORY.constructEviction(
         this, bc, InternalEvictionListener.NO_OPERATION, config,
         Runtime.getRuntime().availableProcessors());
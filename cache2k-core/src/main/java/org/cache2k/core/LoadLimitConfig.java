@@ -0,0 +1,171 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration section to limit the number of loads running concurrently, to protect
+ * the backend from overload. If present, loads above the limit either serve the stale value,
+ * wait in a bounded queue, or fail with a {@link LoadSheddingException}. The limit applies
+ * to loads of a {@link org.cache2k.io.CacheLoader} or
+ * {@link org.cache2k.io.AdvancedCacheLoader} started by {@link org.cache2k.Cache#get} or
+ * {@link org.cache2k.Cache#getEntry}. Refreshes, bulk operations like
+ * {@link org.cache2k.Cache#getAll} or {@link org.cache2k.Cache#reloadAll} and asynchronous
+ * loaders are not limited.
+ *
+ * <p>Example: {@code builder.with(LoadLimitConfig.class, b -> b.maxConcurrentLoads(20))}
+ *
+ * @author Jens Wilke
+ * @see org.cache2k.core.api.InternalCacheInfo#getLoadQueuedCount()
+ * @see org.cache2k.core.api.InternalCacheInfo#getLoadShedCount()
+ */
+public class LoadLimitConfig implements ConfigSection<LoadLimitConfig, LoadLimitConfig.Builder> {
+
+  private int maxConcurrentLoads = 100;
+  private int maxQueuedLoads = 1000;
+  private Duration maxWait = Duration.ofSeconds(10);
+  private boolean serveStale = true;
+
+  /**
+   * See {@link Builder#maxConcurrentLoads(int)}
+   */
+  public int getMaxConcurrentLoads() {
+    return maxConcurrentLoads;
+  }
+
+  /**
+   * See {@link Builder#maxConcurrentLoads(int)}
+   */
+  public void setMaxConcurrentLoads(int maxConcurrentLoads) {
+    this.maxConcurrentLoads = maxConcurrentLoads;
+  }
+
+  /**
+   * See {@link Builder#maxQueuedLoads(int)}
+   */
+  public int getMaxQueuedLoads() {
+    return maxQueuedLoads;
+  }
+
+  /**
+   * See {@link Builder#maxQueuedLoads(int)}
+   */
+  public void setMaxQueuedLoads(int maxQueuedLoads) {
+    this.maxQueuedLoads = maxQueuedLoads;
+  }
+
+  /**
+   * See {@link Builder#maxWait(long, TimeUnit)}
+   */
+  public Duration getMaxWait() {
+    return maxWait;
+  }
+
+  /**
+   * See {@link Builder#maxWait(long, TimeUnit)}
+   */
+  public void setMaxWait(Duration maxWait) {
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * See {@link Builder#serveStale(boolean)}
+   */
+  public boolean isServeStale() {
+    return serveStale;
+  }
+
+  /**
+   * See {@link Builder#serveStale(boolean)}
+   */
+  public void setServeStale(boolean serveStale) {
+    this.serveStale = serveStale;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, LoadLimitConfig> {
+
+    private final LoadLimitConfig config;
+
+    private Builder(LoadLimitConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Maximum number of loads running at the same time. The default is 100.
+     */
+    public Builder maxConcurrentLoads(int v) {
+      if (v <= 0) {
+        throw new IllegalArgumentException("max concurrent loads must be positive");
+      }
+      config.setMaxConcurrentLoads(v);
+      return this;
+    }
+
+    /**
+     * Maximum number of loads waiting for a running load to finish. If the queue is
+     * full, the load fails with a {@link LoadSheddingException}. The default is 1000.
+     * With 0 the load fails instantly when the limit is reached.
+     */
+    public Builder maxQueuedLoads(int v) {
+      if (v < 0) {
+        throw new IllegalArgumentException("max queued loads must not be negative");
+      }
+      config.setMaxQueuedLoads(v);
+      return this;
+    }
+
+    /**
+     * Maximum time a load waits in the queue. After that time the load fails with
+     * a {@link LoadSheddingException}. The default is 10 seconds.
+     */
+    public Builder maxWait(long v, TimeUnit unit) {
+      config.setMaxWait(Duration.ofMillis(unit.toMillis(v)));
+      return this;
+    }
+
+    /**
+     * If the limit is reached and the entry has an expired value, return the expired
+     * value instead of waiting. This needs {@link org.cache2k.Cache2kBuilder#keepDataAfterExpired}
+     * so the value is kept after expiry. The default is true.
+     */
+    public Builder serveStale(boolean f) {
+      config.setServeStale(f);
+      return this;
+    }
+
+    @Override
+    public LoadLimitConfig config() {
+      return config;
+    }
+
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.api.CommonMetrics;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the loads running concurrently, see {@link LoadLimitConfig}.
+ *
+ * @author Jens Wilke
+ */
+final class LoadLimiter {
+
+  private final Semaphore permits;
+  private final int maxQueued;
+  private final long maxWaitNanos;
+  private final boolean serveStale;
+  private final AtomicInteger queued = new AtomicInteger();
+
+  LoadLimiter(LoadLimitConfig cfg) {
+    permits = new Semaphore(cfg.getMaxConcurrentLoads());
+    maxQueued = cfg.getMaxQueuedLoads();
+    maxWaitNanos = cfg.getMaxWait().toNanos();
+    serveStale = cfg.isServeStale();
+  }
+
+  /**
+   * Acquire a permit for a load. If the limit is reached, serve the stale value,
+   * if available, or wait in the queue.
+   *
+   * @param staleAvailable the entry has an expired value that can be returned instead
+   * @return true, if a permit was acquired and needs to be released after the load,
+   *         false, if the stale value should be served
+   * @throws LoadSheddingException if the queue is full or the wait time is exceeded
+   */
+  boolean acquire(boolean staleAvailable, CommonMetrics.Updater metrics) {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    if (serveStale && staleAvailable) {
+      metrics.loadShed();
+      return false;
+    }
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      metrics.loadShed();
+      throw new LoadSheddingException("load limit reached, queue full");
+    }
+    metrics.loadQueued();
+    boolean acquired = false;
+    try {
+      acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      CacheOperationInterruptedException.propagate(ex);
+    } finally {
+      queued.decrementAndGet();
+    }
+    if (!acquired) {
+      metrics.loadShed();
+      throw new LoadSheddingException("load limit reached, waited too long in queue");
+    }
+    return true;
+  }
+
+  void release() {
+    permits.release();
+  }
+
+  /**
+   * Number of loads waiting for a permit.
+   */
+  int getQueuedCount() {
+    return queued.get();
+  }
+
+}
@@ -0,0 +1,94 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration section for a timeout of loads done by an
+ * {@link org.cache2k.io.AsyncCacheLoader}. If the loader does not call the callback
+ * within the timeout, the load fails with a {@link LoadTimeoutException}, so waiting
+ * requests are not blocked forever. The loader is notified via
+ * {@link org.cache2k.io.AsyncCacheLoader.Context#onCancel(Runnable)}, and later
+ * calls to the callback are ignored. The timeout is checked by a timer, so it may
+ * be exceeded by the timer lag. Loads of a synchronous loader cannot be interrupted
+ * and have no timeout.
+ *
+ * <p>Example: {@code builder.with(LoadTimeoutConfig.class, b -> b.timeout(5, TimeUnit.SECONDS))}
+ *
+ * @author Jens Wilke
+ */
+public class LoadTimeoutConfig
+  implements ConfigSection<LoadTimeoutConfig, LoadTimeoutConfig.Builder> {
+
+  private Duration timeout = Duration.ofSeconds(30);
+
+  /**
+   * See {@link Builder#timeout(long, TimeUnit)}
+   */
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * See {@link Builder#timeout(long, TimeUnit)}
+   */
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, LoadTimeoutConfig> {
+
+    private final LoadTimeoutConfig config;
+
+    private Builder(LoadTimeoutConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Maximum time from the start of the load until the loader calls the callback.
+     * The default is 30 seconds.
+     */
+    public Builder timeout(long v, TimeUnit unit) {
+      if (v <= 0) {
+        throw new IllegalArgumentException("load timeout must be positive");
+      }
+      config.setTimeout(Duration.ofMillis(unit.toMillis(v)));
+      return this;
+    }
+
+    @Override
+    public LoadTimeoutConfig config() {
+      return config;
+    }
+
+  }
+
+}
@@ -0,0 +1,38 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.CacheException;
+
+/**
+ * The asynchronous load did not complete within the configured time. The exception
+ * is treated like any other loader exception and passed to the resilience policy.
+ *
+ * @author Jens Wilke
+ * @see LoadTimeoutConfig
+ */
+public class LoadTimeoutException extends CacheException {
+
+  public LoadTimeoutException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,151 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+/**
+ * Configuration section for the default loader executor, which is used for loads
+ * and refreshes, if no executor is specified via
+ * {@link org.cache2k.Cache2kBuilder#loaderExecutor(java.util.concurrent.Executor)}.
+ *
+ * <p>Example: {@code builder.with(LoaderExecutorConfig.class, b -> b.virtualThreads(true))}
+ *
+ * @author Jens Wilke
+ */
+public class LoaderExecutorConfig
+  implements ConfigSection<LoaderExecutorConfig, LoaderExecutorConfig.Builder> {
+
+  /** Default for {@link Builder#getAllParallelism(int)} */
+  public static final int DEFAULT_GET_ALL_PARALLELISM = 1;
+
+  private boolean virtualThreads;
+  private int maxConcurrency = 100;
+  private int getAllParallelism = DEFAULT_GET_ALL_PARALLELISM;
+
+  /**
+   * See {@link Builder#virtualThreads(boolean)}
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * See {@link Builder#virtualThreads(boolean)}
+   */
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * See {@link Builder#maxConcurrency(int)}
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * See {@link Builder#maxConcurrency(int)}
+   */
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * See {@link Builder#getAllParallelism(int)}
+   */
+  public int getGetAllParallelism() {
+    return getAllParallelism;
+  }
+
+  /**
+   * See {@link Builder#getAllParallelism(int)}
+   */
+  public void setGetAllParallelism(int getAllParallelism) {
+    this.getAllParallelism = getAllParallelism;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, LoaderExecutorConfig> {
+
+    private final LoaderExecutorConfig config;
+
+    private Builder(LoaderExecutorConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Run loads and refreshes in virtual threads, if supported by the JDK. The number
+     * of concurrent loads is limited by {@link #maxConcurrency(int)} instead of a thread
+     * pool size. On a JDK without virtual threads the default thread pool is used and
+     * the setting has no effect.
+     */
+    public Builder virtualThreads(boolean f) {
+      config.setVirtualThreads(f);
+      return this;
+    }
+
+    /**
+     * Maximum number of loads and refreshes running concurrently in virtual threads, to
+     * protect the backend. Additional tasks wait for a running load to finish.
+     * Default is 100. The setting {@link org.cache2k.Cache2kBuilder#loaderThreadCount(int)}
+     * is not used with virtual threads.
+     */
+    public Builder maxConcurrency(int v) {
+      if (v <= 0) {
+        throw new IllegalArgumentException("max concurrency must be positive");
+      }
+      config.setMaxConcurrency(v);
+      return this;
+    }
+
+    /**
+     * Maximum number of loads running in parallel for one call of
+     * {@link org.cache2k.Cache#getAll(Iterable)}, including the calling thread. The
+     * additional loads run in the loader executor. If the executor rejects a task,
+     * the calling thread does the remaining loads. A value of 1 loads the keys one
+     * after another in the calling thread. The default is 1.
+     *
+     * <p>With a value above 1 the loader is called from executor threads, so a loader
+     * depending on state bound to the calling thread, e.g. a transaction, logging MDC or
+     * security context, does not see it for all keys.
+     */
+    public Builder getAllParallelism(int v) {
+      if (v <= 0) {
+        throw new IllegalArgumentException("parallelism must be positive");
+      }
+      config.setGetAllParallelism(v);
+      return this;
+    }
+
+    @Override
+    public LoaderExecutorConfig config() {
+      return config;
+    }
+
+  }
+
+}
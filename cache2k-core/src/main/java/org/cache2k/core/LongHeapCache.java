@@ -0,0 +1,161 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.LongCache;
+import org.cache2k.core.api.InternalCacheBuildContext;
+
+/**
+ * Overwrite methods so the long key gets stored directly in the entry and
+ * no key object is kept. The {@code Entry.hashCode} field contains the spreaded
+ * hash code of the key, like for other key types.
+ *
+ * <p>The methods of {@link LongCache} do the lookup with the primitive key. If
+ * a new entry needs to be inserted or loaded the method with the boxed key is used.
+ *
+ * @author Jens Wilke
+ */
+public class LongHeapCache<V> extends HeapCache<Long, V> implements LongCache<V> {
+
+  public LongHeapCache(InternalCacheBuildContext<Long, V> ctx) {
+    super(ctx);
+  }
+
+  private Entry<Long, V> lookupNoHitRecord(long key) {
+    int hc = spreadHash(Long.hashCode(key));
+    return hash.lookup(null, key, hc, hc);
+  }
+
+  @Override
+  public V get(long key) {
+    Entry<Long, V> e = lookupNoHitRecord(key);
+    if (e != null && e.hasFreshData(clock)) {
+      recordHit(e);
+      return returnValue(e);
+    }
+    return get((Long) key);
+  }
+
+  @Override
+  public V peek(long key) {
+    Entry<Long, V> e = lookupNoHitRecord(key);
+    if (e == null) {
+      metrics.peekMiss();
+      return null;
+    }
+    recordHit(e);
+    if (e.hasFreshData(clock)) {
+      return returnValue(e);
+    }
+    metrics.peekHitNotFresh();
+    return null;
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    Entry<Long, V> e = lookupNoHitRecord(key);
+    if (e != null) {
+      recordHit(e);
+      metrics.heapHitButNoRead();
+      return e.hasFreshData(clock);
+    }
+    return false;
+  }
+
+  @Override
+  public void put(long key, V value) {
+    Entry<Long, V> e = lookupNoHitRecord(key);
+    if (e != null) {
+      recordHit(e);
+      if (putValueIfNotGone(e, value)) {
+        return;
+      }
+    }
+    put((Long) key, value);
+  }
+
+  @Override
+  public void remove(long key) {
+    containsAndRemoveEntry(lookupNoHitRecord(key));
+  }
+
+  @Override
+  protected Entry<Long, V> newEntry(Long key, int val) {
+    return new LongEntry<V>(key, val);
+  }
+
+  @Override
+  public Long keyObjFromEntry(Entry<Long, V> e) {
+    return ((LongEntry<V>) e).longKey;
+  }
+
+  /**
+   * Modified hash table implementation. The keys are compared via the long value
+   * stored in the entry. The lookup uses the primitive key, if no key object is passed.
+   */
+  @Override
+  public StampedHash<Long, V> createHashTable(boolean openAddressing) {
+    if (openAddressing) {
+      return new OpenAddressingHash<Long, V>(this) {
+        @Override
+        protected boolean keyIsEqual(Long key, long longKey, Entry e) {
+          return ((LongEntry) e).longKey == (key != null ? key : longKey);
+        }
+
+        @Override
+        protected boolean keyIsEqual(Entry<Long, V> e, Entry<Long, V> f) {
+          return ((LongEntry) e).longKey == ((LongEntry) f).longKey;
+        }
+      };
+    }
+    return new StampedHash<Long, V>(this) {
+      @Override
+      protected boolean keyIsEqual(Long key, long longKey, Entry e) {
+        return ((LongEntry) e).longKey == (key != null ? key : longKey);
+      }
+
+      @Override
+      protected boolean keyIsEqual(Entry<Long, V> e, Entry<Long, V> f) {
+        return ((LongEntry) e).longKey == ((LongEntry) f).longKey;
+      }
+    };
+  }
+
+  /**
+   * Entry with the key as primitive long value. The key object reference is {@code null}.
+   */
+  static final class LongEntry<V> extends Entry<Long, V> {
+
+    final long longKey;
+
+    LongEntry(long longKey, int hashCode) {
+      super(null, hashCode);
+      this.longKey = longKey;
+    }
+
+    @Override
+    public Long getKey() {
+      return longKey;
+    }
+
+  }
+
+}
@@ -0,0 +1,436 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.api.InternalCache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Hash table with open addressing and a packed array of hash fingerprints. The
+ * segment locks and the optimistic read protocol are inherited from {@link StampedHash}.
+ *
+ * <p>Layout: The table is divided into one contiguous region per lock segment and
+ * collisions are resolved by linear probing within the region. A parallel {@code int}
+ * array holds a fingerprint of the stored hash code for every slot, so a miss and
+ * most of the mismatching keys are detected without reading the entry.
+ *
+ * <p>Removal: A removed slot is marked as deleted and is reused by later inserts.
+ * Entries are never moved within the table, so a concurrent iteration sees all entries
+ * that are present during the whole iteration. The table is rebuilt with all segments
+ * locked when a segment reaches its fill limit, including deleted slots.
+ *
+ * <p>Overflow: Expansion is checked after the segment lock is released. Concurrent inserts
+ * may fill up a segment before it is expanded. In this case the entry is chained via
+ * {@link Entry#another} to the entry at its home slot, which is marked as chained.
+ *
+ * @author Jens Wilke
+ */
+@SuppressWarnings({"WeakerAccess", "rawtypes"})
+public class OpenAddressingHash<K, V> extends StampedHash<K, V> {
+
+  /**
+   * Minimum number of slots of a segment.
+   */
+  private static final int MINIMUM_SEGMENT_SIZE = 8;
+
+  /**
+   * Fill percentage limit, including deleted slots. When this is reached the
+   * table will get expanded or cleaned up.
+   */
+  private static final int LOAD_PERCENT = 50;
+
+  private static final int EMPTY = 0;
+  private static final int DELETED = 1;
+  private static final int CHAINED = 2;
+
+  /*
+   * The fields are initialized by initTable(), which is called from the
+   * super class initializer. No field initializers here.
+   */
+
+  private int[] fingerprints;
+  private Entry<K, V>[] slots;
+
+  /**
+   * Number of deleted slots per segment. Guarded by the segment lock.
+   */
+  private long[] segmentDeleted;
+
+  /**
+   * @param cache Cache reference only needed for the cache name in case of an exception
+   */
+  public OpenAddressingHash(InternalCache<?, ?> cache) {
+    this(cache.getQualifiedName());
+  }
+
+  public OpenAddressingHash(String qualifiedCacheName) {
+    super(qualifiedCacheName, false);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  void initTable() {
+    int len = LOCK_SEGMENTS * MINIMUM_SEGMENT_SIZE;
+    fingerprints = new int[len];
+    slots = new Entry[len];
+    segmentDeleted = new long[LOCK_SEGMENTS];
+    calcMaxFill();
+  }
+
+  /**
+   * Fingerprint of the stored hash code. Values colliding with the slot markers
+   * are mapped to another value.
+   */
+  private static int fingerprint(int keyValue) {
+    return keyValue >= EMPTY && keyValue <= CHAINED ? CHAINED + 1 : keyValue;
+  }
+
+  @Override
+  public long getEntryCapacity() {
+    return slots.length * 1L * LOAD_PERCENT / 100;
+  }
+
+  /**
+   * Lookup the entry in the hash table and return it. First tries an optimistic read.
+   * The loop over the segment is bounded, so an inconsistent table seen by the optimistic
+   * read cannot lead to an endless loop.
+   */
+  @Override
+  public Entry<K, V> lookup(K key, long longKey, int hash, int keyValue) {
+    StampedLock l = getSegmentLock(hash);
+    long stamp = l.tryOptimisticRead();
+    int[] fps = fingerprints;
+    Entry<K, V>[] tab = slots;
+    if (tab == null) {
+      throw new CacheClosedException(qualifiedCacheName);
+    }
+    if (fps.length == tab.length) {
+      Entry<K, V> e = find(fps, tab, key, longKey, hash, keyValue);
+      if (l.validate(stamp)) {
+        return e;
+      }
+    }
+    stamp = l.readLock();
+    try {
+      fps = fingerprints;
+      tab = slots;
+      if (tab == null) {
+        throw new CacheClosedException(qualifiedCacheName);
+      }
+      return find(fps, tab, key, longKey, hash, keyValue);
+    } finally {
+      l.unlockRead(stamp);
+    }
+  }
+
+  private Entry<K, V> find(int[] fps, Entry<K, V>[] tab,
+                           K key, long longKey, int hash, int keyValue) {
+    int regionSize = tab.length >>> LOCK_SHIFT;
+    int mask = regionSize - 1;
+    int base = (hash & LOCK_MASK) * regionSize;
+    int pos = (hash >>> LOCK_SHIFT) & mask;
+    int fp = fingerprint(keyValue);
+    Entry<K, V> e;
+    for (int n = 0; n < regionSize; n++) {
+      int i = base + pos;
+      int f = fps[i];
+      if (f == EMPTY) {
+        return null;
+      }
+      if (f == fp) {
+        e = tab[i];
+        if (e != null && e.hashCode == keyValue && keyIsEqual(key, longKey, e)) {
+          return e;
+        }
+      } else if (f == CHAINED) {
+        e = tab[i];
+        while (e != null) {
+          if (e.hashCode == keyValue && keyIsEqual(key, longKey, e)) {
+            return e;
+          }
+          e = e.another;
+        }
+      }
+      pos = (pos + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Insert an entry. Checks if an entry already exists.
+   */
+  @Override
+  public Entry<K, V> insertWithinLock(Entry<K, V> e, int hash, int keyValue) {
+    int[] fps = fingerprints;
+    Entry<K, V>[] tab = slots;
+    if (tab == null) {
+      throw new CacheClosedException(qualifiedCacheName);
+    }
+    int si = hash & LOCK_MASK;
+    int regionSize = tab.length >>> LOCK_SHIFT;
+    int mask = regionSize - 1;
+    int base = si * regionSize;
+    int home = (hash >>> LOCK_SHIFT) & mask;
+    int pos = home;
+    int fp = fingerprint(keyValue);
+    int free = -1;
+    Entry<K, V> f;
+    for (int n = 0; n < regionSize; n++) {
+      int i = base + pos;
+      int v = fps[i];
+      if (v == EMPTY) {
+        if (free < 0) {
+          free = i;
+        }
+        break;
+      }
+      if (v == DELETED) {
+        if (free < 0) {
+          free = i;
+        }
+      } else if (v == fp || v == CHAINED) {
+        f = tab[i];
+        while (f != null) {
+          if (f.hashCode == keyValue && keyIsEqual(e, f)) {
+            return f;
+          }
+          f = f.another;
+        }
+      }
+      pos = (pos + 1) & mask;
+    }
+    if (free < 0) {
+      int i = base + home;
+      e.another = tab[i];
+      tab[i] = e;
+      fps[i] = CHAINED;
+    } else {
+      if (fps[free] == DELETED) {
+        segmentDeleted[si]--;
+      }
+      e.another = null;
+      tab[free] = e;
+      fps[free] = fp;
+    }
+    segmentSize[si]++;
+    return e;
+  }
+
+  /**
+   * Checks whether the segment including deleted slots is full and rebuilds the
+   * table. No lock may be hold when calling this method.
+   */
+  @Override
+  public void checkExpand(int hash) {
+    int si = hash & LOCK_MASK;
+    if (segmentSize[si] + segmentDeleted[si] > getSegmentMaxFill()) {
+      runTotalLocked(() -> {
+        if (slots != null && segmentSize[si] + segmentDeleted[si] > getSegmentMaxFill()) {
+          rebuild(segmentSize[si] * 2 > getSegmentMaxFill());
+        }
+        return null;
+      });
+    }
+  }
+
+  @Override
+  public boolean remove(Entry<K, V> e) {
+    int hash = spreadedHashFromEntry(e.hashCode);
+    StampedLock l = getSegmentLock(hash);
+    long stamp = l.writeLock();
+    try {
+      return removeWithinLock(e, hash);
+    } finally {
+      l.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean removeWithinLock(Entry<K, V> e, int hash) {
+    int[] fps = fingerprints;
+    Entry<K, V>[] tab = slots;
+    if (tab == null) {
+      throw new CacheClosedException(qualifiedCacheName);
+    }
+    int si = hash & LOCK_MASK;
+    int regionSize = tab.length >>> LOCK_SHIFT;
+    int mask = regionSize - 1;
+    int base = si * regionSize;
+    int pos = (hash >>> LOCK_SHIFT) & mask;
+    for (int n = 0; n < regionSize; n++) {
+      int i = base + pos;
+      int v = fps[i];
+      if (v == EMPTY) {
+        return false;
+      }
+      if (v == CHAINED) {
+        if (removeFromChain(fps, tab, i, e)) {
+          segmentSize[si]--;
+          return true;
+        }
+      } else if (tab[i] == e) {
+        tab[i] = null;
+        fps[i] = DELETED;
+        segmentDeleted[si]++;
+        segmentSize[si]--;
+        clearDeletedBefore(fps, si, base, mask, pos);
+        return true;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Unlink the entry from the chain. If only one entry is left, the slot gets a
+   * normal fingerprint again.
+   */
+  private boolean removeFromChain(int[] fps, Entry<K, V>[] tab, int i, Entry<K, V> e) {
+    Entry<K, V> f = tab[i];
+    if (f == e) {
+      tab[i] = f = f.another;
+    } else {
+      for (;;) {
+        Entry<K, V> another = f.another;
+        if (another == null) {
+          return false;
+        }
+        if (another == e) {
+          f.another = another.another;
+          break;
+        }
+        f = another;
+      }
+      f = tab[i];
+    }
+    if (f.another == null) {
+      fps[i] = fingerprint(f.hashCode);
+    }
+    return true;
+  }
+
+  /**
+   * A deleted slot followed by an empty slot is not part of any probe sequence and
+   * can be marked empty. Continue backwards with the preceding deleted slots.
+   */
+  private void clearDeletedBefore(int[] fps, int si, int base, int mask, int pos) {
+    while (fps[base + ((pos + 1) & mask)] == EMPTY && fps[base + pos] == DELETED) {
+      fps[base + pos] = EMPTY;
+      segmentDeleted[si]--;
+      pos = (pos - 1) & mask;
+    }
+  }
+
+  /**
+   * Double the hash table size and rehash the entries. Assumes total lock.
+   */
+  @Override
+  void rehash() {
+    rebuild(true);
+  }
+
+  /**
+   * Build a new table and insert all entries. Removes deleted slots and overflow chains.
+   * Assumes total lock.
+   *
+   * <p>A segment may hold more entries than its region, if entries were added to overflow
+   * chains. The table is doubled until the largest segment is below the maximum fill,
+   * otherwise the probing for a free slot would not terminate.
+   *
+   * @param expand double the table size, otherwise only clean up
+   */
+  @SuppressWarnings("unchecked")
+  private void rebuild(boolean expand) {
+    Entry<K, V>[] src = slots;
+    if (src == null) {
+      throw new CacheClosedException(qualifiedCacheName);
+    }
+    int len = expand ? src.length * 2 : src.length;
+    long largestSegment = 0;
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      largestSegment = Math.max(largestSegment, segmentSize[si]);
+    }
+    while (largestSegment > len * 1L * LOAD_PERCENT / 100 / LOCK_SEGMENTS) {
+      len *= 2;
+    }
+    int[] fps = new int[len];
+    Entry<K, V>[] tab = new Entry[len];
+    int regionSize = len >>> LOCK_SHIFT;
+    int mask = regionSize - 1;
+    for (Entry<K, V> e : src) {
+      while (e != null) {
+        Entry<K, V> next = e.another;
+        int hash = spreadedHashFromEntry(e.hashCode);
+        int base = (hash & LOCK_MASK) * regionSize;
+        int pos = (hash >>> LOCK_SHIFT) & mask;
+        while (fps[base + pos] != EMPTY) {
+          pos = (pos + 1) & mask;
+        }
+        e.another = null;
+        tab[base + pos] = e;
+        fps[base + pos] = fingerprint(e.hashCode);
+        e = next;
+      }
+    }
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      segmentDeleted[si] = 0;
+    }
+    fingerprints = fps;
+    slots = tab;
+    calcMaxFill();
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    fingerprints = null;
+    slots = null;
+  }
+
+  /**
+   * Count the entries in the hash table, by scanning through the hash table.
+   * This is used for integrity checks.
+   */
+  @Override
+  public long calcEntryCount() {
+    long count = 0;
+    if (slots == null) {
+      return count;
+    }
+    for (Entry e : slots) {
+      while (e != null) {
+        count++;
+        e = e.another;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Slot array used by the iterator. Empty and deleted slots contain {@code null}.
+   */
+  @Override
+  public Entry<K, V>[] getEntries() {
+    return slots;
+  }
+
+}
@@ -0,0 +1,135 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.CacheException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the loads of {@link HeapCache#getAll(Iterable)} in parallel. The keys are
+ * processed by the calling thread and by additional workers in the loader executor.
+ * A worker that starts after the calling thread finished does nothing, so the
+ * calling thread never waits for a worker queued in a saturated executor.
+ * The first exception stops the processing and is rethrown, like in the
+ * sequential version.
+ *
+ * @author Jens Wilke
+ */
+final class ParallelGetAll<K, V> implements Runnable {
+
+  private final HeapCache<K, V> cache;
+  private final Queue<K> keys;
+  /** Result values or exceptions, guarded by itself */
+  private final Map<K, Object> result;
+  /** Number of workers running, guarded by this */
+  private int active;
+  /** Calling thread is done, guarded by this */
+  private boolean done;
+  /** First exception, guarded by this */
+  private Throwable exception;
+
+  ParallelGetAll(HeapCache<K, V> cache, Collection<K> keys, Map<K, Object> result) {
+    this.cache = cache;
+    this.keys = new ConcurrentLinkedQueue<>(keys);
+    this.result = result;
+  }
+
+  /**
+   * Start workers and process keys in the calling thread. Returns after all
+   * keys are processed.
+   */
+  void execute(Executor executor, int parallelism) {
+    int workers = Math.min(parallelism, keys.size()) - 1;
+    for (int i = 0; i < workers; i++) {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException ex) {
+        break;
+      }
+    }
+    process();
+    synchronized (this) {
+      done = true;
+      while (active > 0) {
+        try {
+          wait();
+        } catch (InterruptedException ex) {
+          CacheOperationInterruptedException.propagate(ex);
+        }
+      }
+      if (exception != null) {
+        if (exception instanceof RuntimeException) {
+          throw (RuntimeException) exception;
+        } else if (exception instanceof Error) {
+          throw (Error) exception;
+        }
+        throw new CacheException(exception);
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      active++;
+    }
+    try {
+      process();
+    } finally {
+      synchronized (this) {
+        active--;
+        notifyAll();
+      }
+    }
+  }
+
+  private void process() {
+    K key;
+    while ((key = keys.poll()) != null) {
+      try {
+        Entry<K, V> e = cache.getEntryInternal(key);
+        if (e != null) {
+          synchronized (result) {
+            result.put(cache.keyObjFromEntry(e), e.getValueOrException());
+          }
+        }
+      } catch (Throwable t) {
+        synchronized (this) {
+          if (exception == null) {
+            exception = t;
+          }
+        }
+        keys.clear();
+        return;
+      }
+    }
+  }
+
+}
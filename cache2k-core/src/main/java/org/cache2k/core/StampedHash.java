@@ -21,7 +21,10 @@ package org.cache2k.core;
  */
 
 import org.cache2k.core.api.InternalCache;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
 
+import java.util.Arrays;
 import java.util.concurrent.locks.StampedLock;
 import java.util.function.Supplier;
 
@@ -29,6 +32,15 @@ import java.util.function.Supplier;
  * Simple concurrent hash table implementation using optimistic locking
  * via StampedLock for the segments locks.
  *
+ * <p>Expansion: The table index of a hash code always contains the lock segment bits,
+ * so every bucket and both of its target buckets in the doubled table belong to the
+ * same segment. This allows the incremental expansion: After the new table is allocated,
+ * the buckets are moved segment by segment in small steps by inserting threads, while
+ * holding only the lock of the segment. A moved bucket is replaced by a
+ * {@link ForwardingEntry} that links to the new table. When all segments are moved the
+ * new table is made the current table. Only starting and finishing the expansion need
+ * to lock all segments, which is independent of the table size.
+ *
  * @author Jens Wilke
  */
 @SuppressWarnings({"WeakerAccess", "rawtypes"})
@@ -46,14 +58,18 @@ public class StampedHash<K, V> {
    */
   private static final int HASH_LOAD_PERCENT = 64;
 
-  private static final int LOCK_SEGMENTS;
-  private static final int LOCK_MASK;
+  static final int LOCK_SEGMENTS;
+  static final int LOCK_MASK;
+  static final int LOCK_SHIFT;
+
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
 
   /* GraalVM: This runs at runtime, see native-image.properties */
   static {
     int ncpu = Runtime.getRuntime().availableProcessors();
     LOCK_SEGMENTS = 2 << (31 - Integer.numberOfLeadingZeros(ncpu));
     LOCK_MASK = LOCK_SEGMENTS - 1;
+    LOCK_SHIFT = Integer.numberOfTrailingZeros(LOCK_SEGMENTS);
   }
 
   /**
@@ -72,20 +88,45 @@ public class StampedHash<K, V> {
 
   private Entry<K, V>[] entries;
   private final StampedLock[] locks;
-  private final long[] segmentSize;
+  final long[] segmentSize;
+
+  /**
+   * Target table of a running expansion or {@code null}. Changed with all segments locked.
+   */
+  private Entry<K, V>[] nextEntries;
+
+  /**
+   * Placed in the current table for buckets that are moved to the target table.
+   * Changed together with {@link #nextEntries}.
+   */
+  private ForwardingEntry<K, V> forwarding;
+
+  /**
+   * Number of buckets per segment that are moved to the target table.
+   * Guarded by the segment lock.
+   */
+  private final int[] transferIndex;
+
+  /** Expand in small steps, instead of rehashing the whole table at once */
+  private final boolean incrementalExpansion;
 
   /** Cache name, only used for CacheClosedException */
-  private final String qualifiedCacheName;
+  final String qualifiedCacheName;
 
   /**
    * @param cache Cache reference only needed for the cache name in case of an exception
    */
   public StampedHash(InternalCache<?, ?> cache) {
-    qualifiedCacheName = cache.getQualifiedName();
+    this(cache.getQualifiedName());
   }
 
   public StampedHash(String qualifiedCacheName) {
+    this(qualifiedCacheName, TUNABLE.incrementalExpansion);
+  }
+
+  StampedHash(String qualifiedCacheName, boolean incrementalExpansion) {
     this.qualifiedCacheName = qualifiedCacheName;
+    this.incrementalExpansion = incrementalExpansion;
   }
 
   {
@@ -94,13 +135,19 @@ public class StampedHash<K, V> {
       locks[i] = new StampedLock();
     }
     segmentSize = new long[LOCK_SEGMENTS];
-    initArray();
+    transferIndex = new int[LOCK_SEGMENTS];
+    initTable();
   }
 
+  /**
+   * Allocate the initial table. Called from the initializer and when cleared.
+   */
   @SuppressWarnings("unchecked")
-  private void initArray() {
+  void initTable() {
     int len = Math.max(INITIAL_HASH_SIZE, LOCK_SEGMENTS * 4);
     entries = new Entry[len];
+    nextEntries = null;
+    forwarding = null;
     calcMaxFill();
   }
 
@@ -113,7 +160,7 @@ public class StampedHash<K, V> {
     return segmentMaxFill;
   }
 
-  private void calcMaxFill() {
+  void calcMaxFill() {
     segmentMaxFill = getEntryCapacity() / LOCK_SEGMENTS;
   }
 
@@ -121,6 +168,17 @@ public class StampedHash<K, V> {
    * Lookup the entry in the hash table and return it. First tries an optimistic read.
    */
   public Entry<K, V> lookup(K key, int hash, int keyValue) {
+    return lookup(key, 0, hash, keyValue);
+  }
+
+  /**
+   * Lookup the entry in the hash table and return it. First tries an optimistic read.
+   *
+   * @param key the key object, {@code null} if the key is stored in the entry
+   * @param longKey the primitive key if the cache stores long keys in the entry,
+   *                see {@link LongHeapCache}, otherwise ignored
+   */
+  public Entry<K, V> lookup(K key, long longKey, int hash, int keyValue) {
     StampedLock[] locks = this.locks;
     int si = hash & LOCK_MASK;
     StampedLock l = locks[si];
@@ -134,12 +192,15 @@ public class StampedHash<K, V> {
     int mask = n - 1;
     int idx = hash & (mask);
     e = tab[idx];
+    if (e instanceof ForwardingEntry) {
+      e = ((ForwardingEntry<K, V>) e).lookupBucket(hash);
+    }
     for (;;) {
       if (e == null) {
         if (l.validate(stamp)) { return null; }
         break;
       }
-      if (e.hashCode == keyValue && keyObjIsEqual(key, e)) {
+      if (e.hashCode == keyValue && keyIsEqual(key, longKey, e)) {
         return e;
       }
       e = e.another;
@@ -154,8 +215,11 @@ public class StampedHash<K, V> {
       mask = n - 1;
       idx = hash & (mask);
       e = tab[idx];
+      if (e instanceof ForwardingEntry) {
+        e = ((ForwardingEntry<K, V>) e).lookupBucket(hash);
+      }
       while (e != null) {
-        if (e.hashCode == keyValue && (keyObjIsEqual(key, e))) {
+        if (e.hashCode == keyValue && keyIsEqual(key, longKey, e)) {
           return e;
         }
         e = e.another;
@@ -171,22 +235,45 @@ public class StampedHash<K, V> {
     return (ek = e.getKeyObj()) == key || (ek.equals(key));
   }
 
+  /**
+   * True if the entry has the requested key. Only called if the stored hash code is equal.
+   */
+  protected boolean keyIsEqual(K key, long longKey, Entry e) {
+    return keyObjIsEqual(key, e);
+  }
+
+  /**
+   * True if both entries have the same key. Only called if the stored hash codes are equal.
+   */
+  protected boolean keyIsEqual(Entry<K, V> e, Entry<K, V> f) {
+    Object ek;
+    K key = e.getKeyObj();
+    return (ek = f.getKeyObj()) == key || (ek.equals(key));
+  }
+
 
 
   /**
    * Insert an entry. Checks if an entry already exists.
    */
   public Entry<K, V> insertWithinLock(Entry<K, V> e, int hash, int keyValue) {
-    K key = e.getKeyObj();
     int si = hash & LOCK_MASK;
-    Entry<K, V> f; Object ek; Entry<K, V>[] tab = entries;
+    Entry<K, V> f; Entry<K, V>[] tab = entries;
     if (tab == null) {
       throw new CacheClosedException(qualifiedCacheName);
     }
+    if (nextEntries != null) {
+      transferStep(si);
+    }
     int n = tab.length, mask = n - 1, idx = hash & (mask);
     f = tab[idx];
+    if (f instanceof ForwardingEntry) {
+      tab = ((ForwardingEntry<K, V>) f).table;
+      idx = hash & (tab.length - 1);
+      f = tab[idx];
+    }
     while (f != null) {
-      if (f.hashCode == keyValue && ((ek = f.getKeyObj()) == key || (ek.equals(key)))) {
+      if (f.hashCode == keyValue && keyIsEqual(e, f)) {
         return f;
       }
       f = f.another;
@@ -207,6 +294,10 @@ public class StampedHash<K, V> {
    */
   public void checkExpand(int hash) {
     int si = hash & LOCK_MASK;
+    if (nextEntries != null) {
+      helpExpansion(si);
+      return;
+    }
     long size = segmentSize[si];
     if (size > segmentMaxFill) {
       eventuallyExpand(si);
@@ -233,36 +324,30 @@ public class StampedHash<K, V> {
       if (tab == null) {
         throw new CacheClosedException(qualifiedCacheName);
       }
-      int n = tab.length, mask = n - 1, idx = hash & (mask);
-      f = tab[idx];
-      if (f == e) {
-        tab[idx] = f.another;
-        segmentSize[si]--;
-        return true;
-      }
-      while (f != null) {
-        Entry<K, V> another = f.another;
-        if (another == e) {
-          f.another = another.another;
-          segmentSize[si]--;
-          return true;
-        }
-        f = another;
-      }
+      return removeFromTable(tab, e, hash, si);
     } finally {
       l.unlockWrite(stamp);
     }
-    return false;
   }
 
   public boolean removeWithinLock(Entry<K, V> e, int hash) {
     int si = hash & LOCK_MASK;
-    Entry<K, V> f; Entry<K, V>[] tab = entries;
+    Entry<K, V>[] tab = entries;
     if (tab == null) {
       throw new CacheClosedException(qualifiedCacheName);
     }
+    return removeFromTable(tab, e, hash, si);
+  }
+
+  private boolean removeFromTable(Entry<K, V>[] tab, Entry<K, V> e, int hash, int si) {
+    Entry<K, V> f;
     int n = tab.length, mask = n - 1, idx = hash & (mask);
     f = tab[idx];
+    if (f instanceof ForwardingEntry) {
+      tab = ((ForwardingEntry<K, V>) f).table;
+      idx = hash & (tab.length - 1);
+      f = tab[idx];
+    }
     if (f == e) {
       tab[idx] = f.another;
       segmentSize[si]--;
@@ -282,21 +367,138 @@ public class StampedHash<K, V> {
 
 
   /**
-   * Acquire all segment locks and rehash, if really needed.
+   * Acquire all segment locks and rehash, if really needed. With incremental expansion
+   * only the new table is installed, the entries are moved by subsequent inserts.
    */
   private void eventuallyExpand(int segmentIndex) {
     long[] stamps = lockAll();
     try {
       long size = segmentSize[segmentIndex];
-      if (size <= segmentMaxFill) {
+      if (size <= segmentMaxFill || nextEntries != null) {
         return;
       }
-      rehash();
+      if (incrementalExpansion) {
+        startExpansion();
+      } else {
+        rehash();
+      }
     } finally {
       unlockAll(stamps);
     }
   }
 
+  /**
+   * Allocate the target table and reset the transfer positions. Assumes total lock.
+   */
+  @SuppressWarnings("unchecked")
+  private void startExpansion() {
+    Entry<K, V>[] src = entries;
+    if (src == null) {
+      throw new CacheClosedException(qualifiedCacheName);
+    }
+    nextEntries = new Entry[src.length * 2];
+    forwarding = new ForwardingEntry<K, V>(nextEntries);
+    Arrays.fill(transferIndex, 0);
+  }
+
+  /**
+   * Move the next chunk of buckets of the segment into the target table.
+   * Assumes the segment lock is held and an expansion is running.
+   *
+   * <p>Concurrent optimistic reads may see the bucket in the middle of the transfer.
+   * This is detected by the validation of the stamp and the read is repeated with the lock.
+   */
+  private void transferStep(int si) {
+    Entry<K, V>[] src = entries;
+    Entry<K, V>[] tab = nextEntries;
+    ForwardingEntry<K, V> fwd = forwarding;
+    int k = transferIndex[si];
+    int end = Math.min(k + TUNABLE.expansionStepBuckets, src.length >> LOCK_SHIFT);
+    int mask = tab.length - 1;
+    for (; k < end; k++) {
+      int i = (k << LOCK_SHIFT) | si;
+      Entry<K, V> e = src[i], next;
+      while (e != null) {
+        next = e.another;
+        int idx = spreadedHashFromEntry(e.hashCode) & mask;
+        e.another = tab[idx]; tab[idx] = e;
+        e = next;
+      }
+      src[i] = fwd;
+    }
+    transferIndex[si] = k;
+  }
+
+  private boolean isTransferComplete(int si) {
+    return transferIndex[si] == entries.length >> LOCK_SHIFT;
+  }
+
+  /**
+   * Called after an insert while an expansion is running. The insert moved buckets of
+   * its own segment already. If the own segment is complete, move buckets of another
+   * segment, so the expansion completes also if inserts are not evenly distributed.
+   * If all segments are moved, switch to the target table. No lock may be held when
+   * calling this method.
+   *
+   * <p>The transfer positions are read without lock and only used as a hint.
+   */
+  private void helpExpansion(int segmentIndex) {
+    Entry<K, V>[] tab = entries;
+    if (tab == null) {
+      return;
+    }
+    int bucketsPerSegment = tab.length >> LOCK_SHIFT;
+    if (transferIndex[segmentIndex] < bucketsPerSegment) {
+      return;
+    }
+    for (int i = 1; i < LOCK_SEGMENTS; i++) {
+      int si = (segmentIndex + i) & LOCK_MASK;
+      if (transferIndex[si] < bucketsPerSegment) {
+        StampedLock l = locks[si];
+        long stamp = l.writeLock();
+        try {
+          if (nextEntries != null && !isTransferComplete(si)) {
+            transferStep(si);
+          }
+        } finally {
+          l.unlockWrite(stamp);
+        }
+        return;
+      }
+    }
+    long[] stamps = lockAll();
+    try {
+      finishExpansionIfComplete();
+    } finally {
+      unlockAll(stamps);
+    }
+  }
+
+  /**
+   * Switch to the target table if all segments are moved. Assumes total lock.
+   */
+  private void finishExpansionIfComplete() {
+    if (nextEntries == null || entries == null) {
+      return;
+    }
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      if (!isTransferComplete(si)) {
+        return;
+      }
+    }
+    entries = nextEntries;
+    nextEntries = null;
+    forwarding = null;
+    calcMaxFill();
+  }
+
+  /**
+   * True, if an expansion is running and entries are moved incrementally.
+   */
+  public boolean isExpanding() {
+    return nextEntries != null;
+  }
+
   /**
    * Acquire all segment locks and return an array with the lock stamps.
    */
@@ -335,26 +537,19 @@ public class StampedHash<K, V> {
 
   /**
    * Double the hash table size and rehash the entries. Assumes total lock.
+   * A running incremental expansion is completed instead.
    */
-  @SuppressWarnings("unchecked")
   void rehash() {
-    Entry<K, V>[] src = entries;
-    if (src == null) {
-      throw new CacheClosedException(qualifiedCacheName);
+    if (nextEntries == null) {
+      startExpansion();
     }
-    int i, sl = src.length, n = sl * 2, mask = n - 1, idx;
-    Entry<K, V>[] tab = new Entry[n];
-    long count = 0; Entry next, e;
-    for (i = 0; i < sl; i++) {
-      e = src[i];
-      while (e != null) {
-        count++; next = e.another; idx = spreadedHashFromEntry(e.hashCode) & mask;
-        e.another = tab[idx]; tab[idx] = e;
-        e = next;
+    int bucketsPerSegment = entries.length >> LOCK_SHIFT;
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      while (transferIndex[si] < bucketsPerSegment) {
+        transferStep(si);
       }
     }
-    entries = tab;
-    calcMaxFill();
+    finishExpansionIfComplete();
   }
 
   /**
@@ -404,7 +599,7 @@ public class StampedHash<K, V> {
       segmentSize[i] = 0;
     }
     clearOrCloseCount++;
-    initArray();
+    initTable();
   }
 
   public int getClearOrCloseCount() {
@@ -421,6 +616,8 @@ public class StampedHash<K, V> {
   public void close() {
     clearOrCloseCount++;
     entries = null;
+    nextEntries = null;
+    forwarding = null;
   }
 
   /**
@@ -428,8 +625,18 @@ public class StampedHash<K, V> {
    * This is used for integrity checks.
    */
   public long calcEntryCount() {
+    return countEntries(entries) + countEntries(nextEntries);
+  }
+
+  private static long countEntries(Entry[] tab) {
+    if (tab == null) {
+      return 0;
+    }
     long count = 0;
-    for (Entry e : entries) {
+    for (Entry e : tab) {
+      if (e instanceof ForwardingEntry) {
+        continue;
+      }
       while (e != null) {
         count++;
         e = e.another;
@@ -439,10 +646,56 @@ public class StampedHash<K, V> {
   }
 
   /**
-   * Entry table used by the iterator.
+   * Entry table used by the iterator. While an expansion is running, buckets might
+   * contain a {@link ForwardingEntry}.
    */
   public Entry<K, V>[] getEntries() {
     return entries;
   }
 
+  /**
+   * Placeholder for a bucket that was moved to the new table during an incremental
+   * expansion. The entry is in the gone state and is never returned by a lookup.
+   */
+  public static final class ForwardingEntry<K, V> extends Entry<K, V> {
+
+    /** The table the bucket was moved to */
+    public final Entry<K, V>[] table;
+
+    ForwardingEntry(Entry<K, V>[] table) {
+      this.table = table;
+      setGone();
+    }
+
+    /**
+     * First entry of the bucket in the new table. With the segment lock held there is only
+     * one forwarding step, since a new expansion starts after the transfer to the table
+     * is complete. An optimistic read might see an outdated table and need more steps.
+     */
+    Entry<K, V> lookupBucket(int hash) {
+      Entry<K, V> e = this;
+      do {
+        Entry<K, V>[] tab = ((ForwardingEntry<K, V>) e).table;
+        e = tab[hash & (tab.length - 1)];
+      } while (e instanceof ForwardingEntry);
+      return e;
+    }
+
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Move the entries into the expanded table in small steps by the inserting threads,
+     * instead of locking all segments and rehashing the whole table at once.
+     */
+    public boolean incrementalExpansion = true;
+
+    /**
+     * Number of buckets of one segment that an insert moves into the expanded table.
+     */
+    public int expansionStepBuckets = 16;
+
+  }
+
 }
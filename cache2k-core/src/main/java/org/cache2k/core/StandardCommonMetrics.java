@@ -210,6 +210,42 @@ public class StandardCommonMetrics implements CommonMetrics.Updater {
     REFRESH_REJECTED_UPDATER.incrementAndGet(this);
   }
 
+  static final AtomicLongFieldUpdater<StandardCommonMetrics> REFRESH_DEFERRED_UPDATER =
+    AtomicLongFieldUpdater.newUpdater(StandardCommonMetrics.class, "refreshDeferred");
+  private volatile long refreshDeferred;
+  @Override
+  public long getRefreshDeferredCount() {
+    return REFRESH_DEFERRED_UPDATER.get(this);
+  }
+  @Override
+  public void refreshDeferred() {
+    REFRESH_DEFERRED_UPDATER.incrementAndGet(this);
+  }
+
+  static final AtomicLongFieldUpdater<StandardCommonMetrics> LOAD_QUEUED_UPDATER =
+    AtomicLongFieldUpdater.newUpdater(StandardCommonMetrics.class, "loadQueued");
+  private volatile long loadQueued;
+  @Override
+  public long getLoadQueuedCount() {
+    return LOAD_QUEUED_UPDATER.get(this);
+  }
+  @Override
+  public void loadQueued() {
+    LOAD_QUEUED_UPDATER.incrementAndGet(this);
+  }
+
+  static final AtomicLongFieldUpdater<StandardCommonMetrics> LOAD_SHED_UPDATER =
+    AtomicLongFieldUpdater.newUpdater(StandardCommonMetrics.class, "loadShed");
+  private volatile long loadShed;
+  @Override
+  public long getLoadShedCount() {
+    return LOAD_SHED_UPDATER.get(this);
+  }
+  @Override
+  public void loadShed() {
+    LOAD_SHED_UPDATER.incrementAndGet(this);
+  }
+
   @Override
   public boolean isDisabled() {
     return false;
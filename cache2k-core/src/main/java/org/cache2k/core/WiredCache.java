@@ -57,6 +57,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -87,6 +88,8 @@ public class WiredCache<K, V> extends BaseCache<K, V>
   CacheEntryUpdatedListener<K, V>[] syncEntryUpdatedListeners;
   CacheEntryExpiredListener<K, V>[] syncEntryExpiredListeners;
   CacheEntryEvictedListener<K, V>[] syncEntryEvictedListeners;
+  /** Entries with a submitted revalidation, which did not start processing yet */
+  private final Set<Entry<K, V>> revalidationSubmitted = ConcurrentHashMap.newKeySet();
 
   private CommonMetrics.Updater metrics() {
     return heapCache.metrics;
@@ -97,11 +100,16 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     return heapCache.getLog();
   }
 
-  /** For testing */
-  public HeapCache getHeapCache() {
+  @Override
+  public HeapCache<K, V> getHeapCache() {
     return heapCache;
   }
 
+  @Override
+  protected boolean isAsyncLoaderPresent() {
+    return asyncLoader != null;
+  }
+
   @Override
   public TimeReference getClock() {
     return heapCache.getClock();
@@ -207,7 +215,7 @@ public class WiredCache<K, V> extends BaseCache<K, V>
   public CompletableFuture<Void> loadAll(Iterable<? extends K> keys) {
     checkLoaderPresent();
     BulkResultCollector<K, V> collect = new BulkResultCollector<>();
-    Set<K> keysToLoad = getAllPrescreen(keys, collect);
+    Set<K> keysToLoad = getAllPrescreen(keys, collect, false);
     CacheLoaderException prescreenException = collect.getAnyLoaderException();
     if (keysToLoad.isEmpty()) {
       if (prescreenException != null) {
@@ -426,9 +434,47 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     if (e != null && e.hasFreshData(getClock())) {
       return returnValue(e);
     }
-    return returnValue(execute(key, e, ops.get(key)));
+    if (e != null && heapCache.isStaleWhileRevalidate() && revalidateEventually(e)) {
+      return returnValue(e);
+    }
+    return returnValue(execute(key, e, ops.get(key), true));
    }
 
+  /**
+   * Entry has an expired value: Start a load via the loader executor, if no other
+   * processing is running or a load was submitted already. The entry stays in the
+   * submitted set until the action has started processing.
+   *
+   * @return true, if the stale value should be returned
+   */
+  private boolean revalidateEventually(Entry<K, V> e) {
+    synchronized (e) {
+      if (!e.isValidOrExpiredAndNoException()) {
+        return false;
+      }
+      if (e.isProcessing()) {
+        return true;
+      }
+    }
+    if (!revalidationSubmitted.add(e)) {
+      return true;
+    }
+    Runnable action = createFireAndForgetAction(e, ops.revalidate);
+    try {
+      heapCache.getLoaderExecutor().execute(() -> {
+        try {
+          action.run();
+        } finally {
+          revalidationSubmitted.remove(e);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      revalidationSubmitted.remove(e);
+      return false;
+    }
+    return true;
+  }
+
   /**
    * This takes four different execution paths depending on cache setup and
    * state: no loader and/or all data present in heap, async or async bulk, parallel single load,
@@ -437,7 +483,7 @@ public class WiredCache<K, V> extends BaseCache<K, V>
   @Override
   public Map<K, V> getAll(Iterable<? extends K> requestedKeys) {
     BulkResultCollector<K, V> collect = new BulkResultCollector<>();
-    Set<K> keysMissing = getAllPrescreen(requestedKeys, collect);
+    Set<K> keysMissing = getAllPrescreen(requestedKeys, collect, true);
     if (!keysMissing.isEmpty()) {
       if (asyncLoader != null) {
         getAllAsyncLoad(collect, keysMissing);
@@ -490,10 +536,13 @@ public class WiredCache<K, V> extends BaseCache<K, V>
    * The requested keys might contains duplicates, so keep track of already processed
    * keys.
    *
+   * @param serveStale collect expired values and revalidate them in the background,
+   *                   if stale while revalidate is enabled
    * @return missing keys that need further processing
    */
   private Set<K> getAllPrescreen(
-    Iterable<? extends K> requestedKeys, BulkResultCollector<K, V> collect) {
+    Iterable<? extends K> requestedKeys, BulkResultCollector<K, V> collect,
+    boolean serveStale) {
     Set<K> missingKeys = new HashSet<>();
     Set<K> processedKeys = new HashSet<>();
     for (K key : requestedKeys) {
@@ -502,6 +551,8 @@ public class WiredCache<K, V> extends BaseCache<K, V>
       if (e != null) {
         if (e.hasFreshData(getClock())) {
           collect.put(key, e.getValueOrException());
+        } else if (serveStale && heapCache.isStaleWhileRevalidate() && revalidateEventually(e)) {
+          collect.put(key, e.getValueOrException());
         } else {
           metrics().heapHitButNoRead();
           missingKeys.add(key);
@@ -538,7 +589,12 @@ public class WiredCache<K, V> extends BaseCache<K, V>
 
   @Override
   public CacheEntry<K, V> getEntry(K key) {
-    return execute(key, ops.getEntry(key));
+    Entry<K, V> e = lookupQuick(key);
+    if (e != null && heapCache.isStaleWhileRevalidate() && !e.hasFreshData(getClock())
+      && revalidateEventually(e)) {
+      return heapCache.returnEntry(e);
+    }
+    return execute(key, e, ops.getEntry(key), true);
   }
 
   @Override
@@ -782,6 +838,12 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     return new MyEntryAction<R>(op, key, e);
   }
 
+  @Override
+  protected <R> EntryAction<K, V, R> createEntryAction(
+    K key, Entry<K, V> e, Semantic<K, V, R> op, EntryAction.CompletedCallback<K, V, R> cb) {
+    return new MyEntryAction<R>(op, key, e, cb);
+  }
+
   @Override
   public String getEntryState(K key) {
     return heapCache.getEntryState(key);
@@ -797,7 +859,7 @@ public class WiredCache<K, V> extends BaseCache<K, V>
   public void timerEventExpireEntry(Entry<K, V> e, Object task) {
     metrics().timerEvent();
     synchronized (e) {
-      if (e.getTask() != task) { return; }
+      if (e.getTask() != task || heapCache.timing.rescheduleDeferredTimer(e, task)) { return; }
       long nrt = e.getNextRefreshTime();
       long now = heapCache.clock.millis();
       if (now < Math.abs(nrt)) {
@@ -825,7 +887,15 @@ public class WiredCache<K, V> extends BaseCache<K, V>
   public void timerEventRefresh(Entry<K, V> e, Object task) {
     metrics().timerEvent();
     synchronized (e) {
-      if (e.getTask() != task) { return; }
+      if (e.getTask() != task || heapCache.timing.rescheduleDeferredTimer(e, task)) { return; }
+      if (!heapCache.timing.shouldRefresh(e, task)) {
+        enqueueTimerAction(e, ops.expireEvent);
+        return;
+      }
+      if (heapCache.timing.deferRefresh(e, task)) {
+        metrics().refreshDeferred();
+        return;
+      }
       if (asyncLoader != null) {
         enqueueTimerAction(e, ops.refresh);
         return;
@@ -848,6 +918,11 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     enqueueTimerAction(e, ops.expireEvent);
   }
 
+  @Override
+  public Entry<K, V>[] getHashEntries() {
+    return heapCache.getHashEntries();
+  }
+
   @Override
   public Cache<K, V> getUserCache() {
     return userCache;
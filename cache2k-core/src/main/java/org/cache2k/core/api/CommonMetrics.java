@@ -135,6 +135,27 @@ public interface CommonMetrics {
    */
   long getRefreshRejectedCount();
 
+  /**
+   * Refresh was deferred to a later time, because the refresh rate limit was reached.
+   *
+   * @see InternalCacheInfo#getRefreshDeferredCount()
+   */
+  long getRefreshDeferredCount();
+
+  /**
+   * Load waited in the queue, because the load limit was reached.
+   *
+   * @see InternalCacheInfo#getLoadQueuedCount()
+   */
+  long getLoadQueuedCount();
+
+  /**
+   * Load was not done, because the load limit was reached.
+   *
+   * @see InternalCacheInfo#getLoadShedCount()
+   */
+  long getLoadShedCount();
+
   /**
    * Entry was removed while waiting to get the mutation lock.
    *
@@ -179,6 +200,12 @@ public interface CommonMetrics {
 
     void refreshRejected();
 
+    void refreshDeferred();
+
+    void loadQueued();
+
+    void loadShed();
+
     void goneSpin();
 
   }
@@ -230,6 +257,15 @@ public interface CommonMetrics {
     @Override
     public void refreshRejected() { }
 
+    @Override
+    public void refreshDeferred() { }
+
+    @Override
+    public void loadQueued() { }
+
+    @Override
+    public void loadShed() { }
+
     @Override
     public void goneSpin() { }
 
@@ -311,6 +347,21 @@ public interface CommonMetrics {
       return 0;
     }
 
+    @Override
+    public long getRefreshDeferredCount() {
+      return 0;
+    }
+
+    @Override
+    public long getLoadQueuedCount() {
+      return 0;
+    }
+
+    @Override
+    public long getLoadShedCount() {
+      return 0;
+    }
+
     @Override
     public long getGoneSpinCount() {
       return 0;
@@ -123,6 +123,31 @@ public interface InternalCacheInfo {
    */
   long getRefreshRejectedCount();
 
+  /**
+   * Entry was supposed to be refreshed, but the refresh was deferred to a later time,
+   * because the refresh rate limit was reached.
+   *
+   * @see CommonMetrics#getRefreshDeferredCount()
+   */
+  long getRefreshDeferredCount();
+
+  /**
+   * Load waited in the queue, because the limit of concurrent loads was reached.
+   *
+   * @see CommonMetrics#getLoadQueuedCount()
+   * @see org.cache2k.core.LoadLimitConfig
+   */
+  long getLoadQueuedCount();
+
+  /**
+   * Load was not done, because the limit of concurrent loads was reached. Either the stale
+   * value was returned or the load failed with a {@link org.cache2k.core.LoadSheddingException}.
+   *
+   * @see CommonMetrics#getLoadShedCount()
+   * @see org.cache2k.core.LoadLimitConfig
+   */
+  long getLoadShedCount();
+
   /**
    * Loader exception occurred, but the resilience policy decided to suppress the exception and
    * continue to use the available value.
@@ -0,0 +1,138 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor starting a virtual thread for each task. The number of tasks running
+ * concurrently is limited by a semaphore, tasks above the limit wait in their
+ * virtual thread, which is cheap. The core is compiled for Java 8, so virtual
+ * threads are created via method handles, if available.
+ *
+ * @author Jens Wilke
+ */
+public class VirtualThreadExecutor implements Executor, AutoCloseable {
+
+  /** {@code Thread.ofVirtual()} or {@code null} if not supported */
+  private static final MethodHandle OF_VIRTUAL;
+  /** {@code Thread.Builder.name(String, long)} */
+  private static final MethodHandle NAME;
+  /** {@code Thread.Builder.factory()} */
+  private static final MethodHandle FACTORY;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Class<?> virtualBuilderType = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderType));
+      name = lookup.findVirtual(builderType, "name",
+        MethodType.methodType(builderType, String.class, long.class));
+      factory = lookup.findVirtual(builderType, "factory", MethodType.methodType(ThreadFactory.class));
+    } catch (ReflectiveOperationException ignore) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+  }
+
+  /**
+   * True, if the JDK supports virtual threads.
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a factory for virtual threads with the name prefix.
+   *
+   * @throws UnsupportedOperationException if virtual threads are not supported
+   */
+  public static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("virtual threads not supported");
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke();
+      builder = NAME.invoke(builder, namePrefix + '-', 1L);
+      return (ThreadFactory) FACTORY.invoke(builder);
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  private final ThreadFactory threadFactory;
+  private final Semaphore permits;
+  private volatile boolean closed;
+
+  /**
+   * @param threadFactory factory for the threads, usually producing virtual threads
+   * @param maxConcurrency maximum number of tasks running at the same time
+   */
+  public VirtualThreadExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+    this.threadFactory = threadFactory;
+    permits = new Semaphore(maxConcurrency);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (closed) {
+      throw new RejectedExecutionException("executor closed");
+    }
+    threadFactory.newThread(() -> {
+      permits.acquireUninterruptibly();
+      try {
+        command.run();
+      } finally {
+        permits.release();
+      }
+    }).start();
+  }
+
+  /**
+   * Number of tasks waiting for a permit.
+   */
+  public int getWaitingCount() {
+    return permits.getQueueLength();
+  }
+
+  /**
+   * Reject new tasks. Tasks already submitted run to completion.
+   */
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+}
@@ -22,11 +22,18 @@
 
 import org.cache2k.config.Cache2kConfig;
 import org.cache2k.core.Entry;
+import org.cache2k.core.CacheClosedException;
 import org.cache2k.core.ExceptionWrapper;
 import org.cache2k.core.IntegerTo16BitFloatingPoint;
 import org.cache2k.core.api.InternalCacheCloseContext;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
 import org.cache2k.operation.Weigher;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
  /**
@@ -44,6 +51,16 @@ import java.util.function.Supplier;
  * algorithm {@link #findEvictionCandidate()}, mark entry for processing and call
  * the eviction listener,
  *
+ * <p>New entries are recorded in an {@link InsertBuffer} without locking and
+ * drained into the replacement list whenever the eviction lock is acquired. Removals
+ * and weight updates lock and drain the buffer first, so entries are always inserted
+ * in the replacement list before they are removed.
+ *
+ * <p>With background eviction enabled, a thread inserting an entry above the capacity
+ * limit only schedules the eviction on the executor. The size may grow above the
+ * limit by the overshoot. Above that, inserting threads evict by themselves, which
+ * slows down inserts to the speed of the eviction.
+ *
  * @author Jens Wilke
  */
 @SuppressWarnings({"WeakerAccess", "SynchronizationOnLocalVariableOrMethodParameter", "unchecked",
@@ -54,6 +71,8 @@ public abstract class AbstractEviction implements Eviction {
   public static final int MAXIMAL_CHUNK_SIZE = 64;
   public static final long MINIMUM_CAPACITY_FOR_CHUNKING = 1000;
 
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
   private final Weigher weigher;
   protected final HeapCacheForEviction heapCache;
   protected final Object lock = new Object();
@@ -61,6 +80,22 @@ public abstract class AbstractEviction implements Eviction {
   private final boolean noListenerCall;
   private final boolean noChunking;
 
+  /**
+   * Buffer for new entries, or {@code null} if inserts lock the eviction directly.
+   */
+  private final InsertBuffer insertBuffer;
+  private final Consumer<Entry> insertFromBuffer = this::insertFromBuffer;
+
+  /**
+   * Executor for background eviction or {@code null} if inserting threads evict.
+   */
+  private Executor backgroundExecutor;
+  private int overshootPercentage;
+  private final AtomicBoolean backgroundEvictionScheduled = new AtomicBoolean();
+  /** Number of background eviction runs, guarded by the lock */
+  private long backgroundEvictionRunCount;
+  private long backpressureCount;
+
   /**
    * Set when size is reached.
    */
@@ -118,23 +153,41 @@ public abstract class AbstractEviction implements Eviction {
     this.noChunking = noChunking;
     this.maxSize = maxSize;
     this.maxWeight = maxWeight;
+    insertBuffer = TUNABLE.insertBufferSize > 0 ?
+      new InsertBuffer(
+        Math.min(TUNABLE.insertBufferMaxStripes, Runtime.getRuntime().availableProcessors()),
+        TUNABLE.insertBufferSize) :
+      null;
   }
 
    @Override
    public long startNewIdleScanRound() {
     synchronized (lock) {
+      drainInsertBuffer();
       idleNonEvictDrainCount = 0;
       idleScanRound = (idleScanRound + 1) & Entry.SCAN_ROUND_MASK;
       return getScanCount();
     }
    }
 
+  /**
+   * New entries are added to the insert buffer, if possible. If the entry is
+   * removed while still in the insert buffer, it is not yet inserted in the
+   * replacement list, but gone. The removal is done when the buffer is drained.
+   */
    @Override
   public boolean submitWithoutTriggeringEviction(Entry e) {
+    if (insertBuffer != null && e.isNotYetInsertedInReplacementList() && !e.isGone() &&
+      insertBuffer.offer(e)) {
+      return isEvictionNeededWithoutLock(1, 0);
+    }
     synchronized (lock) {
+      drainInsertBuffer();
       if (e.isNotYetInsertedInReplacementList()) {
-        insertIntoReplacementList(e);
-        newEntryCounter++;
+        if (!e.isGone()) {
+          insertIntoReplacementList(e);
+          newEntryCounter++;
+        }
       } else {
         removeEventually(e);
       }
@@ -142,6 +195,40 @@ public abstract class AbstractEviction implements Eviction {
     }
   }
 
+  /**
+   * Insert buffered entries into the replacement list. Needs to be called when
+   * holding the lock and before anything that relies on the replacement list
+   * or its size.
+   */
+  private void drainInsertBuffer() {
+    if (insertBuffer != null) {
+      insertBuffer.drain(insertFromBuffer);
+    }
+  }
+
+  private void insertFromBuffer(Entry e) {
+    insertIntoReplacementList(e);
+    newEntryCounter++;
+    if (e.isGone()) {
+      removeEventually(e);
+    }
+  }
+
+  /**
+   * Run eviction on the executor instead of the inserting thread. Needs to be called
+   * before the cache is used.
+   *
+   * @param overshootPercentage allowed size or weight above the limit, before
+   *                            inserting threads run the eviction themselves
+   */
+  public void enableBackgroundEviction(Executor executor, int overshootPercentage) {
+    if (overshootPercentage < 0) {
+      throw new IllegalArgumentException("overshootPercentage >= 0 expected");
+    }
+    this.backgroundExecutor = executor;
+    this.overshootPercentage = overshootPercentage;
+  }
+
   private static int calculateChunkSize(boolean noChunking, long maxSize) {
     if (noChunking) { return 1; }
     if (maxSize < MINIMUM_CAPACITY_FOR_CHUNKING && maxSize >= 0) {
@@ -192,6 +279,7 @@ public abstract class AbstractEviction implements Eviction {
       return false;
     }
     synchronized (lock) {
+      drainInsertBuffer();
       updateAccumulatedWeightInLock(e);
       return isEvictionNeeded(0);
     }
@@ -253,6 +341,29 @@ public abstract class AbstractEviction implements Eviction {
     }
   }
 
+  /**
+   * Check whether eviction is needed without locking, counting the buffered entries
+   * as well. Since fields are read without lock, the result is approximate when
+   * other threads modify concurrently.
+   *
+   * @param overshoot entries or weight allowed above the limit
+   */
+  private boolean isEvictionNeededWithoutLock(int spaceNeeded, long overshoot) {
+    if (isWeigherPresent()) {
+      return totalWeight + spaceNeeded - overshoot > maxWeight && getSize() > 0;
+    }
+    int buffered = insertBuffer != null ? insertBuffer.size() : 0;
+    return getSize() + buffered + spaceNeeded - evictionRunningCount - overshoot > maxSize;
+  }
+
+  /**
+   * Entries or weight allowed above the limit with background eviction.
+   */
+  private long getOvershoot() {
+    long limit = isWeigherPresent() ? maxWeight : maxSize;
+    return (long) Math.min(Long.MAX_VALUE / 2, limit * (double) overshootPercentage / 100);
+  }
+
   @Override
   public void evictEventuallyBeforeInsert() {
     evictEventually(1);
@@ -278,9 +389,24 @@ public abstract class AbstractEviction implements Eviction {
    * <p>If a weigher is present we might need to evict more than one entry.
    */
   private void evictEventually(int spaceNeeded) {
+    if (backgroundExecutor != null) {
+      if (!isEvictionNeededWithoutLock(spaceNeeded, 0)) {
+        return;
+      }
+      if (!isEvictionNeededWithoutLock(spaceNeeded, getOvershoot())) {
+        scheduleBackgroundEviction();
+        return;
+      }
+    } else if (insertBuffer != null && !isWeigherPresent() &&
+      !isEvictionNeededWithoutLock(spaceNeeded, 0)) {
+      return;
+    }
     Entry[] chunk;
     synchronized (lock) {
       chunk = fillEvictionChunk(spaceNeeded);
+      if (chunk != null && backgroundExecutor != null) {
+        backpressureCount++;
+      }
     }
     if (chunk == null) { return; }
     boolean needsEviction = (evictChunk(chunk, spaceNeeded) & 1) > 0;
@@ -300,6 +426,7 @@ public abstract class AbstractEviction implements Eviction {
   }
 
   private Entry[] fillEvictionChunk(int spaceNeeded) {
+    drainInsertBuffer();
     if (!isEvictionNeeded(spaceNeeded)) {
       return null;
     }
@@ -331,12 +458,67 @@ public abstract class AbstractEviction implements Eviction {
     }
   }
 
+  private void scheduleBackgroundEviction() {
+    if (!backgroundEvictionScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      backgroundExecutor.execute(this::runBackgroundEviction);
+    } catch (RejectedExecutionException ex) {
+      backgroundEvictionScheduled.set(false);
+    }
+  }
+
+  /**
+   * Evict until within the limit. Check again after resetting the scheduled flag,
+   * since an insert may have skipped scheduling while this was still running.
+   * If no entry could be evicted, because all candidates are processing, stop and
+   * let the next insert schedule again.
+   */
+  private void runBackgroundEviction() {
+    synchronized (lock) {
+      backgroundEvictionRunCount++;
+    }
+    int result;
+    do {
+      try {
+        result = evictUntilWithinLimit();
+      } catch (CacheClosedException ignore) {
+        return;
+      } catch (Throwable t) {
+        heapCache.logAndCountInternalException("background eviction", t);
+        return;
+      } finally {
+        backgroundEvictionScheduled.set(false);
+      }
+    } while (result == 0 && isEvictionNeededWithoutLock(0, 0) &&
+      backgroundEvictionScheduled.compareAndSet(false, true));
+  }
+
+  /**
+   * Evict chunks until within the limit or no entry could be evicted.
+   *
+   * @return result of the last {@link #evictChunk(Entry[], int)}
+   */
+  private int evictUntilWithinLimit() {
+    int result;
+    do {
+      Entry[] chunk;
+      synchronized (lock) {
+        chunk = fillEvictionChunk(0);
+      }
+      result = evictChunk(chunk, 0);
+    } while (result > 1);
+    return result;
+  }
+
    public long evictIdleEntries(int maxScan) {
      Entry[] chunk;
      long maxScanCount = 0;
      long evictedCount = 0;
      do {
        synchronized (lock) {
+         drainInsertBuffer();
          long scanCount = getScanCount();
          if (scanCount >= maxScanCount) {
            if (maxScanCount > 0) {
@@ -460,6 +642,7 @@ public abstract class AbstractEviction implements Eviction {
   @Override
   public EvictionMetrics getMetrics() {
     synchronized (lock) {
+      drainInsertBuffer();
       long size = getSize();
       long newEntryCounter = this.newEntryCounter;
       long removedCnt = this.removedCnt;
@@ -497,12 +680,14 @@ public abstract class AbstractEviction implements Eviction {
    @Override
   public <T> T runLocked(Supplier<T> j) {
     synchronized (lock) {
+      drainInsertBuffer();
       return j.get();
     }
   }
 
   public String toString() {
     synchronized (lock) {
+      drainInsertBuffer();
       String s = "impl=" + this.getClass().getSimpleName() +
         ", chunkSize=" + chunkSize;
       if (isWeigherPresent()) {
@@ -515,6 +700,11 @@ public abstract class AbstractEviction implements Eviction {
       }
       s +=
         ", size=" + getSize();
+      if (backgroundExecutor != null) {
+        s +=
+          ", backgroundEvictionRunCount=" + backgroundEvictionRunCount +
+          ", backpressureCount=" + backpressureCount;
+      }
       return s;
     }
   }
@@ -558,6 +748,7 @@ public abstract class AbstractEviction implements Eviction {
 
   @Override
   public final long removeAll() {
+    drainInsertBuffer();
     long removedCount = removeAllFromReplacementList();
     totalWeight = 0;
     return removedCount;
@@ -603,4 +794,20 @@ public abstract class AbstractEviction implements Eviction {
 
   protected abstract long getScanCount();
 
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Capacity of one stripe of the insert buffer. 0 disables buffering and
+     * new entries are inserted with the eviction lock held.
+     */
+    public int insertBufferSize = 16;
+
+    /**
+     * Maximum number of stripes of the insert buffer. The stripe count is
+     * the number of available processors, limited by this value.
+     */
+    public int insertBufferMaxStripes = 16;
+
+  }
+
 }
@@ -29,14 +29,20 @@ import org.cache2k.core.util.TunableFactory;
 /**
  * Eviction algorithm inspired from CLOCK Pro with 3 clocks.
  *
- * <p>Uses a static allocation for hot and cold space sizes. No online or dynamic
- * optimization is done yet. However, the hit rate for all measured access traces is better
- * then LRU and it is resistant to scans.
+ * <p>The hot clock size is limited by {@code hotMax}, which adapts online to the workload.
+ * A hit on a ghost of an entry evicted from the cold clock decreases {@code hotMax}, since
+ * the access would have been a hit with a bigger cold clock. A ghost dropped from the
+ * history without a hit increases it again. {@code hotMax} stays between
+ * {@link Tunable#hotMinPercentage} and {@link Tunable#hotMaxPercentage} of the cache size.
+ * With {@link Tunable#adaptiveHotMax} switched off, the hot clock size is fixed at the
+ * upper limit. The hit rate for all measured access traces is better then LRU and it
+ * is resistant to scans.
  *
  * <p>From cache2k version 1.2 to version 1.4 the implementation was simplified and the
  * demotion of hot entries removed. The result achieves similar or better hit rates.
  * Version 2.4 limits the ghost size to 3000 elements. Version 2.6 stops inserting
- * evicted hot entries into ghosts.
+ * evicted hot entries into ghosts, adapts the hot clock size and stores ghosts in a
+ * compact {@link GhostHistory} which scales with the cache size.
  *
  * <p>The Clock-Pro algorithm is explained by the authors in
  * <a href="http://www.ece.eng.wayne.edu/~sjiang/pubs/papers/jiang05_CLOCK-Pro.pdf">CLOCK-Pro:
@@ -66,16 +72,20 @@ public class ClockProPlusEviction extends AbstractEviction {
   private Entry handCold;
   private Entry handHot;
 
-  private Ghost[] ghosts;
-  private final Ghost ghostHead = new Ghost().shortCircuit();
-  private int ghostSize = 0;
+  private final GhostHistory ghosts = new GhostHistory(GHOST_LOAD_PERCENT);
   private long hotMax = Long.MAX_VALUE;
+  private long hotMaxUpperLimit = Long.MAX_VALUE;
+  private long hotMaxLowerLimit = 0;
+  private long ghostExpiredCnt;
   private long ghostMax = Long.MAX_VALUE;
 
   private static final int GHOST_LOAD_PERCENT;
   private static final int HOT_MAX_PERCENTAGE;
   private static final int HIT_COUNTER_DECREASE_SHIFT;
   private static final int GHOST_MAX_PERCENTAGE;
+  private static final int GHOST_MAX_SIZE;
+  private static final int HOT_MIN_PERCENTAGE;
+  private static final boolean ADAPTIVE_HOT_MAX;
 
   static {
     Tunable tunable = TunableFactory.get(Tunable.class);
@@ -83,6 +93,9 @@ public class ClockProPlusEviction extends AbstractEviction {
     HOT_MAX_PERCENTAGE = tunable.hotMaxPercentage;
     HIT_COUNTER_DECREASE_SHIFT = tunable.hitCounterDecreaseShift;
     GHOST_MAX_PERCENTAGE = tunable.ghostMaxPercentage;
+    GHOST_MAX_SIZE = tunable.ghostMaxSize;
+    HOT_MIN_PERCENTAGE = tunable.hotMinPercentage;
+    ADAPTIVE_HOT_MAX = tunable.adaptiveHotMax;
   }
 
   public ClockProPlusEviction(HeapCacheForEviction heapCache, InternalEvictionListener listener,
@@ -94,7 +107,6 @@ public class ClockProPlusEviction extends AbstractEviction {
     hotSize = 0;
     handCold = null;
     handHot = null;
-    ghosts = new Ghost[4];
   }
 
   private long sumUpListHits(Entry e) {
@@ -120,13 +132,24 @@ public class ClockProPlusEviction extends AbstractEviction {
    * Updates hot max based on current size. This is called when eviction
    * kicks in so current size is the maximum size this cache should reach
    * regardless whether we use entry capacity or weigher to limit the size.
+   * With adaption, hot max starts at the upper limit and moves between the limits.
    */
   @Override
   protected void updateHotMax() {
-    hotMax = getSize() * HOT_MAX_PERCENTAGE / 100;
-    ghostMax = getSize() * GHOST_MAX_PERCENTAGE / 100 + 1;
-    ghostMax = Math.min(3_000, ghostMax);
-    trimGhostSize();
+    long previousUpperLimit = hotMaxUpperLimit;
+    hotMaxUpperLimit = getSize() * HOT_MAX_PERCENTAGE / 100;
+    hotMaxLowerLimit = ADAPTIVE_HOT_MAX ? getSize() * HOT_MIN_PERCENTAGE / 100 : hotMaxUpperLimit;
+    if (hotMax == previousUpperLimit || hotMax > hotMaxUpperLimit) {
+      hotMax = hotMaxUpperLimit;
+    } else {
+      hotMax = Math.max(hotMaxLowerLimit, hotMax);
+    }
+    long targetGhostMax = Math.min(GHOST_MAX_SIZE, getSize() * GHOST_MAX_PERCENTAGE / 100 + 1);
+    long capacity = ghosts.capacity();
+    if (targetGhostMax > capacity * 9 / 8 || targetGhostMax < capacity * 7 / 8) {
+      ghosts.resize((int) targetGhostMax);
+    }
+    ghostMax = ghosts.capacity();
   }
 
   @Override
@@ -198,53 +221,67 @@ public class ClockProPlusEviction extends AbstractEviction {
     }
   }
 
+  /**
+   * Insert the ghost or move an existing ghost to the front, keeping its hit flag.
+   * Adding may drop the oldest ghost in both cases, which feeds the adaption.
+   */
   private void insertCopyIntoGhosts(Entry e) {
     int hc = e.hashCode;
-    Ghost g = lookupGhost(hc);
-    if (g != null) {
-      Ghost.moveToFront(ghostHead, g);
-      return;
+    int pos = ghosts.lookup(hc);
+    int dropped;
+    if (pos >= 0) {
+      boolean hit = ghosts.isHit(pos);
+      ghosts.remove(pos);
+      dropped = ghosts.add(hc);
+      if (hit) {
+        ghosts.setHit(ghosts.lookup(hc));
+      }
+    } else {
+      dropped = ghosts.add(hc);
     }
-    g = trimGhostSize();
-    if (g == null) {
-      g = new Ghost();
+    if (dropped == GhostHistory.DROPPED) {
+      ghostExpiredCnt++;
+      increaseHotMax();
     }
-    g.hash = hc;
-    insertGhost(g, hc);
-    Ghost.insertInList(ghostHead, g);
+  }
+
+  public long getSize() {
+    return hotSize + coldSize;
   }
 
   /**
-   * Reduce ghost size to fit maximum size.
-   *
-   * @return A removed ghost to reuse the object for insert
+   * An entry was evicted from the cold clock and was not accessed again, while its
+   * ghost was tracked. The cold clock may be smaller.
    */
-  private Ghost trimGhostSize() {
-    Ghost g = null;
-    while (ghostSize >= getGhostMax()) {
-      g = ghostHead.prev;
-      Ghost.removeFromList(g);
-      boolean f = removeGhost(g, g.hash);
+  private void increaseHotMax() {
+    if (hotMax < hotMaxUpperLimit) {
+      hotMax++;
     }
-    return g;
   }
 
-  public long getSize() {
-    return hotSize + coldSize;
+  /**
+   * An entry was evicted from the cold clock and is requested again, while its
+   * ghost is tracked. It would have been a hit with a bigger cold clock.
+   */
+  private void decreaseHotMax() {
+    if (hotMax > hotMaxLowerLimit) {
+      hotMax--;
+    }
   }
 
   @Override
   protected void insertIntoReplacementList(Entry e) {
-    Ghost g = lookupGhost(e.hashCode);
-    if (g != null) {
-      /*
-       * don't remove ghosts here, save object allocations.
-       * removeGhost(g, g.hash);  Ghost.removeFromList(g);
-       */
+    int ghostPos = ghosts.lookup(e.hashCode);
+    boolean ghostHit = ghostPos >= 0;
+    if (ghostHit) {
       ghostHits++;
+      if (ADAPTIVE_HOT_MAX && !ghosts.isHit(ghostPos)) {
+        decreaseHotMax();
+      }
+      ghosts.setHit(ghostPos);
     }
     e.setScanRound(idleScanRound);
-    if (g != null || (coldSize == 0 && hotSize < getHotMax())) {
+    if (ghostHit || (coldSize == 0 && hotSize < getHotMax())) {
       e.setHot(true);
       hotSize++;
       handHot = Entry.insertIntoTailCyclicList(handHot, e);
@@ -384,15 +421,14 @@ public class ClockProPlusEviction extends AbstractEviction {
 
   @Override
   public void checkIntegrity(IntegrityState integrityState) {
-    integrityState.checkEquals("ghostSize == countGhostsInHash()", ghostSize, countGhostsInHash())
+    integrityState.checkEquals("ghosts.size() == ghosts.countReachable()",
+        ghosts.size(), ghosts.countReachable())
       .check("checkCyclicListIntegrity(handHot)", Entry.checkCyclicListIntegrity(handHot))
       .check("checkCyclicListIntegrity(handCold)", Entry.checkCyclicListIntegrity(handCold))
       .checkEquals("getCyclicListEntryCount(handHot) == hotSize",
         Entry.getCyclicListEntryCount(handHot), hotSize)
       .checkEquals("getCyclicListEntryCount(handCold) == coldSize",
-        Entry.getCyclicListEntryCount(handCold), coldSize)
-      .checkEquals("Ghost.listSize(ghostHead) == ghostSize",
-        Ghost.listSize(ghostHead), ghostSize);
+        Entry.getCyclicListEntryCount(handCold), coldSize);
   }
 
   @Override
@@ -402,11 +438,13 @@ public class ClockProPlusEviction extends AbstractEviction {
         ", coldSize=" + coldSize +
         ", hotSize=" + hotSize +
         ", hotMaxSize=" + getHotMax() +
-        ", ghostSize=" + ghostSize +
+        ", hotMaxLimits=" + hotMaxLowerLimit + "-" + hotMaxUpperLimit +
+        ", ghostSize=" + ghosts.size() +
         ", ghostMaxSize=" + getGhostMax() +
         ", coldHits=" + (coldHits + sumUpListHits(handCold)) +
         ", hotHits=" + (hotHits + sumUpListHits(handHot)) +
         ", ghostHits=" + ghostHits +
+        ", ghostExpiredCnt=" + ghostExpiredCnt +
         ", coldRunCnt=" + coldRunCnt + // identical to the evictions anyways
         ", coldScanCnt=" + coldScanCnt +
         ", hotRunCnt=" + hotRunCnt +
@@ -414,136 +452,6 @@ public class ClockProPlusEviction extends AbstractEviction {
     }
   }
 
-  private Ghost lookupGhost(int hash) {
-    Ghost[] tab = ghosts;
-    int n = tab.length;
-    int mask = n - 1;
-    int idx = hash & (mask);
-    Ghost e = tab[idx];
-    while (e != null) {
-      if (e.hash == hash) {
-        return e;
-      }
-      e = e.another;
-    }
-    return null;
-  }
-
-  private void insertGhost(Ghost e2, int hash) {
-    Ghost[] tab = ghosts;
-    int n = tab.length;
-    int mask = n - 1;
-    int idx = hash & (mask);
-    e2.another = tab[idx];
-    tab[idx] = e2;
-    ghostSize++;
-    int maxFill = n * GHOST_LOAD_PERCENT / 100;
-    if (ghostSize > maxFill) {
-      expand();
-    }
-  }
-
-  private void expand() {
-    Ghost[] tab = ghosts;
-    int n = tab.length;
-    int mask;
-    int idx;
-    Ghost[] newTab = new Ghost[n * 2];
-    mask = newTab.length - 1;
-    for (Ghost g : tab) {
-      while (g != null) {
-        idx = g.hash & mask;
-        Ghost next = g.another;
-        g.another = newTab[idx];
-        newTab[idx] = g;
-        g = next;
-      }
-    }
-    ghosts = newTab;
-  }
-
-
-  private boolean removeGhost(Ghost g, int hash) {
-    Ghost[] tab = ghosts;
-    int n = tab.length;
-    int mask = n - 1;
-    int idx = hash & (mask);
-    Ghost e = tab[idx];
-    if (e == g) {
-      tab[idx] = e.another;
-      ghostSize--;
-      return true;
-    } else {
-      while (e != null) {
-        Ghost another = e.another;
-        if (another == g) {
-          e.another = another.another;
-          ghostSize--;
-          return true;
-        }
-        e = another;
-      }
-    }
-    return false;
-  }
-
-  private int countGhostsInHash() {
-    int entryCount = 0;
-    for (Ghost e : ghosts) {
-      while (e != null) {
-        entryCount++;
-        e = e.another;
-      }
-    }
-    return entryCount;
-  }
-
-  /**
-   * Ghost representing a entry we have seen and evicted from the cache. We only store
-   * the hash to save memory, since holding the key references may cause a size overhead.
-   */
-  private static class Ghost {
-
-    /** Modified hashcode of the key */
-    int hash;
-    /** Hash table chain */
-    Ghost another;
-    /** LRU double linked list */
-    Ghost next;
-    /** LRU double linked list */
-    Ghost prev;
-
-    Ghost shortCircuit() {
-      return next = prev = this;
-    }
-
-    static void removeFromList(Ghost e) {
-      e.prev.next = e.next;
-      e.next.prev = e.prev;
-      e.next = e.prev = null;
-    }
-
-    static void insertInList(Ghost head, Ghost e) {
-      e.prev = head;
-      e.next = head.next;
-      e.next.prev = e;
-      head.next = e;
-    }
-
-    static void moveToFront(Ghost head, Ghost e) {
-      removeFromList(e);
-      insertInList(head, e);
-    }
-
-    static int listSize(Ghost head) {
-      int count = 0;
-      Ghost e = head;
-      while ((e = e.next) != head) { count++; }
-      return count;
-    }
-
-  }
-
   public static class Tunable extends TunableConstants {
 
     public int hotMaxPercentage = 97;
@@ -554,6 +462,21 @@ public class ClockProPlusEviction extends AbstractEviction {
 
     public int ghostMaxPercentage = 50;
 
+    /**
+     * Upper limit of the ghost history per eviction segment.
+     * A ghost needs 10 to 17 bytes, depending on the table fill.
+     */
+    public int ghostMaxSize = 10_000_000;
+
+    /**
+     * Adjust the hot clock size between {@link #hotMinPercentage} and
+     * {@link #hotMaxPercentage}: Ghost hits make the cold clock bigger, ghosts
+     * dropped without hit make it smaller.
+     */
+    public boolean adaptiveHotMax = true;
+
+    public int hotMinPercentage = 50;
+
   }
 
 }
@@ -0,0 +1,177 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.CustomizationReferenceSupplier;
+import org.cache2k.config.CustomizationSupplier;
+import org.cache2k.config.SectionBuilder;
+
+/**
+ * Configuration section to select the eviction algorithm of a cache.
+ *
+ * <p>Example: {@code builder.with(EvictionConfig.class, b -> b.algorithm(Algorithm.TINY_LFU))}
+ *
+ * @author Jens Wilke
+ */
+public class EvictionConfig implements ConfigSection<EvictionConfig, EvictionConfig.Builder> {
+
+  private Algorithm algorithm = Algorithm.CLOCK_PRO_PLUS;
+  private CustomizationSupplier<? extends EvictionPolicyFactory> policyFactory;
+  private boolean backgroundEviction;
+  private int overshootPercentage = 10;
+
+  /**
+   * See {@link Builder#algorithm(Algorithm)}
+   */
+  public Algorithm getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * See {@link Builder#algorithm(Algorithm)}
+   */
+  public void setAlgorithm(Algorithm algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * See {@link Builder#policyFactory(EvictionPolicyFactory)}
+   */
+  public CustomizationSupplier<? extends EvictionPolicyFactory> getPolicyFactory() {
+    return policyFactory;
+  }
+
+  /**
+   * See {@link Builder#policyFactory(EvictionPolicyFactory)}
+   */
+  public void setPolicyFactory(
+    CustomizationSupplier<? extends EvictionPolicyFactory> policyFactory) {
+    this.policyFactory = policyFactory;
+  }
+
+  /**
+   * See {@link Builder#backgroundEviction(boolean)}
+   */
+  public boolean isBackgroundEviction() {
+    return backgroundEviction;
+  }
+
+  /**
+   * See {@link Builder#backgroundEviction(boolean)}
+   */
+  public void setBackgroundEviction(boolean backgroundEviction) {
+    this.backgroundEviction = backgroundEviction;
+  }
+
+  /**
+   * See {@link Builder#overshootPercentage(int)}
+   */
+  public int getOvershootPercentage() {
+    return overshootPercentage;
+  }
+
+  /**
+   * See {@link Builder#overshootPercentage(int)}
+   */
+  public void setOvershootPercentage(int overshootPercentage) {
+    this.overshootPercentage = overshootPercentage;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public enum Algorithm {
+
+    /** Default, see {@link ClockProPlusEviction} */
+    CLOCK_PRO_PLUS(ClockProPlusEviction::new),
+
+    /** Frequency based admission, see {@link TinyLfuEviction} */
+    TINY_LFU(TinyLfuEviction::new);
+
+    private final EvictionPolicyFactory factory;
+
+    Algorithm(EvictionPolicyFactory factory) {
+      this.factory = factory;
+    }
+
+    public EvictionPolicyFactory getFactory() {
+      return factory;
+    }
+
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, EvictionConfig> {
+
+    private final EvictionConfig config;
+
+    private Builder(EvictionConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Eviction algorithm used for the cache. The default is
+     * {@link Algorithm#CLOCK_PRO_PLUS}.
+     */
+    public Builder algorithm(Algorithm v) {
+      config.setAlgorithm(v);
+      return this;
+    }
+
+    /**
+     * Use a custom eviction algorithm. This overrides the setting of
+     * {@link #algorithm(Algorithm)}.
+     */
+    public Builder policyFactory(EvictionPolicyFactory factory) {
+      config.setPolicyFactory(new CustomizationReferenceSupplier<>(factory));
+      return this;
+    }
+
+    /**
+     * Run the eviction on the cache executor, instead of the thread inserting an entry.
+     * The cache may grow above the configured entry capacity or maximum weight, by
+     * the {@link #overshootPercentage(int)}. Cannot be combined with strict eviction.
+     */
+    public Builder backgroundEviction(boolean f) {
+      config.setBackgroundEviction(f);
+      return this;
+    }
+
+    /**
+     * Size or weight above the configured limit, in percent, until inserting
+     * threads run the eviction themselves when background eviction is enabled.
+     * The default is 10 percent.
+     */
+    public Builder overshootPercentage(int v) {
+      config.setOvershootPercentage(v);
+      return this;
+    }
+
+    @Override
+    public EvictionConfig config() {
+      return config;
+    }
+
+  }
+
+}
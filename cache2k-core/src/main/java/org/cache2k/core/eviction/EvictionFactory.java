@@ -32,7 +32,9 @@ import org.cache2k.core.SegmentedEviction;
 public class EvictionFactory {
 
   /**
-   * Construct segmented or queued eviction. For the moment hard coded.
+   * Construct segmented or queued eviction. The algorithm or a custom
+   * {@link EvictionPolicyFactory} is selected via {@link EvictionConfig},
+   * the default is {@link ClockProPlusEviction}.
    * If capacity is at least 1000 we use 2 segments if 2 or more CPUs are available.
    * Segmenting the eviction only improves for lots of concurrent inserts or evictions,
    * there is no effect on read performance.
@@ -68,8 +70,21 @@ public class EvictionFactory {
     Eviction[] segments = new Eviction[segmentCount];
     long maxSize = EvictionFactory.determineMaxSize(entryCapacity, segmentCount);
     long maxWeight = EvictionFactory.determineMaxWeight(maximumWeight, segmentCount);
+    EvictionConfig evictionConfig = config.getSections().getSection(EvictionConfig.class);
+    boolean backgroundEviction = evictionConfig != null && evictionConfig.isBackgroundEviction();
+    if (backgroundEviction && strictEviction) {
+      throw new IllegalArgumentException(
+        "Background eviction cannot be combined with strict eviction");
+    }
+    EvictionPolicyFactory policyFactory = createPolicyFactory(ctx, evictionConfig);
     for (int i = 0; i < segments.length; i++) {
-      segments[i]= new ClockProPlusEviction(hc, l, maxSize, weigher, maxWeight, strictEviction);
+      AbstractEviction segment =
+        policyFactory.create(hc, l, maxSize, weigher, maxWeight, strictEviction);
+      if (backgroundEviction) {
+        segment.enableBackgroundEviction(ctx.getExecutor(),
+          evictionConfig.getOvershootPercentage());
+      }
+      segments[i] = segment;
     }
     Eviction eviction = segmentCount == 1 ? segments[0] : new SegmentedEviction(segments);
     if (config.getIdleScanTime() != null) {
@@ -81,6 +96,18 @@ public class EvictionFactory {
     return eviction;
   }
 
+  /**
+   * Custom policy factory from the configuration, or the factory of the selected algorithm.
+   */
+  private static EvictionPolicyFactory createPolicyFactory(
+    InternalCacheBuildContext<?, ?> ctx, EvictionConfig evictionConfig) {
+    if (evictionConfig == null) {
+      return EvictionConfig.Algorithm.CLOCK_PRO_PLUS.getFactory();
+    }
+    return ctx.createCustomization(evictionConfig.getPolicyFactory(),
+      evictionConfig.getAlgorithm().getFactory());
+  }
+
   public static long determineMaxSize(long entryCapacity, int segmentCount) {
     if (entryCapacity < 0) {
       return -1;
@@ -0,0 +1,54 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.operation.Weigher;
+
+/**
+ * Creates the eviction data structure for one segment of a cache. This allows
+ * custom eviction algorithms, which extend {@link AbstractEviction}. Chunked eviction,
+ * weigher accounting, segmentation and idle scanning are added by the cache.
+ * Constructors of eviction implementations can be used directly,
+ * e.g. {@code TinyLfuEviction::new}.
+ *
+ * <p>Example:
+ * {@code builder.with(EvictionConfig.class, b -> b.policyFactory(MyEviction::new))}
+ *
+ * @author Jens Wilke
+ * @see EvictionConfig.Builder#policyFactory(EvictionPolicyFactory)
+ */
+@FunctionalInterface
+public interface EvictionPolicyFactory {
+
+  /**
+   * Create eviction for a segment. Called once for each segment of a cache.
+   *
+   * @param heapCache the cache, for access to the hash table
+   * @param listener listener to call for each evicted entry
+   * @param maxSize maximum number of entries in the segment, or -1 if a weigher is used
+   * @param weigher weigher or {@code null}
+   * @param maxWeight maximum weight of the segment, or -1 if no weigher is used
+   * @param noChunking evict entries one by one, requested for strict eviction
+   */
+  AbstractEviction create(HeapCacheForEviction heapCache, InternalEvictionListener listener,
+                          long maxSize, Weigher weigher, long maxWeight, boolean noChunking);
+
+}
@@ -0,0 +1,147 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Approximate access frequency of keys, a count-min sketch with four rows of
+ * 4-bit counters packed into one {@code long} array. To keep the history recent, all
+ * counters are halved after a number of increments proportional to the table size.
+ * Used by {@link TinyLfuEviction} to decide about admission of new entries.
+ *
+ * <p>Not thread safe, all access happens under the eviction lock.
+ *
+ * @author Jens Wilke
+ */
+public class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAXIMUM_CAPACITY = 1 << 26;
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private final int sampleFactor;
+  private long[] table;
+  private int tableMask;
+  private long sampleSize;
+  private long additions;
+  private long resetCount;
+
+  /**
+   * @param sampleFactor number of counted accesses per sketch slot until counters are halved
+   */
+  public FrequencySketch(int sampleFactor) {
+    this.sampleFactor = sampleFactor;
+    ensureCapacity(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * Grow the table to hold a useful frequency for the number of entries.
+   * The sketch is never shrunk and existing counts are lost when growing.
+   */
+  public void ensureCapacity(long capacity) {
+    int size = (int) Math.min(Math.max(capacity, MINIMUM_CAPACITY), MAXIMUM_CAPACITY);
+    int length = 1 << (32 - Integer.numberOfLeadingZeros(size - 1));
+    if (table != null && table.length >= length) {
+      return;
+    }
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = (long) length * sampleFactor;
+    additions = 0;
+  }
+
+  /**
+   * Estimated frequency of the hash in the range 0 to 15.
+   */
+  public int frequency(int hash) {
+    int freq = 15;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int h = indexHash(hash, i);
+      int count = (int) ((table[h & tableMask] >>> counterShift(h)) & 0xf);
+      freq = Math.min(freq, count);
+    }
+    return freq;
+  }
+
+  /**
+   * Count a number of accesses for the hash. Counters saturate at 15.
+   */
+  public void increment(int hash, long count) {
+    if (count <= 0) {
+      return;
+    }
+    int delta = (int) Math.min(count, 15);
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int h = indexHash(hash, i);
+      int idx = h & tableMask;
+      int shift = counterShift(h);
+      int current = (int) ((table[idx] >>> shift) & 0xf);
+      int next = Math.min(15, current + delta);
+      if (next != current) {
+        table[idx] += (long) (next - current) << shift;
+        added = true;
+      }
+    }
+    if (added) {
+      additions += delta;
+      if (additions >= sampleSize) {
+        reset();
+      }
+    }
+  }
+
+  /**
+   * Halve all counters, so old accesses lose weight.
+   */
+  private void reset() {
+    long[] tab = table;
+    for (int i = 0; i < tab.length; i++) {
+      tab[i] = (tab[i] >>> 1) & RESET_MASK;
+    }
+    additions = additions >>> 1;
+    resetCount++;
+  }
+
+  private static int indexHash(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h;
+  }
+
+  /**
+   * Select one of the 16 counters in a slot with the upper bits of the hash,
+   * the lower bits select the slot.
+   */
+  private static int counterShift(int h) {
+    return (h >>> 28) << 2;
+  }
+
+  public int getCapacity() {
+    return table.length;
+  }
+
+  public long getResetCount() {
+    return resetCount;
+  }
+
+}
@@ -0,0 +1,237 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * History of evicted entries for {@link ClockProPlusEviction}, storing only the hash
+ * code of the key. The hashes are kept in a ring in insertion order, when the ring
+ * is full the oldest ghost is dropped. An open addressing table with linear probing
+ * holds the ring positions for the lookup by hash. Each ghost takes 10 to 17 bytes,
+ * depending on the table fill. No objects are allocated, except when resized.
+ *
+ * <p>Not thread safe, all access happens under the eviction lock.
+ *
+ * @author Jens Wilke
+ */
+final class GhostHistory {
+
+  /** Returned by {@link #add(int)} if no ghost was dropped */
+  static final int NOTHING_DROPPED = 0;
+  /** Returned by {@link #add(int)} if the dropped ghost was never requested again */
+  static final int DROPPED = 1;
+  /** Returned by {@link #add(int)} if the dropped ghost was requested again */
+  static final int DROPPED_AFTER_HIT = 2;
+
+  private static final int[] EMPTY = new int[0];
+
+  private final int loadPercent;
+  /** Hash code of the ghost at each ring position */
+  private int[] ring = EMPTY;
+  /** One bit per ring position, set when the ghost was requested again */
+  private long[] hits = new long[0];
+  /** Ring position plus one, zero means empty */
+  private int[] table = new int[1];
+  private int tableMask = 0;
+  /** Next ring position to write */
+  private int head;
+  /** Number of ring positions written, maximum is the ring length */
+  private int filled;
+  /** Number of ghosts in the table, lower then filled if ghosts were removed */
+  private int size;
+
+  GhostHistory(int loadPercent) {
+    this.loadPercent = loadPercent;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int capacity() {
+    return ring.length;
+  }
+
+  /**
+   * Change the capacity. The newest ghosts are kept.
+   */
+  void resize(int capacity) {
+    if (capacity == ring.length) {
+      return;
+    }
+    int[] oldRing = ring;
+    int oldFilled = filled;
+    int oldHead = head;
+    int[] positions = new int[oldFilled];
+    long[] oldHits = hits;
+    int count = 0;
+    for (int i = oldFilled; i > 0; i--) {
+      int pos = Math.floorMod(oldHead - i, oldRing.length);
+      if (findSlot(oldRing[pos], pos) >= 0) {
+        positions[count++] = pos;
+      }
+    }
+    ring = capacity > 0 ? new int[capacity] : EMPTY;
+    hits = new long[(capacity + 63) >>> 6];
+    int tableLength = Math.max(2,
+      Integer.highestOneBit((int) Math.max(1, (long) capacity * 100 / loadPercent) * 2 - 1));
+    table = new int[tableLength];
+    tableMask = tableLength - 1;
+    head = filled = size = 0;
+    for (int i = Math.max(0, count - capacity); i < count; i++) {
+      int pos = positions[i];
+      add(oldRing[pos]);
+      if (isHit(oldHits, pos)) {
+        setHit(head == 0 ? ring.length - 1 : head - 1);
+      }
+    }
+  }
+
+  /**
+   * Ring position of the ghost or -1 if not present.
+   */
+  int lookup(int hash) {
+    if (ring.length == 0) {
+      return -1;
+    }
+    int idx = home(hash);
+    int v;
+    while ((v = table[idx]) != 0) {
+      if (ring[v - 1] == hash) {
+        return v - 1;
+      }
+      idx = (idx + 1) & tableMask;
+    }
+    return -1;
+  }
+
+  boolean isHit(int pos) {
+    return isHit(hits, pos);
+  }
+
+  void setHit(int pos) {
+    hits[pos >>> 6] |= 1L << pos;
+  }
+
+  /**
+   * Add a ghost that is not yet present. If the ring is full, the oldest
+   * ghost is dropped.
+   *
+   * @return {@link #NOTHING_DROPPED}, {@link #DROPPED} or {@link #DROPPED_AFTER_HIT}
+   */
+  int add(int hash) {
+    if (ring.length == 0) {
+      return NOTHING_DROPPED;
+    }
+    int pos = head;
+    int dropped = NOTHING_DROPPED;
+    if (filled == ring.length) {
+      int slot = findSlot(ring[pos], pos);
+      if (slot >= 0) {
+        dropped = isHit(pos) ? DROPPED_AFTER_HIT : DROPPED;
+        removeSlot(slot);
+      }
+    } else {
+      filled++;
+    }
+    ring[pos] = hash;
+    hits[pos >>> 6] &= ~(1L << pos);
+    int idx = home(hash);
+    while (table[idx] != 0) {
+      idx = (idx + 1) & tableMask;
+    }
+    table[idx] = pos + 1;
+    size++;
+    head = pos + 1 == ring.length ? 0 : pos + 1;
+    return dropped;
+  }
+
+  /**
+   * Remove the ghost at the ring position. The position stays unused until
+   * the ring wraps around.
+   */
+  void remove(int pos) {
+    int slot = findSlot(ring[pos], pos);
+    if (slot >= 0) {
+      removeSlot(slot);
+    }
+  }
+
+  /**
+   * Count the ghosts in the table and check that each one is found via its hash.
+   */
+  int countReachable() {
+    int count = 0;
+    for (int v : table) {
+      if (v != 0 && lookup(ring[v - 1]) >= 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static boolean isHit(long[] hits, int pos) {
+    return (hits[pos >>> 6] & (1L << pos)) != 0;
+  }
+
+  private int home(int hash) {
+    int h = hash * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & tableMask;
+  }
+
+  /**
+   * Table slot pointing to the ring position or -1.
+   */
+  private int findSlot(int hash, int pos) {
+    int idx = home(hash);
+    int v;
+    while ((v = table[idx]) != 0) {
+      if (v == pos + 1) {
+        return idx;
+      }
+      idx = (idx + 1) & tableMask;
+    }
+    return -1;
+  }
+
+  /**
+   * Remove with backward shift, so no tombstones are needed for linear probing.
+   */
+  private void removeSlot(int slot) {
+    size--;
+    int i = slot;
+    int j = slot;
+    for (;;) {
+      j = (j + 1) & tableMask;
+      int v = table[j];
+      if (v == 0) {
+        table[i] = 0;
+        return;
+      }
+      int k = home(ring[v - 1]);
+      boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+      if (!stays) {
+        table[i] = v;
+        i = j;
+      }
+    }
+  }
+
+}
@@ -42,4 +42,9 @@ public interface HeapCacheForEviction<K, V> {
    */
   void removeEntryForEviction(Entry<K, V> e);
 
+  /**
+   * Log and count an unexpected exception, e.g. within background eviction.
+   */
+  void logAndCountInternalException(String text, Throwable exception);
+
 }
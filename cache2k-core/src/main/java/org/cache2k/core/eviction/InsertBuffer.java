@@ -0,0 +1,137 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.Entry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped ring buffers recording new entries without locking the eviction data
+ * structure. Entries are added by many threads and drained in batches by the thread
+ * holding the eviction lock. The stripe is selected by the entry hash code, so
+ * concurrent inserts of different keys rarely compete for the same stripe. The low
+ * bits of the hash code select the eviction segment, so the stripe is taken from
+ * different bits, otherwise each segment would only use a fraction of its stripes.
+ *
+ * @author Jens Wilke
+ * @see AbstractEviction
+ */
+final class InsertBuffer {
+
+  private final Stripe[] stripes;
+  private final int mask;
+
+  InsertBuffer(int stripeCount, int stripeSize) {
+    int count = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(1, stripeCount) - 1));
+    int size = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, stripeSize) - 1));
+    stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe(size);
+    }
+    mask = count - 1;
+  }
+
+  /**
+   * Add the entry to a stripe. Called by many threads concurrently.
+   *
+   * @return {@code false} if the stripe is full and the entry needs to be inserted directly
+   */
+  boolean offer(Entry e) {
+    Stripe s = stripes[stripeIndex(e.hashCode)];
+    AtomicLong tail = s.tail;
+    for (;;) {
+      long t = tail.get();
+      if (t - s.head >= s.slots.length()) {
+        return false;
+      }
+      if (tail.compareAndSet(t, t + 1)) {
+        s.slots.lazySet((int) t & s.mask, e);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Stripe for the hash code. Multiplying with the golden ratio mixes all bits into the
+   * upper half, which is independent of the low bits used for the segment index. The
+   * hash code may also be an integer key, see {@link org.cache2k.core.IntHeapCache}.
+   */
+  int stripeIndex(int hashCode) {
+    return (hashCode * 0x9E3779B9 >>> 16) & mask;
+  }
+
+  /**
+   * Pass all buffered entries to the consumer. Only one thread may drain at a time.
+   * A slot that is claimed but not yet written stops the draining of that stripe,
+   * the entry is passed on with the next drain.
+   */
+  void drain(Consumer<Entry> consumer) {
+    for (Stripe s : stripes) {
+      long h = s.head;
+      long t = s.tail.get();
+      if (h == t) {
+        continue;
+      }
+      while (h < t) {
+        int idx = (int) h & s.mask;
+        Entry e = s.slots.get(idx);
+        if (e == null) {
+          break;
+        }
+        s.slots.lazySet(idx, null);
+        h++;
+        consumer.accept(e);
+      }
+      s.head = h;
+    }
+  }
+
+  /**
+   * Number of buffered entries. Exact, if no inserts run concurrently.
+   */
+  int size() {
+    int size = 0;
+    for (Stripe s : stripes) {
+      size += (int) (s.tail.get() - s.head);
+    }
+    return size;
+  }
+
+  private static final class Stripe {
+
+    final AtomicReferenceArray<Entry> slots;
+    final int mask;
+    /** Next slot to claim by producers */
+    final AtomicLong tail = new AtomicLong();
+    /** Next slot to drain, only written by the draining thread */
+    volatile long head;
+
+    Stripe(int size) {
+      slots = new AtomicReferenceArray<>(size);
+      mask = size - 1;
+    }
+
+  }
+
+}
@@ -23,6 +23,7 @@ package org.cache2k.core.eviction;
 import org.cache2k.operation.Weigher;
 import org.cache2k.core.Entry;
 import org.cache2k.core.IntegrityState;
+import org.cache2k.core.StampedHash;
 
 /**
  * @author Jens Wilke
@@ -60,7 +61,11 @@ public class RandomEviction extends AbstractEviction {
     Entry[] h0 = heapCache.getHashEntries();
     int idx = evictionIndex % (h0.length);
     Entry e;
-    while ((e = h0[idx]) == null) {
+    while ((e = h0[idx]) == null || e instanceof StampedHash.ForwardingEntry) {
+      if (e != null) {
+        h0 = ((StampedHash.ForwardingEntry) e).table;
+        continue;
+      }
       idx++;
       if (idx >= h0.length) {
         idx = 0;
@@ -0,0 +1,388 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.Entry;
+import org.cache2k.core.IntegrityState;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
+import org.cache2k.operation.Weigher;
+
+/**
+ * Eviction algorithm following the idea of W-TinyLFU: A small admission window in
+ * front of a segmented main space with probation and protected part. When an entry
+ * leaves the window, a frequency sketch decides whether it replaces the next victim
+ * in probation or is evicted itself.
+ *
+ * <p>The cache records hits only in the hit counter of the entry. LRU ordering is
+ * therefore approximated with clocks, like in {@link ClockProPlusEviction}: an entry
+ * with hits is moved to the next segment when passed by the hand, the hits are
+ * added to the frequency sketch at that time.
+ *
+ * <p>The algorithm is explained by the authors in
+ * <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache
+ * Admission Policy</a>.
+ *
+ * @author Jens Wilke
+ * @see EvictionConfig
+ */
+@SuppressWarnings("WeakerAccess")
+public class TinyLfuEviction extends AbstractEviction {
+
+  private static final int WINDOW_PERCENTAGE;
+  private static final int PROTECTED_PERCENTAGE;
+  private static final int SAMPLE_FACTOR;
+
+  static {
+    Tunable tunable = TunableFactory.get(Tunable.class);
+    WINDOW_PERCENTAGE = tunable.windowPercentage;
+    PROTECTED_PERCENTAGE = tunable.protectedPercentage;
+    SAMPLE_FACTOR = tunable.sampleFactor;
+  }
+
+  private final FrequencySketch sketch = new FrequencySketch(SAMPLE_FACTOR);
+
+  private Entry handWindow;
+  private Entry handProbation;
+  private Entry handProtected;
+
+  private int windowSize;
+  private int probationSize;
+  private int protectedSize;
+
+  /** Maximum size of window. Unlimited until the capacity is reached the first time */
+  private long windowMax = Long.MAX_VALUE;
+  private long protectedMax = Long.MAX_VALUE;
+
+  private long admittedCnt;
+  private long rejectedCnt;
+  private long promotedCnt;
+  private long demotedCnt;
+  private long scanCnt;
+
+  public TinyLfuEviction(HeapCacheForEviction heapCache, InternalEvictionListener listener,
+                         long maxSize, Weigher weigher, long maxWeight,
+                         boolean noChunking) {
+    super(heapCache, listener, maxSize, weigher, maxWeight, noChunking);
+    if (weigher == null && maxSize > 0) {
+      sketch.ensureCapacity(maxSize);
+    }
+  }
+
+  public long getWindowMax() {
+    return windowMax;
+  }
+
+  public long getProtectedMax() {
+    return protectedMax;
+  }
+
+  /**
+   * Updates window and protected size based on current size. This is called when
+   * eviction kicks in so the current size is the maximum size this cache should reach.
+   * Before that, all entries are in the window, so the excess moves to probation.
+   */
+  @Override
+  protected void updateHotMax() {
+    long size = getSize();
+    windowMax = Math.max(1, size * WINDOW_PERCENTAGE / 100);
+    protectedMax = (size - windowMax) * PROTECTED_PERCENTAGE / 100;
+    sketch.ensureCapacity(size);
+    while (windowSize > windowMax) {
+      moveWindowHeadToProbation();
+    }
+  }
+
+  @Override
+  protected long getSize() {
+    return windowSize + probationSize + protectedSize;
+  }
+
+  @Override
+  protected void insertIntoReplacementList(Entry e) {
+    sketch.increment(e.hashCode, 1);
+    e.setScanRound(idleScanRound);
+    e.setHot(false);
+    e.setWindow(true);
+    windowSize++;
+    handWindow = Entry.insertIntoTailCyclicList(handWindow, e);
+  }
+
+  @Override
+  protected void removeFromReplacementList(Entry e) {
+    if (e.isWindow()) {
+      handWindow = Entry.removeFromCyclicList(handWindow, e);
+      windowSize--;
+    } else if (e.isHot()) {
+      handProtected = Entry.removeFromCyclicList(handProtected, e);
+      protectedSize--;
+    } else {
+      handProbation = Entry.removeFromCyclicList(handProbation, e);
+      probationSize--;
+    }
+  }
+
+  @Override
+  protected long removeAllFromReplacementList() {
+    long count = removeAll(handWindow) + removeAll(handProbation) + removeAll(handProtected);
+    handWindow = handProbation = handProtected = null;
+    windowSize = probationSize = protectedSize = 0;
+    return count;
+  }
+
+  private static long removeAll(Entry head) {
+    if (head == null) {
+      return 0;
+    }
+    long count = 0;
+    Entry e = head;
+    do {
+      Entry next = e.next;
+      e.removedFromList();
+      count++;
+      e = next;
+    } while (e != head);
+    return count;
+  }
+
+  /**
+   * Move entries exceeding the window size into probation. For each entry the
+   * sketch decides whether it is admitted or becomes the victim itself. The
+   * rejected entry is kept in probation until removed, so the window shrinks
+   * immediately and the next call continues with a different entry.
+   */
+  @Override
+  protected Entry findEvictionCandidate() {
+    while (windowSize > windowMax) {
+      Entry victim = nextProbationVictim();
+      if (victim == null) {
+        moveWindowHeadToProbation();
+        continue;
+      }
+      Entry candidate = handWindow;
+      handWindow = Entry.removeFromCyclicList(candidate);
+      windowSize--;
+      candidate.setWindow(false);
+      if (admit(candidate, victim)) {
+        admittedCnt++;
+        insertIntoProbation(candidate);
+        handProbation = victim.next;
+        return victim;
+      }
+      rejectedCnt++;
+      stepOver(candidate);
+      insertIntoProbation(candidate);
+      return candidate;
+    }
+    Entry victim = nextProbationVictim();
+    if (victim != null) {
+      handProbation = victim.next;
+      return victim;
+    }
+    Entry e = handWindow;
+    handWindow = e.next;
+    return e;
+  }
+
+  private boolean admit(Entry candidate, Entry victim) {
+    recordHits(candidate);
+    return sketch.frequency(candidate.hashCode) > sketch.frequency(victim.hashCode);
+  }
+
+  /**
+   * Run the probation hand. Entries with hits are promoted to the protected
+   * segment, which may demote an entry from protected. If probation is empty, an
+   * entry from protected is demoted.
+   *
+   * @return next entry without hits or {@code null} if probation and protected are empty
+   */
+  private Entry nextProbationVictim() {
+    if (handProbation == null) {
+      if (handProtected == null) {
+        return null;
+      }
+      demoteFromProtected();
+    }
+    Entry hand = handProbation;
+    int maxScan = probationSize;
+    while (hand.hitCnt > 0 && maxScan-- > 0) {
+      scanCnt++;
+      Entry e = hand;
+      hand = Entry.removeFromCyclicList(e);
+      probationSize--;
+      stepOver(e);
+      promotedCnt++;
+      e.setHot(true);
+      protectedSize++;
+      handProtected = Entry.insertIntoTailCyclicList(handProtected, e);
+      if (protectedSize > protectedMax) {
+        handProbation = hand;
+        demoteFromProtected();
+        hand = handProbation;
+      }
+      if (hand == null) {
+        handProbation = null;
+        demoteFromProtected();
+        hand = handProbation;
+      }
+    }
+    scanCnt++;
+    handProbation = hand;
+    return hand;
+  }
+
+  /**
+   * Run the protected hand and move the first entry without hits to the
+   * tail of probation.
+   */
+  private void demoteFromProtected() {
+    Entry hand = handProtected;
+    int maxScan = protectedSize;
+    while (hand.hitCnt > 0 && maxScan-- > 0) {
+      scanCnt++;
+      stepOver(hand);
+      hand = hand.next;
+    }
+    scanCnt++;
+    Entry e = hand;
+    handProtected = Entry.removeFromCyclicList(e);
+    protectedSize--;
+    e.setHot(false);
+    demotedCnt++;
+    insertIntoProbation(e);
+  }
+
+  private void moveWindowHeadToProbation() {
+    Entry e = handWindow;
+    handWindow = Entry.removeFromCyclicList(e);
+    windowSize--;
+    e.setWindow(false);
+    insertIntoProbation(e);
+  }
+
+  private void insertIntoProbation(Entry e) {
+    probationSize++;
+    handProbation = Entry.insertIntoTailCyclicList(handProbation, e);
+  }
+
+  /**
+   * Transfer hits into the frequency sketch and reset the hit counter.
+   */
+  private void recordHits(Entry e) {
+    sketch.increment(e.hashCode, e.hitCnt);
+    e.hitCnt = 0;
+  }
+
+  private void stepOver(Entry e) {
+    recordHits(e);
+    e.setScanRound(idleScanRound);
+  }
+
+  /**
+   * Scan the biggest segment for an entry without hits. Entries with hits
+   * stay in their segment.
+   */
+  @Override
+  protected Entry findIdleCandidate(int maxScan) {
+    if (protectedSize >= probationSize && protectedSize >= windowSize) {
+      if (handProtected == null) {
+        return null;
+      }
+      Entry e = scanIdle(handProtected, maxScan);
+      handProtected = e.next;
+      return e.hitCnt == 0 ? e : null;
+    } else if (probationSize >= windowSize) {
+      Entry e = scanIdle(handProbation, maxScan);
+      handProbation = e.next;
+      return e.hitCnt == 0 ? e : null;
+    }
+    Entry e = scanIdle(handWindow, maxScan);
+    handWindow = e.next;
+    return e.hitCnt == 0 ? e : null;
+  }
+
+  private Entry scanIdle(Entry hand, int maxScan) {
+    while (maxScan-- > 1 && hand.hitCnt > 0) {
+      scanCnt++;
+      stepOver(hand);
+      hand = hand.next;
+    }
+    scanCnt++;
+    return hand;
+  }
+
+  @Override
+  protected long getScanCount() {
+    return scanCnt;
+  }
+
+  @Override
+  public void checkIntegrity(IntegrityState integrityState) {
+    integrityState
+      .check("checkCyclicListIntegrity(handWindow)", Entry.checkCyclicListIntegrity(handWindow))
+      .check("checkCyclicListIntegrity(handProbation)",
+        Entry.checkCyclicListIntegrity(handProbation))
+      .check("checkCyclicListIntegrity(handProtected)",
+        Entry.checkCyclicListIntegrity(handProtected))
+      .checkEquals("getCyclicListEntryCount(handWindow) == windowSize",
+        Entry.getCyclicListEntryCount(handWindow), windowSize)
+      .checkEquals("getCyclicListEntryCount(handProbation) == probationSize",
+        Entry.getCyclicListEntryCount(handProbation), probationSize)
+      .checkEquals("getCyclicListEntryCount(handProtected) == protectedSize",
+        Entry.getCyclicListEntryCount(handProtected), protectedSize);
+  }
+
+  @Override
+  public String toString() {
+    synchronized (lock) {
+      return super.toString() +
+        ", windowSize=" + windowSize +
+        ", windowMaxSize=" + getWindowMax() +
+        ", probationSize=" + probationSize +
+        ", protectedSize=" + protectedSize +
+        ", protectedMaxSize=" + getProtectedMax() +
+        ", sketchCapacity=" + sketch.getCapacity() +
+        ", sketchResetCnt=" + sketch.getResetCount() +
+        ", admittedCnt=" + admittedCnt +
+        ", rejectedCnt=" + rejectedCnt +
+        ", promotedCnt=" + promotedCnt +
+        ", demotedCnt=" + demotedCnt +
+        ", scanCnt=" + scanCnt;
+    }
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Size of the admission window relative to the cache size. 5 percent
+     * gives better results then 1 percent on the web traces, which favor recency.
+     */
+    public int windowPercentage = 5;
+
+    /** Size of the protected segment relative to the main space */
+    public int protectedPercentage = 80;
+
+    /** Halve the frequency counters after this many accesses per sketch slot */
+    public int sampleFactor = 10;
+
+  }
+
+}
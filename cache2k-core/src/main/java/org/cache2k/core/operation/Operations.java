@@ -105,6 +105,27 @@ public class Operations<K, V> {
     }
   };
 
+  /**
+   * Load in the background for stale while revalidate. Only load if the entry is still
+   * existing and was not updated meanwhile.
+   */
+  public final Semantic<K, V, Void> revalidate = new Semantic.MightUpdate<K, V, Void>() {
+
+    @Override
+    public void examine(K key, Progress<K, V, Void> c, ExaminationEntry<K, V> e) {
+      if (c.isDataFreshOrMiss()) {
+        c.noMutation();
+      } else {
+        c.wantMutation();
+      }
+    }
+
+    @Override
+    public void mutate(K key, Progress<K, V, Void> c, ExaminationEntry<K, V> e) {
+      c.load();
+    }
+  };
+
   public Semantic<K, V, ResultEntry<K, V>> getEntry(K key) {
     return GET_ENTRY;
   }
@@ -22,6 +22,7 @@ package org.cache2k.core.spi;
 
 import org.cache2k.CacheManager;
 import org.cache2k.config.Cache2kConfig;
+import org.cache2k.config.Cache2kManagerConfig;
 
 /**
  * Plugin interface for the configuration system. Provides a default configuration,
@@ -61,4 +62,12 @@ public interface CacheConfigProvider {
    */
   Iterable<String> getConfiguredCacheNames(CacheManager mgr);
 
+  /**
+   * Configuration of the cache manager. The default returns the manager defaults, for
+   * providers without a manager configuration.
+   */
+  default Cache2kManagerConfig getManagerConfig(CacheManager mgr) {
+    return new Cache2kManagerConfig();
+  }
+
 }
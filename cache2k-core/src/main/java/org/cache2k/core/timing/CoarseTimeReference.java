@@ -0,0 +1,112 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
+import org.cache2k.operation.TimeReference;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time reference that reads the time from a volatile field, which is updated by a ticker
+ * thread in the configured resolution. This avoids a call to
+ * {@link System#currentTimeMillis()} for each access of an entry that needs a time check,
+ * which happens with sharp expiry, lazy expiry or refresh ahead. The time may be behind by
+ * up to the resolution, so an entry may be visible for this time after expiry.
+ *
+ * <p>Use it per cache via {@link org.cache2k.Cache2kBuilder#timeReference(TimeReference)},
+ * or for all caches of a manager via
+ * {@link org.cache2k.config.Cache2kManagerConfig#setCoarseTimeReference(boolean)}.
+ * The instance is not closed by the cache, since it may be shared between caches. Call
+ * {@link #close()} to stop the ticker thread, the time is read from the system clock after that.
+ *
+ * @author Jens Wilke
+ */
+public final class CoarseTimeReference implements TimeReference {
+
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
+  private final long resolutionNanos;
+  private final Thread ticker;
+  /** Current time or 0 when stopped */
+  private volatile long now;
+
+  /**
+   * Time reference with the default resolution, see {@link Tunable#resolutionMillis}
+   */
+  public CoarseTimeReference() {
+    this(TUNABLE.resolutionMillis);
+  }
+
+  public CoarseTimeReference(long resolutionMillis) {
+    if (resolutionMillis <= 0) {
+      throw new IllegalArgumentException("resolution must be positive");
+    }
+    resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+    now = System.currentTimeMillis();
+    ticker = new Thread(this::tick, "cache2k-coarse-clock");
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  private void tick() {
+    while (!Thread.currentThread().isInterrupted()) {
+      LockSupport.parkNanos(resolutionNanos);
+      now = System.currentTimeMillis();
+    }
+    now = 0;
+  }
+
+  @Override
+  public long millis() {
+    long t = now;
+    return t != 0 ? t : System.currentTimeMillis();
+  }
+
+  @Override
+  public void sleep(long millis) throws InterruptedException {
+    DEFAULT.sleep(millis);
+  }
+
+  /**
+   * Stop the ticker thread.
+   */
+  public void close() {
+    ticker.interrupt();
+  }
+
+  boolean isRunning() {
+    return ticker.isAlive();
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Resolution of the time reference used for all caches of a manager, if enabled.
+     * Should be well below the timer lag.
+     */
+    public long resolutionMillis = 10;
+
+  }
+
+}
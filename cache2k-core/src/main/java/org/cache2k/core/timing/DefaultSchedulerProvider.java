@@ -59,13 +59,20 @@ public class DefaultSchedulerProvider implements CustomizationSupplier<Scheduler
   DefaultSchedulerProvider() { }
 
   @Override
-  public synchronized Scheduler supply(CacheBuildContext<?, ?> buildContext) {
+  public Scheduler supply(CacheBuildContext<?, ?> buildContext) {
+    return supply(buildContext.getExecutor());
+  }
+
+  /**
+   * Scheduler executing the tasks via the given executor. The scheduler must be closed.
+   */
+  public synchronized Scheduler supply(Executor executor) {
     if (usageCounter == 0) {
       scheduledExecutor = new ScheduledThreadPoolExecutor(
         THREAD_COUNT, new DaemonThreadFactory());
     }
     usageCounter++;
-    return new MyScheduler(buildContext.getExecutor());
+    return new MyScheduler(executor);
   }
 
   /**
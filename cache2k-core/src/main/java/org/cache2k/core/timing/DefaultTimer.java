@@ -22,26 +22,55 @@ package org.cache2k.core.timing;
 
 import org.cache2k.core.CacheClosedException;
 import org.cache2k.core.api.InternalCacheCloseContext;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
 import org.cache2k.operation.TimeReference;
 import org.cache2k.operation.Scheduler;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * Standard timer implementation. Due timer tasks are executed via a scheduler
  * that runs at most every second (lag time, configurable). There is always only
  * one pending scheduler job per timer.
  *
+ * <p>The timer structure is partitioned by {@link TimerTask#partitionHash()} into
+ * segments with separate locks, so scheduling and cancelling from different threads
+ * does not contend on a single lock. All segments share one scheduler job.
+ *
+ * <p>In queued mode, schedule and cancel requests are only appended to a lock free
+ * queue. The timer thread applies them to the timer structure in a batch before each run.
+ * If many requests pile up between runs, the requesting thread applies them, if the lock
+ * is available. A task that is due when the request is applied, is executed immediately,
+ * which is within the lag time, since the timer runs at the scheduled time plus lag.
+ *
  * @author Jens Wilke
  */
 public class DefaultTimer implements Timer {
 
-  private final Lock lock = new ReentrantLock();
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
   private final TimeReference clock;
   private final Scheduler scheduler;
-  private final TimerStructure structure;
-  private long nextScheduled = Long.MAX_VALUE;
+  private final Segment[] segments;
+  private final int segmentMask;
+  /**
+   * Guards updates of {@link #nextScheduled} together with the scheduler call.
+   */
+  private final Lock scheduleLock = new ReentrantLock();
+  private volatile long nextScheduled = Long.MAX_VALUE;
+  /**
+   * Pending schedule and cancel requests in queued mode, otherwise {@code null}.
+   * A schedule request is the task itself, a cancel request is a {@link CancelRequest}.
+   */
+  private final Queue<Object> requests;
+  private final AtomicInteger pendingRequests = new AtomicInteger();
+  private final int drainThreshold;
   /**
    * Lag time to gather timer tasks for more efficient execution.
    * Default timer lag defined at {@link org.cache2k.core.HeapCache.Tunable#timerLagMillis}
@@ -60,12 +89,45 @@ public class DefaultTimer implements Timer {
   }
 
   public DefaultTimer(TimeReference c, Scheduler scheduler, long lagMillis, int steps) {
-    structure = new TimerWheels(c.millis() + 1, lagMillis + 1, steps);
+    this(c, scheduler, lagMillis, steps, defaultSegmentCount(), TUNABLE.queuedScheduling);
+  }
+
+  /**
+   * @param segmentCount number of independently locked timer structures, must be a
+   *                     power of two
+   * @param queued schedule and cancel requests are queued and applied by the timer thread
+   */
+  public DefaultTimer(TimeReference c, Scheduler scheduler, long lagMillis, int steps,
+                      int segmentCount, boolean queued) {
+    if (Integer.bitCount(segmentCount) != 1) {
+      throw new IllegalArgumentException("segment count must be a power of two");
+    }
+    segments = new Segment[segmentCount];
+    long startTime = c.millis() + 1;
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(new TimerWheels(startTime, lagMillis + 1, steps));
+    }
+    segmentMask = segmentCount - 1;
+    requests = queued ? new ConcurrentLinkedQueue<>() : null;
+    drainThreshold = TUNABLE.queueDrainThreshold;
     this.lagMillis = lagMillis;
     this.clock = c;
     this.scheduler = scheduler;
   }
 
+  /**
+   * Next power of two of the available processors, limited by {@link Tunable#maxSegments}.
+   */
+  static int defaultSegmentCount() {
+    int ncpu = Runtime.getRuntime().availableProcessors();
+    int count = Integer.highestOneBit(Math.max(1, ncpu * 2 - 1));
+    return Math.max(1, Math.min(count, Integer.highestOneBit(TUNABLE.maxSegments)));
+  }
+
+  private Segment segment(TimerTask task) {
+    return segments[task.partitionHash() & segmentMask];
+  }
+
   /**
    * Schedule the specified timer task for execution at the specified
    * time, in milliseconds.
@@ -82,15 +144,23 @@ public class DefaultTimer implements Timer {
       executeImmediately(task);
       return;
     }
-    long schedulerTime;
-    lock.lock();
+    if (requests != null) {
+      task.time = time;
+      enqueue(task);
+      rescheduleEventually(time + lagMillis);
+      return;
+    }
+    Segment segment = segment(task);
+    boolean scheduled;
+    segment.lock.lock();
     try {
-      if (structure.schedule(task, time)) {
-        rescheduleEventually(time + lagMillis);
-        return;
-      }
+      scheduled = segment.structure.schedule(task, time);
     } finally {
-      lock.unlock();
+      segment.lock.unlock();
+    }
+    if (scheduled) {
+      rescheduleEventually(time + lagMillis);
+      return;
     }
     executeImmediately(task);
   }
@@ -109,9 +179,91 @@ public class DefaultTimer implements Timer {
 
   @Override
   public void cancel(TimerTask t) {
+    if (requests != null) {
+      enqueue(new CancelRequest(t));
+      return;
+    }
+    Segment segment = segment(t);
+    segment.lock.lock();
+    try {
+      segment.structure.cancelAll(t);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  private void enqueue(Object request) {
+    requests.add(request);
+    if (pendingRequests.incrementAndGet() >= drainThreshold) {
+      Lock lock = segments[0].lock;
+      if (lock.tryLock()) {
+        try {
+          drainRequests();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * Apply queued requests to the timer structure. Called with the lock of the first
+   * segment held, to exclude concurrent draining. The segment locks are taken,
+   * since {@link #cancelAll()} may run concurrently.
+   */
+  private void drainRequests() {
+    Object request;
+    while ((request = requests.poll()) != null) {
+      pendingRequests.decrementAndGet();
+      if (request instanceof CancelRequest) {
+        TimerTask task = ((CancelRequest) request).task;
+        Segment segment = segment(task);
+        lockNested(segment);
+        try {
+          segment.structure.cancelAll(task);
+        } finally {
+          unlockNested(segment);
+        }
+      } else {
+        TimerTask task = (TimerTask) request;
+        Segment segment = segment(task);
+        boolean scheduled;
+        lockNested(segment);
+        try {
+          scheduled = segment.structure.schedule(task, task.time);
+        } finally {
+          unlockNested(segment);
+        }
+        if (!scheduled) {
+          executeImmediately(task);
+        }
+      }
+    }
+  }
+
+  private void lockNested(Segment segment) {
+    if (segment != segments[0]) {
+      segment.lock.lock();
+    }
+  }
+
+  private void unlockNested(Segment segment) {
+    if (segment != segments[0]) {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * Apply queued requests, if in queued mode.
+   */
+  private void drainRequestsIfQueued() {
+    if (requests == null) {
+      return;
+    }
+    Lock lock = segments[0].lock;
     lock.lock();
     try {
-      structure.cancelAll(t);
+      drainRequests();
     } finally {
       lock.unlock();
     }
@@ -129,11 +281,39 @@ public class DefaultTimer implements Timer {
    */
   @Override
   public void cancelAll() {
-    lock.lock();
-    try {
-      structure.cancelAll();
-    } finally {
-      lock.unlock();
+    if (requests != null) {
+      Lock lock = segments[0].lock;
+      lock.lock();
+      try {
+        while (requests.poll() != null) {
+          pendingRequests.decrementAndGet();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.structure.cancelAll();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Terminates all pending timer tasks matching the filter.
+   */
+  public void cancelAll(Predicate<TimerTask> filter) {
+    drainRequestsIfQueued();
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.structure.cancelAll(filter);
+      } finally {
+        segment.lock.unlock();
+      }
     }
   }
 
@@ -149,48 +329,69 @@ public class DefaultTimer implements Timer {
    * Its expected that the time is increasing constantly.
    * Per timer there is only one scheduled event, so this method is not
    * running concurrently
+   *
+   * <p>Before the segments are checked for the next run, {@link #nextScheduled} is
+   * reset. A concurrent {@link #schedule} either inserted its task before the segment
+   * is checked, or it sees the reset and schedules the processing itself.
+   * In queued mode the requests are applied after the reset for the same reason.
    */
   private void timeReachedEvent(long currentTime) {
-    while (true) {
-      TimerTask task;
-      lock.lock();
-      try {
-        task = structure.removeNextToRun(currentTime);
-      } finally {
-        lock.unlock();
-      }
-      if (task != null) {
-        task.execute();
-        task.action();
-      } else {
-        long nextTime;
-        lock.lock();
+    drainRequestsIfQueued();
+    for (Segment segment : segments) {
+      while (true) {
+        TimerTask task;
+        segment.lock.lock();
         try {
-          nextTime = structure.nextRun();
-          schedule(currentTime, nextTime);
-        } catch (CacheClosedException ex) {
+          task = segment.structure.removeNextToRun(currentTime);
         } finally {
-          lock.unlock();
+          segment.lock.unlock();
+        }
+        if (task == null) {
+          break;
         }
-        break;
+        task.execute();
+        task.action();
+      }
+    }
+    nextScheduled = Long.MAX_VALUE;
+    drainRequestsIfQueued();
+    long nextTime = Long.MAX_VALUE;
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        nextTime = Math.min(nextTime, segment.structure.nextRun());
+      } finally {
+        segment.lock.unlock();
       }
     }
+    try {
+      schedule(currentTime, nextTime);
+    } catch (CacheClosedException ex) {
+    }
   }
 
   /**
    * Schedule the next time we process expired times. At least wait {@link #lagMillis}.
-   * Also marks that no timer job is scheduled if run with -1 as time parameter.
+   * Nothing is scheduled if called with {@code Long.MAX_VALUE} as time parameter or a
+   * concurrent schedule requested an earlier processing.
    *
    * @param now the current time for calculations
-   * @param time requested time for processing, or -1 if nothing needs to be scheduled
+   * @param time requested time for processing, or {@code Long.MAX_VALUE} if nothing
+   *             needs to be scheduled
    */
   private void schedule(long now, long time) {
-    if (time != Long.MAX_VALUE) {
-      long earliestTime = now + lagMillis;
-      nextScheduled = Math.max(earliestTime, time);
-      scheduler.schedule(timerAction, clock.toMillis(nextScheduled));
-    } else {
-      nextScheduled = Long.MAX_VALUE;
+    if (time == Long.MAX_VALUE) {
+      return;
+    }
+    long earliestTime = Math.max(now + lagMillis, time);
+    scheduleLock.lock();
+    try {
+      if (earliestTime < nextScheduled) {
+        nextScheduled = earliestTime;
+        scheduler.schedule(timerAction, clock.toMillis(earliestTime));
+      }
+    } finally {
+      scheduleLock.unlock();
     }
   }
 
@@ -203,8 +404,66 @@ public class DefaultTimer implements Timer {
     if (time >= nextScheduled - lagMillis) {
       return;
     }
-    nextScheduled = time;
-    scheduler.schedule(timerAction, nextScheduled);
+    scheduleLock.lock();
+    try {
+      if (time >= nextScheduled - lagMillis) {
+        return;
+      }
+      nextScheduled = time;
+      scheduler.schedule(timerAction, time);
+    } finally {
+      scheduleLock.unlock();
+    }
+  }
+
+  /**
+   * Timer structure with its lock.
+   */
+  private static final class Segment {
+
+    private final Lock lock = new ReentrantLock();
+    private final TimerStructure structure;
+
+    Segment(TimerStructure structure) {
+      this.structure = structure;
+    }
+
+  }
+
+  /**
+   * Queued request to cancel a task.
+   */
+  private static final class CancelRequest {
+
+    private final TimerTask task;
+
+    CancelRequest(TimerTask task) {
+      this.task = task;
+    }
+
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Upper limit of the timer segments per cache. The segment count is the
+     * number of available processors, rounded up to the next power of two.
+     * Each segment has its own timer wheels.
+     */
+    public int maxSegments = 8;
+
+    /**
+     * Queue schedule and cancel requests and apply them by the timer thread, so
+     * application threads don't lock the timer structure.
+     */
+    public boolean queuedScheduling = false;
+
+    /**
+     * Number of queued requests after which the requesting thread applies the
+     * requests, if the timer structure is not locked.
+     */
+    public int queueDrainThreshold = 1024;
+
   }
 
 }
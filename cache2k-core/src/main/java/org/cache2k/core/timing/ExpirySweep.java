@@ -0,0 +1,160 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.CacheClosedException;
+import org.cache2k.core.Entry;
+import org.cache2k.core.StampedHash;
+import org.cache2k.core.api.InternalCacheCloseContext;
+import org.cache2k.core.api.NeedsClose;
+import org.cache2k.operation.Scheduler;
+import org.cache2k.operation.TimeReference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes expired entries for lazy expiry, see {@link LazyExpiryConfig}. Like the
+ * {@link org.cache2k.core.eviction.IdleProcessing} this uses the scheduler to wakeup in
+ * regular intervals and covers all entries within the round time. Each wakeup scans a
+ * slice of the hash table buckets, without locking. Expiry is done via
+ * {@link TimerEventListener#timerEventExpireEntry(Entry, Object)} which rechecks the
+ * entry under the entry lock. Buckets already moved by an incremental expansion contain a
+ * {@link StampedHash.ForwardingEntry}, the sweep continues in both buckets of the target
+ * table. When the expansion completes while a round is running, the positions in the
+ * larger table are shifted, entries missed are found in the next round.
+ *
+ * @author Jens Wilke
+ */
+class ExpirySweep<K, V> implements NeedsClose {
+
+  static final int WAKEUPS_PER_ROUND = 100;
+
+  private final TimeReference clock;
+  private final Scheduler scheduler;
+  private final long wakeupInterval;
+  private TimerEventListener<K, V> target;
+  /** Next bucket to scan */
+  private int position;
+  private boolean closed;
+  private long expiredCount;
+  private long roundCompleteCount;
+
+  ExpirySweep(TimeReference clock, Scheduler scheduler, long roundMillis) {
+    this.clock = clock;
+    this.scheduler = scheduler;
+    this.wakeupInterval = Math.max(1, roundMillis / WAKEUPS_PER_ROUND);
+  }
+
+  synchronized void start(TimerEventListener<K, V> target) {
+    this.target = target;
+    scheduleNextWakeup();
+  }
+
+  /**
+   * Scan the next slice. The next wakeup is always scheduled, an exception from the
+   * expiry of an entry is logged and counted and does not stop the sweep.
+   */
+  void wakeup() {
+    try {
+      sweepSlice();
+    } catch (CacheClosedException ignore) {
+    } catch (Throwable t) {
+      target.logAndCountInternalException("expiry sweep", t);
+    } finally {
+      synchronized (this) {
+        if (!closed) {
+          scheduleNextWakeup();
+        }
+      }
+    }
+  }
+
+  private void sweepSlice() {
+    Entry<K, V>[] entries = target.getHashEntries();
+    int start;
+    int end;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      start = position < entries.length ? position : 0;
+      end = Math.min(entries.length, start + entries.length / WAKEUPS_PER_ROUND + 1);
+      if (end == entries.length) {
+        position = 0;
+        roundCompleteCount++;
+      } else {
+        position = end;
+      }
+    }
+    long now = clock.millis();
+    List<Entry<K, V>> expired = new ArrayList<>();
+    for (int i = start; i < end; i++) {
+      collectExpired(entries, i, now, expired);
+    }
+    for (Entry<K, V> e : expired) {
+      target.timerEventExpireEntry(e, null);
+    }
+    synchronized (this) {
+      expiredCount += expired.size();
+    }
+  }
+
+  /**
+   * Collect expired entries of the bucket. If the bucket was moved by an incremental
+   * expansion, collect from the two buckets it was split into.
+   */
+  private static <K, V> void collectExpired(Entry<K, V>[] tab, int i, long now,
+                                            List<Entry<K, V>> expired) {
+    Entry<K, V> e = tab[i];
+    if (e instanceof StampedHash.ForwardingEntry) {
+      Entry<K, V>[] next = ((StampedHash.ForwardingEntry<K, V>) e).table;
+      collectExpired(next, i, now, expired);
+      collectExpired(next, i + tab.length, now, expired);
+      return;
+    }
+    for (; e != null; e = e.another) {
+      long nrt = e.getNextRefreshTime();
+      if (Entry.needsTimeCheck(nrt) && now >= -nrt) {
+        expired.add(e);
+      }
+    }
+  }
+
+  private void scheduleNextWakeup() {
+    scheduler.schedule(this::wakeup, clock.millis() + wakeupInterval);
+  }
+
+  synchronized long getExpiredCount() {
+    return expiredCount;
+  }
+
+  synchronized long getRoundCompleteCount() {
+    return roundCompleteCount;
+  }
+
+  @Override
+  public synchronized void close(InternalCacheCloseContext closeContext) {
+    closed = true;
+    closeContext.closeCustomization(scheduler, "scheduler for expiry sweep");
+  }
+
+}
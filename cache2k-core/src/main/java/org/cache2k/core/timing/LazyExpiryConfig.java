@@ -0,0 +1,86 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration section to enable lazy expiry. If present, no timer task is scheduled
+ * per entry. The expiry time is stored in the entry and checked on access. Expired entries
+ * are removed by an incremental background sweep over the hash table. Expiry listeners are
+ * called late, when the sweep finds the entry. Cannot be combined with refresh ahead.
+ *
+ * <p>Example: {@code builder.with(LazyExpiryConfig.class, b -> b.sweepTime(1, TimeUnit.MINUTES))}
+ *
+ * @author Jens Wilke
+ */
+public class LazyExpiryConfig implements ConfigSection<LazyExpiryConfig, LazyExpiryConfig.Builder> {
+
+  private Duration sweepTime = Duration.ofMinutes(1);
+
+  /**
+   * See {@link Builder#sweepTime(long, TimeUnit)}
+   */
+  public Duration getSweepTime() {
+    return sweepTime;
+  }
+
+  /**
+   * See {@link Builder#sweepTime(long, TimeUnit)}
+   */
+  public void setSweepTime(Duration sweepTime) {
+    this.sweepTime = sweepTime;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, LazyExpiryConfig> {
+
+    private final LazyExpiryConfig config;
+
+    private Builder(LazyExpiryConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Time for the sweep to cover all entries of the cache. Expired entries stay in
+     * memory for up to this time. The default is one minute.
+     */
+    public Builder sweepTime(long v, TimeUnit unit) {
+      config.setSweepTime(Duration.ofMillis(unit.toMillis(v)));
+      return this;
+    }
+
+    @Override
+    public LazyExpiryConfig config() {
+      return config;
+    }
+
+  }
+
+}
@@ -0,0 +1,156 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.config.ConfigSection;
+import org.cache2k.config.SectionBuilder;
+
+/**
+ * Configuration section to tune refresh ahead, which is enabled via
+ * {@link org.cache2k.Cache2kBuilder#refreshAhead(boolean)}.
+ *
+ * <p>Example: {@code builder.with(RefreshAheadConfig.class, b -> b.accessAware(true))}
+ *
+ * @author Jens Wilke
+ */
+public class RefreshAheadConfig
+  implements ConfigSection<RefreshAheadConfig, RefreshAheadConfig.Builder> {
+
+  private boolean accessAware;
+  private int jitterPercent;
+  private long maxRefreshesPerSecond;
+
+  /**
+   * See {@link Builder#accessAware(boolean)}
+   */
+  public boolean isAccessAware() {
+    return accessAware;
+  }
+
+  /**
+   * See {@link Builder#accessAware(boolean)}
+   */
+  public void setAccessAware(boolean accessAware) {
+    this.accessAware = accessAware;
+  }
+
+  /**
+   * See {@link Builder#jitterPercent(int)}
+   */
+  public int getJitterPercent() {
+    return jitterPercent;
+  }
+
+  /**
+   * See {@link Builder#jitterPercent(int)}
+   */
+  public void setJitterPercent(int jitterPercent) {
+    this.jitterPercent = jitterPercent;
+  }
+
+  /**
+   * See {@link Builder#maxRefreshesPerSecond(long)}
+   */
+  public long getMaxRefreshesPerSecond() {
+    return maxRefreshesPerSecond;
+  }
+
+  /**
+   * See {@link Builder#maxRefreshesPerSecond(long)}
+   */
+  public void setMaxRefreshesPerSecond(long maxRefreshesPerSecond) {
+    this.maxRefreshesPerSecond = maxRefreshesPerSecond;
+  }
+
+  @Override
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public static final class Builder implements SectionBuilder<Builder, RefreshAheadConfig> {
+
+    private final RefreshAheadConfig config;
+
+    private Builder(RefreshAheadConfig config) {
+      this.config = config;
+    }
+
+    /**
+     * Only refresh entries that were accessed since they were loaded or refreshed.
+     * Entries not accessed expire instead. Without this option every entry is refreshed
+     * once after it was loaded and expires if not accessed after the refresh. The access
+     * is detected via the hit counter of the entry, which is also modified by the eviction.
+     * In rare cases, an entry may be refreshed, although it was not accessed, or the other
+     * way around.
+     */
+    public Builder accessAware(boolean f) {
+      config.setAccessAware(f);
+      return this;
+    }
+
+    /**
+     * Delay the refresh by a random amount of up to the given percentage of the time
+     * until the regular refresh. Entries loaded at the same time are refreshed spread
+     * out over a time span and not at once. The refresh is never scheduled earlier,
+     * since an entry is only refreshed after its expiry time was reached.
+     *
+     * <p>Without sharp expiry, the current value stays visible until the refresh
+     * starts. This means the jitter extends the visibility of a value beyond
+     * {@link org.cache2k.Cache2kBuilder#expireAfterWrite}, e.g. with 50 percent and
+     * one hour expiry, a value may be returned for up to 30 minutes after its expiry.
+     * Default is 0, meaning no jitter.
+     */
+    public Builder jitterPercent(int v) {
+      if (v < 0 || v > 100) {
+        throw new IllegalArgumentException("jitter percent must be between 0 and 100");
+      }
+      config.setJitterPercent(v);
+      return this;
+    }
+
+    /**
+     * Limit the rate of refreshes started by the timer. A burst of up to the number
+     * of refreshes per second is allowed. When the limit is reached, the refresh is
+     * deferred to the next free slot instead of being dropped. Meanwhile, the entry
+     * stays visible with its current value. The deferral is not bounded: if more
+     * entries are due than the limit allows, the backlog grows and values stay visible
+     * beyond their expiry time until their slot is reached. Choose the limit above
+     * the average refresh rate, which is the number of entries divided by the expiry
+     * time. Default is 0, meaning no limit.
+     *
+     * @see org.cache2k.core.api.InternalCacheInfo#getRefreshDeferredCount()
+     */
+    public Builder maxRefreshesPerSecond(long v) {
+      if (v < 0) {
+        throw new IllegalArgumentException("refreshes per second must not be negative");
+      }
+      config.setMaxRefreshesPerSecond(v);
+      return this;
+    }
+
+    @Override
+    public RefreshAheadConfig config() {
+      return config;
+    }
+
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Token bucket limiting the refreshes started by the timer. The bucket holds up to
+ * one second of permits. If no permit is available, the next free slot is reserved,
+ * so deferred refreshes are started at the configured rate and not dropped.
+ *
+ * @author Jens Wilke
+ */
+final class RefreshRateLimiter {
+
+  private static final long MICROS_PER_SECOND = 1_000_000;
+
+  private final long intervalMicros;
+  private final long burstMicros;
+  /** Time of the next free slot in microseconds, guarded by this */
+  private long nextFreeMicros;
+
+  RefreshRateLimiter(long permitsPerSecond) {
+    intervalMicros = Math.max(1, MICROS_PER_SECOND / permitsPerSecond);
+    burstMicros = intervalMicros * Math.min(permitsPerSecond, MICROS_PER_SECOND);
+  }
+
+  /**
+   * Take a permit or reserve the next free slot.
+   *
+   * @param now current time in milliseconds
+   * @return 0, if a permit is available now, otherwise the time in milliseconds of
+   *         the reserved slot
+   */
+  synchronized long reserve(long now) {
+    long nowMicros = now * 1000;
+    long slot = Math.max(nextFreeMicros, nowMicros - burstMicros + intervalMicros);
+    nextFreeMicros = slot + intervalMicros;
+    if (slot <= nowMicros) {
+      return 0;
+    }
+    return (slot + 999) / 1000;
+  }
+
+}
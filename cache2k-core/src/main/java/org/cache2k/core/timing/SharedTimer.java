@@ -0,0 +1,145 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.api.InternalCacheCloseContext;
+import org.cache2k.operation.Scheduler;
+import org.cache2k.operation.TimeReference;
+
+import java.util.function.Predicate;
+
+/**
+ * One timer used by all caches of a cache manager. Each cache uses a client that
+ * schedules into the common {@link DefaultTimer}, so there is only one timer structure
+ * and one pending scheduler wakeup for all caches. The scheduler is closed when the
+ * last client is closed.
+ *
+ * @author Jens Wilke
+ */
+public class SharedTimer {
+
+  private final TimeReference clock;
+  private final Scheduler scheduler;
+  private final DefaultTimer timer;
+  private int clientCount;
+  private boolean closed;
+
+  public SharedTimer(TimeReference clock, Scheduler scheduler, long lagMillis) {
+    this.clock = clock;
+    this.scheduler = scheduler;
+    timer = new DefaultTimer(clock, scheduler, lagMillis);
+  }
+
+  public TimeReference getClock() {
+    return clock;
+  }
+
+  public long getLagMillis() {
+    return timer.getLagMillis();
+  }
+
+  /**
+   * Timer for one cache.
+   *
+   * @param ownTasks identifies the tasks of the cache, used to cancel all of them
+   *                 without touching the tasks of other caches
+   */
+  public synchronized Timer createClient(Predicate<TimerTask> ownTasks) {
+    if (closed) {
+      throw new IllegalStateException("shared timer closed");
+    }
+    clientCount++;
+    return new Client(ownTasks);
+  }
+
+  public synchronized int getClientCount() {
+    return clientCount;
+  }
+
+  /**
+   * True, if all clients were closed. A new instance is needed for further caches.
+   */
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  private synchronized void clientClosed(InternalCacheCloseContext closeContext) {
+    if (--clientCount == 0) {
+      closed = true;
+      timer.cancelAll();
+      closeContext.closeCustomization(scheduler, "scheduler");
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SharedTimer{clientCount=" + getClientCount() + ", closed=" + isClosed() + '}';
+  }
+
+  private class Client implements Timer {
+
+    private final Predicate<TimerTask> ownTasks;
+    private boolean closed;
+
+    Client(Predicate<TimerTask> ownTasks) {
+      this.ownTasks = ownTasks;
+    }
+
+    @Override
+    public void schedule(TimerTask task, long time) {
+      timer.schedule(task, time);
+    }
+
+    @Override
+    public void cancel(TimerTask t) {
+      timer.cancel(t);
+    }
+
+    /**
+     * Scans the tasks of all clients, which is O(all tasks) in the common timer.
+     * Tracking the tasks per client would add overhead to every schedule and cancel,
+     * while cancelling all tasks only happens on clear and close.
+     */
+    @Override
+    public void cancelAll() {
+      timer.cancelAll(ownTasks);
+    }
+
+    @Override
+    public long getLagMillis() {
+      return timer.getLagMillis();
+    }
+
+    /**
+     * Make sure the client count is decreased exactly once.
+     */
+    @Override
+    public synchronized void close(InternalCacheCloseContext closeContext) {
+      if (!closed) {
+        closed = true;
+        cancelAll();
+        clientClosed(closeContext);
+      }
+    }
+
+  }
+
+}
@@ -21,12 +21,16 @@ package org.cache2k.core.timing;
  */
 
 import org.cache2k.CacheEntry;
+import org.cache2k.CacheManager;
 import org.cache2k.config.Cache2kConfig;
 import org.cache2k.core.api.InternalCacheBuildContext;
 import org.cache2k.core.api.InternalCacheCloseContext;
 import org.cache2k.core.Entry;
+import org.cache2k.core.CacheManagerImpl;
 import org.cache2k.core.ExceptionWrapper;
 import org.cache2k.core.HeapCache;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
 import org.cache2k.operation.TimeReference;
 import org.cache2k.operation.Scheduler;
 import org.cache2k.expiry.Expiry;
@@ -35,6 +39,8 @@ import org.cache2k.expiry.ExpiryTimeValues;
 import org.cache2k.io.LoadExceptionInfo;
 import org.cache2k.io.ResiliencePolicy;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Expiry time is constant
  *
@@ -44,13 +50,22 @@ public class StaticTiming<K, V> extends Timing<K, V> {
 
   static final long SAFETY_GAP_MILLIS = HeapCache.TUNABLE.sharpExpirySafetyGapMillis;
 
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
   protected final ResiliencePolicy<K, V> resiliencePolicy;
   protected final TimeReference clock;
   protected final boolean sharpExpiry;
   protected final boolean refreshAhead;
+  protected final boolean accessAwareRefresh;
+  protected final int jitterPercent;
+  /** Limiter for refreshes started by the timer or {@code null} */
+  private final RefreshRateLimiter refreshLimiter;
   protected final long expiryMillis;
   protected final long lagMillis;
+  /** Timer or {@code null} with lazy expiry */
   private final Timer timer;
+  /** Sweep for lazy expiry or {@code null} */
+  private final ExpirySweep<K, V> sweep;
 
   private TimerEventListener<K, V> target;
 
@@ -65,30 +80,84 @@ public class StaticTiming<K, V> extends Timing<K, V> {
       this.expiryMillis = cfg.getExpireAfterWrite().toMillis();
     }
     refreshAhead = cfg.isRefreshAhead();
+    RefreshAheadConfig refreshAheadConfig =
+      cfg.getSections().getSection(RefreshAheadConfig.class);
+    if (refreshAheadConfig != null && refreshAhead) {
+      accessAwareRefresh = refreshAheadConfig.isAccessAware();
+      jitterPercent = refreshAheadConfig.getJitterPercent();
+      refreshLimiter = refreshAheadConfig.getMaxRefreshesPerSecond() > 0 ?
+        new RefreshRateLimiter(refreshAheadConfig.getMaxRefreshesPerSecond()) : null;
+    } else {
+      accessAwareRefresh = false;
+      jitterPercent = 0;
+      refreshLimiter = null;
+    }
     sharpExpiry = cfg.isSharpExpiry();
     if (cfg.getTimerLag() == null) {
       lagMillis = HeapCache.TUNABLE.timerLagMillis;
     } else {
       lagMillis = cfg.getTimerLag().toMillis();
     }
-    timer = new DefaultTimer(clock, buildContext.createScheduler(), lagMillis);
+    LazyExpiryConfig lazyExpiry = cfg.getSections().getSection(LazyExpiryConfig.class);
+    if (lazyExpiry != null) {
+      if (refreshAhead) {
+        throw new IllegalArgumentException("lazy expiry cannot be combined with refresh ahead");
+      }
+      timer = null;
+      sweep = new ExpirySweep<>(clock, buildContext.createScheduler(),
+        lazyExpiry.getSweepTime().toMillis());
+    } else {
+      timer = createTimer(buildContext);
+      sweep = null;
+    }
     this.resiliencePolicy = resiliencePolicy;
   }
 
+  /**
+   * Use the timer of the cache manager, if enabled and the cache has no special
+   * time reference, scheduler or timer lag. The default time reference of the manager
+   * may be the coarse time reference.
+   */
+  private Timer createTimer(InternalCacheBuildContext<K, V> buildContext) {
+    CacheManager mgr = buildContext.getCacheManager();
+    if (mgr instanceof CacheManagerImpl &&
+      ((CacheManagerImpl) mgr).canUseSharedTimer(buildContext.getConfig(), clock)) {
+      return ((CacheManagerImpl) mgr).createSharedTimerClient(
+        task -> task instanceof Tasks && ((Tasks<?, ?>) task).getTarget() == target);
+    }
+    return new DefaultTimer(clock, buildContext.createScheduler(), lagMillis);
+  }
+
+  @Override
+  public Timer getTimer() {
+    return timer;
+  }
+
   @Override
   public void setTarget(TimerEventListener<K, V> target) {
     this.target = target;
+    if (sweep != null) {
+      sweep.start(target);
+    }
   }
 
   @Override
   public void cancelAll() {
-    timer.cancelAll();
+    if (timer instanceof DefaultTimer) {
+      ((DefaultTimer) timer).cancelAll(task -> task instanceof Tasks);
+    } else if (timer != null) {
+      timer.cancelAll();
+    }
   }
 
   @Override
   public void close(InternalCacheCloseContext closeContext) {
     closeContext.closeCustomization(resiliencePolicy, "resiliencePolicy");
-    timer.close(closeContext);
+    if (timer != null) {
+      timer.close(closeContext);
+    } else {
+      sweep.close(closeContext);
+    }
   }
 
   @Override
@@ -137,6 +206,12 @@ public class StaticTiming<K, V> extends Timing<K, V> {
    */
   @Override
   public long stopStartTimer(long expiryTime, Entry<K, V> e) {
+    if (timer == null) {
+      return lazyExpiryTime(expiryTime, e);
+    }
+    if (TUNABLE.lazyReschedule && deferTimer(expiryTime, e)) {
+      return expiryTime;
+    }
     cancelExpiryTimer(e);
     if (expiryTime == ExpiryTimeValues.NOW) {
       return Entry.EXPIRED;
@@ -165,11 +240,128 @@ public class StaticTiming<K, V> extends Timing<K, V> {
         scheduleFinalExpireWithOptionalRefresh(e, -expiryTime);
       }
     } else {
-      scheduleFinalExpireWithOptionalRefresh(e, expiryTime);
+      scheduleFinalExpireWithOptionalRefresh(e, addJitter(expiryTime, now));
     }
     return expiryTime;
   }
 
+  /**
+   * Lazy expiry: no timer is used. A point in time is stored negative, so the
+   * time is checked on each access, like with sharp expiry. The entry is removed
+   * by the {@link ExpirySweep}.
+   */
+  private long lazyExpiryTime(long expiryTime, Entry<K, V> e) {
+    if (expiryTime == ExpiryTimeValues.NOW) {
+      return Entry.EXPIRED;
+    }
+    if (expiryTime == ExpiryTimeValues.NEUTRAL) {
+      long nrt = e.getNextRefreshTime();
+      if (nrt == 0) {
+        throw new IllegalArgumentException("neutral expiry not allowed for creation");
+      }
+      return nrt;
+    }
+    if (expiryTime == ExpiryTimeValues.ETERNAL) {
+      return expiryTime;
+    }
+    long t = Math.abs(expiryTime);
+    if (t <= clock.millis()) {
+      return Entry.EXPIRED;
+    }
+    return -t;
+  }
+
+  /**
+   * If the entry has a pending timer task of the needed type, which runs before the
+   * requested time, keep the task and record the requested time. That is the common
+   * case when an entry is updated and {@code expireAfterWrite} is used.
+   * Only done for the timer without sharp expiry.
+   *
+   * @return true, if the timer event was deferred
+   * @see #rescheduleDeferredTimer(Entry, Object)
+   */
+  @SuppressWarnings("unchecked")
+  boolean deferTimer(long expiryTime, Entry<K, V> e) {
+    if (expiryTime <= 0 || expiryTime == ExpiryTimeValues.ETERNAL) {
+      return false;
+    }
+    Tasks<K, V> tsk = (Tasks<K, V>) e.getTask();
+    Class<?> neededType = refreshAhead ? Tasks.RefreshTimerTask.class : Tasks.ExpireTimerTask.class;
+    if (tsk == null || tsk.getClass() != neededType || tsk.isCancelled() || tsk.isExecuted()
+      || tsk.time > expiryTime || expiryTime <= clock.millis()) {
+      return false;
+    }
+    tsk.deferredTime = expiryTime;
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean rescheduleDeferredTimer(Entry<K, V> e, Object task) {
+    if (task == null) {
+      return false;
+    }
+    long deferredTime = ((Tasks<K, V>) task).deferredTime;
+    if (deferredTime == 0 || deferredTime <= clock.millis()) {
+      return false;
+    }
+    scheduleFinalExpireWithOptionalRefresh(e, addJitter(deferredTime, clock.millis()));
+    ((Tasks<K, V>) e.getTask()).hitCount = ((Tasks<K, V>) task).hitCount;
+    return true;
+  }
+
+  /**
+   * Delay the refresh by a random amount, if jitter is configured. Only called
+   * without sharp expiry, so the value stays visible until the delayed timer event.
+   */
+  long addJitter(long t, long now) {
+    if (jitterPercent == 0) {
+      return t;
+    }
+    long span = (t - now) * jitterPercent / 100;
+    if (span <= 0) {
+      return t;
+    }
+    return t + ThreadLocalRandom.current().nextLong(span + 1);
+  }
+
+  /**
+   * Reserve a slot from the rate limiter. If no slot is available now, schedule a new
+   * refresh task at the time of the reserved slot.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean deferRefresh(Entry<K, V> e, Object task) {
+    Tasks<K, V> tsk = (Tasks<K, V>) task;
+    if (refreshLimiter == null || tsk.refreshReserved) {
+      return false;
+    }
+    long slotTime = refreshLimiter.reserve(clock.millis());
+    if (slotTime == 0) {
+      return false;
+    }
+    Tasks<K, V> deferred = new Tasks.RefreshTimerTask<K, V>().to(target, e);
+    deferred.hitCount = tsk.hitCount;
+    deferred.refreshReserved = true;
+    e.setTask(deferred);
+    scheduleTask(slotTime, e);
+    return true;
+  }
+
+  /**
+   * With access aware refresh, only refresh if the hit counter changed since the
+   * refresh task was scheduled.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean shouldRefresh(Entry<K, V> e, Object task) {
+    if (!accessAwareRefresh) {
+      return true;
+    }
+    long hitCount = ((Tasks<K, V>) task).hitCount;
+    return hitCount < 0 || e.hitCnt != hitCount;
+  }
+
   /**
    * @return true, if entry is finally expired.
    */
@@ -188,6 +380,9 @@ public class StaticTiming<K, V> extends Timing<K, V> {
 
   @Override
   public void scheduleFinalTimerForSharpExpiry(Entry<K, V> e) {
+    if (timer == null) {
+      return;
+    }
     cancelExpiryTimer(e);
     scheduleFinalExpireWithOptionalRefresh(e, e.getNextRefreshTime());
   }
@@ -197,7 +392,9 @@ public class StaticTiming<K, V> extends Timing<K, V> {
    */
   void scheduleFinalExpireWithOptionalRefresh(Entry<K, V> e, long t) {
     if (refreshAhead) {
-      e.setTask(new Tasks.RefreshTimerTask<K, V>().to(target, e));
+      Tasks<K, V> tsk = new Tasks.RefreshTimerTask<K, V>().to(target, e);
+      tsk.hitCount = e.hitCnt;
+      e.setTask(tsk);
     } else {
       e.setTask(new Tasks.ExpireTimerTask<K, V>().to(target, e));
     }
@@ -214,7 +411,7 @@ public class StaticTiming<K, V> extends Timing<K, V> {
   @SuppressWarnings("unchecked")
   public void cancelExpiryTimer(Entry<K, V> e) {
     Tasks<K, V> tsk = (Tasks<K, V>) e.getTask();
-    if (tsk != null) {
+    if (tsk != null && timer != null) {
       timer.cancel(tsk);
     }
     e.setTask(null);
@@ -260,4 +457,15 @@ public class StaticTiming<K, V> extends Timing<K, V> {
     return Expiry.mixTimeSpanAndPointInTime(now, maxLinger, requestedExpiryTime);
   }
 
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * When an update moves the expiry to a later time, keep the scheduled timer task and
+     * schedule a new task for the remaining time when it fires. Saves the cancel and
+     * schedule in the timer structure on every update.
+     */
+    public boolean lazyReschedule = true;
+
+  }
+
 }
@@ -30,6 +30,21 @@ abstract class Tasks<K, V> extends TimerTask {
 
   private Entry<K, V> entry;
   private TimerEventListener<K, V> target;
+  /**
+   * Later time the timer event is needed, or 0. Updated instead of rescheduling the
+   * task, when an update pushes the expiry to a later time. Guarded by the entry lock.
+   */
+  long deferredTime;
+  /**
+   * Hit counter of the entry when a refresh task was scheduled, or -1 if not recorded.
+   * Used for access aware refresh.
+   */
+  long hitCount = -1;
+  /**
+   * The refresh was deferred by the rate limiter and got a reserved slot, so
+   * the refresh is started without checking the limit again.
+   */
+  boolean refreshReserved;
 
   Tasks<K, V> to(TimerEventListener<K, V> target, Entry<K, V> e) {
     this.target = target;
@@ -50,6 +65,15 @@ abstract class Tasks<K, V> extends TimerTask {
     return false;
   }
 
+  /**
+   * Partition by the entry hash, the entry reference is removed after cancel.
+   */
+  @Override
+  protected int partitionHash() {
+    Entry<K, V> e = entry;
+    return e != null ? e.hashCode : 0;
+  }
+
   protected TimerEventListener<K, V> getTarget() {
     return target;
   }
@@ -63,4 +63,14 @@ public interface TimerEventListener<K, V> {
    */
   void timerEventProbationTerminated(Entry<K, V> e, Object task);
 
+  /**
+   * Hash table of the cache, used by the {@link ExpirySweep} to find expired entries.
+   */
+  Entry<K, V>[] getHashEntries();
+
+  /**
+   * Log and count an exception within a timer triggered background operation.
+   */
+  void logAndCountInternalException(String text, Throwable exception);
+
 }
@@ -20,6 +20,8 @@ package org.cache2k.core.timing;
  * #L%
  */
 
+import java.util.function.Predicate;
+
 /**
  * Interface of the timer task data structure.
  *
@@ -53,6 +55,11 @@ public interface TimerStructure {
    */
   void cancelAll();
 
+  /**
+   * Cancel all tasks matching the filter. Needs to visit all tasks.
+   */
+  void cancelAll(Predicate<TimerTask> filter);
+
   /**
    * Return a task that is supposed to execute at the given time or earlier.
    * This also moves the clock hand of the timer structure.
@@ -45,6 +45,13 @@ public abstract class TimerTask implements Runnable {
    */
   protected abstract void action();
 
+  /**
+   * Selects the timer segment. The value must not change while the task is scheduled.
+   */
+  protected int partitionHash() {
+    return System.identityHashCode(this);
+  }
+
   protected boolean cancel() {
     if (next != null) {
       remove();
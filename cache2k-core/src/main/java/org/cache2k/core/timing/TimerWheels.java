@@ -20,6 +20,8 @@ package org.cache2k.core.timing;
  * #L%
  */
 
+import java.util.function.Predicate;
+
 /**
  * Hierarchical timer wheel implementation. The implementation is flexible and
  * can work with variable delta time per time slot and variable slots per wheel
@@ -50,6 +52,12 @@ public class TimerWheels implements TimerStructure {
     wheel.cancel();
   }
 
+  public void cancelAll(Predicate<TimerTask> filter) {
+    for (Wheel w = wheel; w != null; w = w.up) {
+      w.cancel(filter);
+    }
+  }
+
   public TimerTask removeNextToRun(long time) {
     TimerTask t = wheel.removeNextToRun(time);
     return t;
@@ -100,6 +108,19 @@ public class TimerWheels implements TimerStructure {
       initArray(slots.length);
     }
 
+    private void cancel(Predicate<TimerTask> filter) {
+      for (TimerTask head : slots) {
+        TimerTask t = head.next;
+        while (t != head) {
+          TimerTask next = t.next;
+          if (filter.test(t)) {
+            t.cancel();
+          }
+          t = next;
+        }
+      }
+    }
+
     /**
      * Time, when all tasks for the given slot index can be executed.
      */
@@ -99,6 +99,13 @@ public abstract class Timing<K, V> implements NeedsClose {
    */
   public void setTarget(TimerEventListener<K, V> c) { }
 
+  /**
+   * Timer for expiry and refresh or {@code null}, if no timer is used. The cache
+   * may schedule other tasks into it. Only the tasks of the timing are cancelled
+   * by {@link #cancelAll()}.
+   */
+  public Timer getTimer() { return null; }
+
   /**
    * Cancels all pending timer events.
    */
@@ -163,4 +170,35 @@ public abstract class Timing<K, V> implements NeedsClose {
    */
   public void scheduleFinalTimerForSharpExpiry(Entry<K, V> e) { }
 
+  /**
+   * Called from the refresh timer event with the entry locked.
+   *
+   * @return true, if the entry should be refreshed, false if it should expire instead
+   */
+  public boolean shouldRefresh(Entry<K, V> e, Object task) {
+    return true;
+  }
+
+  /**
+   * Called from the refresh timer event with the entry locked, after
+   * {@link #shouldRefresh(Entry, Object)}. If the refresh rate limit is reached,
+   * a new refresh timer event is scheduled.
+   *
+   * @return true, if the refresh was deferred and should not be started now
+   */
+  public boolean deferRefresh(Entry<K, V> e, Object task) {
+    return false;
+  }
+
+  /**
+   * Called from the timer event with the entry locked. If an update moved the
+   * timer event to a later time without rescheduling the task, schedule a new task
+   * for the remaining time.
+   *
+   * @return true, if the timer event was rescheduled and should be ignored
+   */
+  public boolean rescheduleDeferredTimer(Entry<K, V> e, Object task) {
+    return false;
+  }
+
 }
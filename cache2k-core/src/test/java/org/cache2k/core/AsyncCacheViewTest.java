@@ -0,0 +1,154 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.AsyncCache;
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.io.AsyncCacheLoader;
+import org.cache2k.io.CacheLoaderException;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Test the non blocking view requested via {@code requestInterface(AsyncCache.class)}.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class AsyncCacheViewTest {
+
+  final AtomicInteger loads = new AtomicInteger();
+  final Map<Integer, AsyncCacheLoader.Callback<Integer>> pending = new ConcurrentHashMap<>();
+  Cache<Integer, Integer> cache;
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  AsyncCache<Integer, Integer> asyncLoaderCache() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .loader((AsyncCacheLoader<Integer, Integer>) (key, context, callback) -> {
+        loads.incrementAndGet();
+        pending.put(key, callback);
+      })
+      .build();
+    return cache.requestInterface(AsyncCache.class);
+  }
+
+  AsyncCache<Integer, Integer> syncLoaderCache() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .loader(k -> {
+        loads.incrementAndGet();
+        if (k == 99) {
+          throw new IllegalStateException("test");
+        }
+        return k + 1;
+      })
+      .build();
+    return cache.requestInterface(AsyncCache.class);
+  }
+
+  @Test
+  public void concurrentRequestsShareLoad() throws Exception {
+    AsyncCache<Integer, Integer> async = asyncLoaderCache();
+    CompletableFuture<Integer> f1 = async.getAsync(1);
+    CompletableFuture<Integer> f2 = async.getAsync(1);
+    assertThat(f1).isNotDone();
+    assertThat(f2).isNotDone();
+    assertThat(loads.get()).isEqualTo(1);
+    pending.get(1).onLoadSuccess(4711);
+    assertThat(f1.get()).isEqualTo(4711);
+    assertThat(f2.get()).isEqualTo(4711);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(async.getAsync(1)).isCompletedWithValue(4711);
+  }
+
+  @Test
+  public void asyncLoaderFailure() {
+    AsyncCache<Integer, Integer> async = asyncLoaderCache();
+    CompletableFuture<Integer> f = async.getAsync(1);
+    pending.get(1).onLoadFailure(new IllegalStateException("test"));
+    assertThatThrownBy(f::get)
+      .isInstanceOf(ExecutionException.class)
+      .hasCauseInstanceOf(CacheLoaderException.class);
+  }
+
+  @Test
+  public void getAllAsync() throws Exception {
+    AsyncCache<Integer, Integer> async = asyncLoaderCache();
+    cache.put(1, 100);
+    CompletableFuture<Map<Integer, Integer>> f = async.getAllAsync(asList(1, 2, 3));
+    assertThat(f).isNotDone();
+    pending.get(2).onLoadSuccess(200);
+    pending.get(3).onLoadFailure(new IllegalStateException("test"));
+    Map<Integer, Integer> map = f.get();
+    assertThat(map.get(1)).isEqualTo(100);
+    assertThat(map.get(2)).isEqualTo(200);
+    assertThatThrownBy(() -> map.get(3)).isInstanceOf(CacheLoaderException.class);
+  }
+
+  @Test
+  public void syncLoader() throws Exception {
+    AsyncCache<Integer, Integer> async = syncLoaderCache();
+    assertThat(async.getAsync(1).get()).isEqualTo(2);
+    assertThat(async.getAsync(1)).isCompletedWithValue(2);
+    assertThatThrownBy(() -> async.getAsync(99).get())
+      .hasCauseInstanceOf(CacheLoaderException.class);
+    Map<Integer, Integer> map = async.getAllAsync(asList(1, 2, 3)).get();
+    assertThat(map).containsEntry(1, 2).containsEntry(2, 3).containsEntry(3, 4);
+    assertThat(loads.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void computeIfAbsent() throws Exception {
+    AsyncCache<Integer, Integer> async = syncLoaderCache();
+    assertThat(async.computeIfAbsentAsync(1, k -> 123).get()).isEqualTo(123);
+    assertThat(async.computeIfAbsentAsync(1, k -> 456)).isCompletedWithValue(123);
+    assertThat(cache.peek(1)).isEqualTo(123);
+    assertThatThrownBy(() -> async.computeIfAbsentAsync(2, k -> {
+      throw new IllegalArgumentException("test");
+    }).get()).hasCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(cache.containsKey(2)).isFalse();
+    assertThat(loads.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void viewOfCache() {
+    AsyncCache<Integer, Integer> async = syncLoaderCache();
+    assertThat(async.getCache()).isSameAs(cache);
+  }
+
+}
@@ -0,0 +1,213 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.core.api.InternalCacheInfo;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.expiry.ExpiryTimeValues;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Loads above the limit are queued, served stale or shed.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class LoadLimitTest {
+
+  static final int BLOCKING_KEY = 1;
+
+  final CountDownLatch loadStarted = new CountDownLatch(1);
+  final CountDownLatch releaseLoad = new CountDownLatch(1);
+  Cache<Integer, Integer> cache;
+
+  @After
+  public void tearDown() throws Exception {
+    releaseLoad.countDown();
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  Cache2kBuilder<Integer, Integer> builder(Consumer<LoadLimitConfig.Builder> limit) {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .expireAfterWrite(5, TimeUnit.MINUTES)
+      .keepDataAfterExpired(true)
+      .loader(k -> {
+        if (k == BLOCKING_KEY) {
+          loadStarted.countDown();
+          releaseLoad.await();
+        }
+        return k * 10;
+      })
+      .with(LoadLimitConfig.class, b -> {
+        b.maxConcurrentLoads(1);
+        limit.accept(b);
+      });
+  }
+
+  InternalCacheInfo info() {
+    return cache.requestInterface(InternalCache.class).getInfo();
+  }
+
+  /**
+   * Occupy the only load permit with a load in another thread.
+   */
+  CompletableFuture<Integer> blockingLoad() throws InterruptedException {
+    CompletableFuture<Integer> f = CompletableFuture.supplyAsync(() -> cache.get(BLOCKING_KEY));
+    assertThat(loadStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    return f;
+  }
+
+  void shedWhenQueueFull() throws Exception {
+    CompletableFuture<Integer> f = blockingLoad();
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(LoadSheddingException.class);
+    assertThat(cache.containsKey(2)).isFalse();
+    assertThat(info().getLoadShedCount()).isEqualTo(1);
+    releaseLoad.countDown();
+    assertThat(f.get()).isEqualTo(10);
+    assertThat(cache.get(2)).as("permit released").isEqualTo(20);
+  }
+
+  @Test
+  public void shedWhenQueueFull_heap() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0)).build();
+    shedWhenQueueFull();
+  }
+
+  @Test
+  public void shedWhenQueueFull_wired() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0))
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { })
+      .build();
+    shedWhenQueueFull();
+  }
+
+  @Test
+  public void queuedLoadProceeds() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(1)).build();
+    CompletableFuture<Integer> f = blockingLoad();
+    CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> cache.get(2));
+    while (info().getLoadQueuedCount() == 0) {
+      Thread.yield();
+    }
+    assertThatThrownBy(() -> cache.get(3))
+      .as("queue is full")
+      .isInstanceOf(LoadSheddingException.class);
+    releaseLoad.countDown();
+    assertThat(f.get()).isEqualTo(10);
+    assertThat(queued.get()).isEqualTo(20);
+    assertThat(info().getLoadQueuedCount()).isEqualTo(1);
+    assertThat(info().getLoadShedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shedAfterMaxWait() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(1).maxWait(1, TimeUnit.MILLISECONDS)).build();
+    CompletableFuture<Integer> f = blockingLoad();
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(LoadSheddingException.class);
+    assertThat(info().getLoadQueuedCount()).isEqualTo(1);
+    assertThat(info().getLoadShedCount()).isEqualTo(1);
+    releaseLoad.countDown();
+    f.get();
+  }
+
+  void serveStale() throws Exception {
+    cache.put(2, 123);
+    cache.expireAt(2, ExpiryTimeValues.NOW);
+    CompletableFuture<Integer> f = blockingLoad();
+    assertThat(cache.get(2)).isEqualTo(123);
+    assertThat(info().getLoadShedCount()).isEqualTo(1);
+    releaseLoad.countDown();
+    f.get();
+    assertThat(cache.get(2)).as("loaded when permit available").isEqualTo(20);
+  }
+
+  @Test
+  public void serveStale_heap() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0)).build();
+    serveStale();
+  }
+
+  @Test
+  public void serveStale_wired() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0))
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { })
+      .build();
+    serveStale();
+  }
+
+  /**
+   * Bulk operations are not limited, a fresh entry is reloaded although no permit
+   * is available.
+   */
+  void bulkNotLimited() throws Exception {
+    cache.put(2, 123);
+    CompletableFuture<Integer> f = blockingLoad();
+    cache.reloadAll(asList(2)).get();
+    assertThat(cache.peek(2)).isEqualTo(20);
+    assertThat(cache.getAll(asList(3, 4))).containsEntry(3, 30).containsEntry(4, 40);
+    assertThat(info().getLoadShedCount()).isEqualTo(0);
+    assertThat(info().getLoadQueuedCount()).isEqualTo(0);
+    releaseLoad.countDown();
+    f.get();
+  }
+
+  @Test
+  public void bulkNotLimited_heap() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0)).build();
+    bulkNotLimited();
+  }
+
+  @Test
+  public void bulkNotLimited_wired() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0))
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { })
+      .build();
+    bulkNotLimited();
+  }
+
+  @Test
+  public void noStaleWhenDisabled() throws Exception {
+    cache = builder(b -> b.maxQueuedLoads(0).serveStale(false)).build();
+    cache.put(2, 123);
+    cache.expireAt(2, ExpiryTimeValues.NOW);
+    CompletableFuture<Integer> f = blockingLoad();
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(LoadSheddingException.class);
+    releaseLoad.countDown();
+    f.get();
+  }
+
+}
@@ -0,0 +1,150 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.timing.DefaultTimer;
+import org.cache2k.io.AsyncCacheLoader;
+import org.cache2k.io.CacheLoaderException;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Async loads not completing within the configured timeout are cancelled.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class LoadTimeoutTest {
+
+  final AtomicInteger loadCount = new AtomicInteger();
+  final AtomicReference<AsyncCacheLoader.Context<Integer, Integer>> lastContext =
+    new AtomicReference<>();
+  final AtomicReference<AsyncCacheLoader.Callback<Integer>> lastCallback =
+    new AtomicReference<>();
+  final CountDownLatch cancelled = new CountDownLatch(1);
+  Cache<Integer, Integer> cache;
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  /**
+   * Loader completes odd keys immediately and never completes even keys.
+   */
+  Cache<Integer, Integer> build() {
+    return builder().build();
+  }
+
+  Cache2kBuilder<Integer, Integer> builder() {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .timerLag(1, TimeUnit.MILLISECONDS)
+      .loader((AsyncCacheLoader<Integer, Integer>) (key, ctx, callback) -> {
+        loadCount.incrementAndGet();
+        lastContext.set(ctx);
+        lastCallback.set(callback);
+        ctx.onCancel(cancelled::countDown);
+        if (key % 2 == 1) {
+          callback.onLoadSuccess(key * 10);
+        }
+      })
+      .with(LoadTimeoutConfig.class, b -> b.timeout(50, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void completedInTime() throws Exception {
+    cache = build();
+    assertThat(cache.get(1)).isEqualTo(10);
+    assertThat(lastContext.get().isCancelled()).isFalse();
+    Thread.sleep(100);
+    assertThat(cancelled.getCount()).as("not cancelled").isEqualTo(1);
+  }
+
+  @Test
+  public void timeout() throws Exception {
+    cache = build();
+    assertThatThrownBy(() -> cache.get(2))
+      .isInstanceOf(CacheLoaderException.class)
+      .hasCauseInstanceOf(LoadTimeoutException.class);
+    assertThat(cancelled.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(lastContext.get().isCancelled()).isTrue();
+    lastCallback.get().onLoadSuccess(4711);
+    assertThat(cache.containsKey(2))
+      .as("late callback is ignored")
+      .isFalse();
+  }
+
+  @Test
+  public void cancelActionRunsImmediatelyWhenCancelled() throws Exception {
+    cache = build();
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(CacheLoaderException.class);
+    CountDownLatch late = new CountDownLatch(1);
+    lastContext.get().onCancel(late::countDown);
+    assertThat(late.getCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void entryFreedAfterTimeout() {
+    cache = build();
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(CacheLoaderException.class);
+    cache.remove(2);
+    assertThatThrownBy(() -> cache.get(2)).isInstanceOf(CacheLoaderException.class);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  /**
+   * Without expiry the timing has no timer, so a timer is started for the load timeout.
+   */
+  @Test
+  public void ownTimerWithoutExpiry() {
+    cache = build();
+    HeapCache<?, ?> heapCache = cache.requestInterface(BaseCache.class).getHeapCache();
+    assertThat(heapCache.getTiming().getTimer()).isNull();
+    assertThat(heapCache.getLoadTimeoutTimer()).isInstanceOf(DefaultTimer.class);
+  }
+
+  @Test
+  public void timerOfTimingReused() {
+    cache = builder().expireAfterWrite(5, TimeUnit.MINUTES).build();
+    HeapCache<?, ?> heapCache = cache.requestInterface(BaseCache.class).getHeapCache();
+    assertThat(heapCache.getLoadTimeoutTimer())
+      .isNotNull()
+      .isSameAs(heapCache.getTiming().getTimer());
+    assertThatThrownBy(() -> cache.get(2))
+      .isInstanceOf(CacheLoaderException.class)
+      .hasCauseInstanceOf(LoadTimeoutException.class);
+    assertThat(cancelled.getCount()).isEqualTo(0);
+  }
+
+}
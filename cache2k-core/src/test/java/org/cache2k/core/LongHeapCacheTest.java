@@ -0,0 +1,82 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class LongHeapCacheTest {
+
+  /** Has the same hash code as key 0 */
+  private static final long COLLIDING_KEY = 0x1_0000_0001L;
+
+  @Test
+  public void longKeys() {
+    check(Cache2kBuilder.of(Long.class, String.class).build());
+  }
+
+  @Test
+  public void longKeysOpenAddressing() {
+    check(Cache2kBuilder.of(Long.class, String.class)
+      .with(HashTableConfig.class, b -> b.openAddressing(true))
+      .build());
+  }
+
+  private static void check(Cache<Long, String> c) {
+    assertNotNull(c.requestInterface(LongHeapCache.class));
+    assertEquals(Long.hashCode(0), Long.hashCode(COLLIDING_KEY));
+    c.put(0L, "zero");
+    assertNull(c.peek(COLLIDING_KEY));
+    c.put(COLLIDING_KEY, "colliding");
+    assertEquals("zero", c.peek(0L));
+    assertEquals("colliding", c.peek(COLLIDING_KEY));
+    assertEquals((Long) COLLIDING_KEY, c.peekEntry(COLLIDING_KEY).getKey());
+    for (long i = 1; i < 1000; i++) {
+      c.put(i * Integer.MAX_VALUE, Long.toString(i));
+    }
+    Set<Long> keys = new HashSet<>();
+    for (Long k : c.keys()) {
+      keys.add(k);
+    }
+    assertEquals(1001, keys.size());
+    assertTrue(keys.contains(COLLIDING_KEY));
+    assertTrue(keys.contains(999L * Integer.MAX_VALUE));
+    c.remove(0L);
+    assertNull(c.peek(0L));
+    assertEquals("colliding", c.peek(COLLIDING_KEY));
+    c.requestInterface(InternalCache.class).checkIntegrity();
+    c.close();
+  }
+
+}
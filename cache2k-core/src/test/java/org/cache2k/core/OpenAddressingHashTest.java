@@ -0,0 +1,179 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.locks.StampedLock;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class OpenAddressingHashTest {
+
+  @Test
+  public void insertLookupRemove() {
+    OpenAddressingHash<Integer, Integer> ht = new OpenAddressingHash<>("test");
+    int count = 10_000;
+    for (int i = 0; i < count; i++) {
+      insert(ht, i, HeapCache.spreadHash(i));
+    }
+    assertEquals(count, ht.getSize());
+    assertEquals(count, ht.calcEntryCount());
+    for (int i = 0; i < count; i += 2) {
+      assertTrue(ht.remove(lookup(ht, i, HeapCache.spreadHash(i))));
+    }
+    for (int i = 0; i < count; i++) {
+      Entry<Integer, Integer> e = lookup(ht, i, HeapCache.spreadHash(i));
+      if (i % 2 == 0) {
+        assertNull(e);
+      } else {
+        assertEquals(i, (int) e.getKeyObj());
+      }
+    }
+    assertEquals(count / 2, ht.calcEntryCount());
+  }
+
+  /**
+   * Inserts and removes with a constant size reuse deleted slots and rebuild
+   * the table without expanding it.
+   */
+  @Test
+  public void deletedSlotsAreCleanedUp() {
+    OpenAddressingHash<Integer, Integer> ht = new OpenAddressingHash<>("test");
+    long capacity = ht.getEntryCapacity();
+    for (int i = 0; i < 100_000; i++) {
+      insert(ht, i, HeapCache.spreadHash(i));
+      if (i > 0) {
+        int k = i - 1;
+        assertTrue(ht.remove(lookup(ht, k, HeapCache.spreadHash(k))));
+      }
+    }
+    assertEquals(capacity, ht.getEntryCapacity());
+    assertEquals(1, ht.calcEntryCount());
+  }
+
+  /**
+   * Insert more entries into one segment than it has slots, without expansion.
+   */
+  @Test
+  public void overflowChain() {
+    OpenAddressingHash<Integer, Integer> ht = new OpenAddressingHash<>("test");
+    int count = ht.getEntries().length;
+    for (int i = 0; i < count; i++) {
+      StampedLock l = ht.getSegmentLock(0);
+      long stamp = l.writeLock();
+      try {
+        int hash = i << StampedHash.LOCK_SHIFT;
+        ht.insertWithinLock(new Entry<>(i, hash), hash, hash);
+      } finally {
+        l.unlockWrite(stamp);
+      }
+    }
+    assertEquals(count, ht.calcEntryCount());
+    for (int i = 0; i < count; i++) {
+      assertNotNull(lookup(ht, i, i << StampedHash.LOCK_SHIFT));
+    }
+    for (int i = 0; i < count; i++) {
+      assertTrue(ht.remove(lookup(ht, i, i << StampedHash.LOCK_SHIFT)));
+    }
+    assertEquals(0, ht.calcEntryCount());
+    ht.checkExpand(0);
+    insert(ht, 4711, 0);
+    assertEquals(1, ht.calcEntryCount());
+  }
+
+  /**
+   * Rebuild while a segment holds more entries than its region. The new table
+   * must be large enough for the overflowed segment.
+   */
+  @Test(timeout = 10000)
+  public void rebuildWithOverflowedSegment() {
+    OpenAddressingHash<Integer, Integer> ht = new OpenAddressingHash<>("test");
+    int count = ht.getEntries().length;
+    for (int i = 0; i < count; i++) {
+      StampedLock l = ht.getSegmentLock(0);
+      long stamp = l.writeLock();
+      try {
+        int hash = i << StampedHash.LOCK_SHIFT;
+        ht.insertWithinLock(new Entry<>(i, hash), hash, hash);
+      } finally {
+        l.unlockWrite(stamp);
+      }
+    }
+    ht.rehash();
+    assertEquals(count, ht.calcEntryCount());
+    for (int i = 0; i < count; i++) {
+      assertNotNull(lookup(ht, i, i << StampedHash.LOCK_SHIFT));
+    }
+    ht.checkExpand(0);
+    assertEquals(count, ht.calcEntryCount());
+  }
+
+  @Test
+  public void cacheWithOpenAddressing() {
+    Cache<Integer, String> c = Cache2kBuilder.of(Integer.class, String.class)
+      .with(HashTableConfig.class, b -> b.openAddressing(true))
+      .build();
+    HeapCache<Integer, String> hc = c.requestInterface(HeapCache.class);
+    assertTrue(hc.hash instanceof OpenAddressingHash);
+    int count = 1000;
+    for (int i = 0; i < count; i++) {
+      c.put(i, Integer.toString(i));
+    }
+    for (int i = 0; i < count; i += 3) {
+      c.remove(i);
+    }
+    int iterated = 0;
+    for (Integer k : c.keys()) {
+      assertEquals(Integer.toString(k), c.peek(k));
+      iterated++;
+    }
+    assertEquals(count - (count + 2) / 3, iterated);
+    c.requestInterface(InternalCache.class).checkIntegrity();
+    c.close();
+  }
+
+  private static Entry<Integer, Integer> lookup(OpenAddressingHash<Integer, Integer> ht,
+                                                int key, int hash) {
+    return ht.lookup(key, hash, hash);
+  }
+
+  private static void insert(OpenAddressingHash<Integer, Integer> ht, int key, int hash) {
+    StampedLock l = ht.getSegmentLock(hash);
+    long stamp = l.writeLock();
+    try {
+      ht.insertWithinLock(new Entry<>(key, hash), hash, hash);
+    } finally {
+      l.unlockWrite(stamp);
+    }
+    ht.checkExpand(hash);
+  }
+
+}
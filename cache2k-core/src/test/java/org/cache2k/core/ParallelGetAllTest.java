@@ -0,0 +1,162 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.core.api.InternalCacheInfo;
+import org.cache2k.io.CacheLoaderException;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Missing keys in {@link HeapCache#getAll(Iterable)} are loaded in parallel, if enabled.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class ParallelGetAllTest {
+
+  final Set<Thread> loaderThreads = ConcurrentHashMap.newKeySet();
+  Cache<Integer, Integer> cache;
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void loadsRunInParallel() {
+    CountDownLatch allStarted = new CountDownLatch(4);
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .loaderThreadCount(4)
+      .with(LoaderExecutorConfig.class, b -> b.getAllParallelism(4))
+      .loader(k -> {
+        loaderThreads.add(Thread.currentThread());
+        allStarted.countDown();
+        assertThat(allStarted.await(10, TimeUnit.SECONDS))
+          .as("four loads running at the same time")
+          .isTrue();
+        return k + 1;
+      })
+      .build();
+    Map<Integer, Integer> result = cache.getAll(asList(1, 2, 3, 4));
+    assertThat(result).containsEntry(1, 2).containsEntry(4, 5).hasSize(4);
+    assertThat(loaderThreads).hasSize(4).contains(Thread.currentThread());
+  }
+
+  @Test
+  public void sequentialWithParallelismOne() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .with(LoaderExecutorConfig.class, b -> b.getAllParallelism(1))
+      .loader(k -> {
+        loaderThreads.add(Thread.currentThread());
+        return k + 1;
+      })
+      .build();
+    Map<Integer, Integer> result =
+      cache.getAll(IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+    assertThat(result).hasSize(100);
+    assertThat(loaderThreads).containsExactly(Thread.currentThread());
+  }
+
+  @Test
+  public void sequentialByDefault() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .loaderThreadCount(4)
+      .loader(k -> {
+        loaderThreads.add(Thread.currentThread());
+        return k + 1;
+      })
+      .build();
+    Map<Integer, Integer> result = cache.getAll(asList(1, 2, 3, 4));
+    assertThat(result).hasSize(4);
+    assertThat(loaderThreads).containsExactly(Thread.currentThread());
+  }
+
+  @Test
+  public void presentKeysAreNotLoaded() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .with(LoaderExecutorConfig.class, b -> b.getAllParallelism(4))
+      .loader(k -> {
+        loaderThreads.add(Thread.currentThread());
+        return k + 1;
+      })
+      .build();
+    cache.put(1, 123);
+    cache.put(2, 456);
+    Map<Integer, Integer> result = cache.getAll(asList(1, 2, 2, 3));
+    assertThat(result)
+      .containsEntry(1, 123)
+      .containsEntry(2, 456)
+      .containsEntry(3, 4)
+      .hasSize(3);
+    assertThat(loaderThreads)
+      .as("single missing key is loaded by the calling thread")
+      .containsExactly(Thread.currentThread());
+    InternalCacheInfo info = cache.requestInterface(InternalCache.class).getConsistentInfo();
+    assertThat(info.getGetCount()).isEqualTo(4);
+    assertThat(info.getMissCount()).isEqualTo(1);
+  }
+
+  /**
+   * A loader exception is propagated when the value is accessed, like in the
+   * sequential version.
+   */
+  @Test
+  public void exceptionPerKey() {
+    cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .with(LoaderExecutorConfig.class, b -> b.getAllParallelism(4))
+      .loader(k -> {
+        if (k == 2) {
+          throw new IllegalStateException("test");
+        }
+        return k + 1;
+      })
+      .build();
+    Map<Integer, Integer> result = cache.getAll(asList(1, 2, 3));
+    assertThat(result.get(1)).isEqualTo(2);
+    assertThat(result.get(3)).isEqualTo(4);
+    assertThatCode(() -> result.get(2)).isInstanceOf(CacheLoaderException.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelismPositive() {
+    new LoaderExecutorConfig().builder().getAllParallelism(0);
+  }
+
+}
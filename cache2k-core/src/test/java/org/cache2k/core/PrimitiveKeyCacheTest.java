@@ -0,0 +1,163 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.IntCache;
+import org.cache2k.LongCache;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.core.api.InternalCacheInfo;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link IntCache} and {@link LongCache}.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class PrimitiveKeyCacheTest {
+
+  @Test
+  public void intCache() {
+    IntCache<String> c = Cache2kBuilder.of(Integer.class, String.class).buildForIntKey();
+    assertTrue(c instanceof IntHeapCache);
+    checkIntCache(c);
+  }
+
+  @Test
+  public void intCacheWithListener() {
+    IntCache<String> c = Cache2kBuilder.of(Integer.class, String.class)
+      .addListener((CacheEntryCreatedListener<Integer, String>)
+        (cache, entry) -> { })
+      .buildForIntKey();
+    assertFalse(c instanceof IntHeapCache);
+    checkIntCache(c);
+  }
+
+  @Test
+  public void intCacheWithLoader() {
+    IntCache<String> c = Cache2kBuilder.of(Integer.class, String.class)
+      .loader(Object::toString)
+      .buildForIntKey();
+    assertEquals("123", c.get(123));
+    assertTrue(c.containsKey(123));
+    c.close();
+  }
+
+  private static void checkIntCache(IntCache<String> c) {
+    assertNull(c.peek(1));
+    assertFalse(c.containsKey(1));
+    c.put(1, "one");
+    assertEquals("one", c.peek(1));
+    assertEquals("one", c.get(1));
+    assertEquals("one", c.get((Integer) 1));
+    assertTrue(c.containsKey(1));
+    c.put(1, "eins");
+    assertEquals("eins", c.get(1));
+    c.remove(1);
+    assertNull(c.peek(1));
+    assertFalse(c.containsKey(1));
+    c.close();
+  }
+
+  @Test
+  public void longCache() {
+    LongCache<String> c = Cache2kBuilder.of(Long.class, String.class).buildForLongKey();
+    assertTrue(c instanceof LongHeapCache);
+    checkLongCache(c);
+  }
+
+  @Test
+  public void longCacheWithListener() {
+    LongCache<String> c = Cache2kBuilder.of(Long.class, String.class)
+      .addListener((CacheEntryCreatedListener<Long, String>)
+        (cache, entry) -> { })
+      .buildForLongKey();
+    assertFalse(c instanceof LongHeapCache);
+    checkLongCache(c);
+  }
+
+  @Test
+  public void longCacheWithLoader() {
+    LongCache<String> c = Cache2kBuilder.of(Long.class, String.class)
+      .loader(Object::toString)
+      .buildForLongKey();
+    assertEquals("123", c.get(123L));
+    assertEquals("123", c.get(123L));
+    assertTrue(c.containsKey(123L));
+    c.close();
+  }
+
+  private static void checkLongCache(LongCache<String> c) {
+    long key = Long.MAX_VALUE;
+    assertNull(c.peek(key));
+    assertFalse(c.containsKey(key));
+    c.put(key, "max");
+    assertEquals("max", c.peek(key));
+    assertEquals("max", c.get(key));
+    assertEquals("max", c.get((Long) key));
+    assertTrue(c.containsKey(key));
+    c.put(key, "maximum");
+    assertEquals("maximum", c.get(key));
+    c.remove(key);
+    assertNull(c.peek(key));
+    assertFalse(c.containsKey(key));
+    c.close();
+  }
+
+  /**
+   * Primitive and boxed key methods update the statistics the same way.
+   */
+  @Test
+  public void longCacheSameStatisticsAsBoxed() {
+    LongCache<String> c = Cache2kBuilder.of(Long.class, String.class).buildForLongKey();
+    Cache<Long, String> boxed = Cache2kBuilder.of(Long.class, String.class).build();
+    c.put(1, "one");
+    c.put(1, "eins");
+    c.remove(1);
+    c.remove(2);
+    boxed.put(1L, "one");
+    boxed.put(1L, "eins");
+    boxed.remove(1L);
+    boxed.remove(2L);
+    InternalCacheInfo info = c.requestInterface(InternalCache.class).getConsistentInfo();
+    InternalCacheInfo expected = boxed.requestInterface(InternalCache.class).getConsistentInfo();
+    assertEquals(expected.getPutCount(), info.getPutCount());
+    assertEquals(expected.getHeapHitCount(), info.getHeapHitCount());
+    assertEquals(expected.getMissCount(), info.getMissCount());
+    assertEquals(expected.getRemoveCount(), info.getRemoveCount());
+    assertEquals(expected.getNewEntryCount(), info.getNewEntryCount());
+    c.close();
+    boxed.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongKeyType() {
+    Cache2kBuilder.of(Long.class, String.class).buildForIntKey();
+  }
+
+}
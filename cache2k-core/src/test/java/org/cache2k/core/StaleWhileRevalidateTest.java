@@ -0,0 +1,210 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.operation.Scheduler;
+import org.cache2k.operation.TimeReference;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Expired values are returned and loaded in the background.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class StaleWhileRevalidateTest {
+
+  static final long START = 10000;
+
+  final ManualClock clock = new ManualClock();
+  final Queue<Runnable> loads = new ArrayDeque<>();
+  final AtomicInteger loaderCalls = new AtomicInteger();
+  Cache<Integer, Integer> cache;
+
+  Cache2kBuilder<Integer, Integer> builder() {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .timeReference(clock)
+      .expiryPolicy((key, value, startTime, currentEntry) -> startTime + 100)
+      .sharpExpiry(true)
+      .staleWhileRevalidate(true)
+      .loaderExecutor(loads::add)
+      .loader(k -> loaderCalls.incrementAndGet());
+  }
+
+  /**
+   * A listener forces the wired cache implementation.
+   */
+  Cache2kBuilder<Integer, Integer> wiredBuilder() {
+    return builder()
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { });
+  }
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  void staleValueReturnedAndOneLoad() {
+    assertThat(cache.get(1)).isEqualTo(1);
+    clock.time = START + 100;
+    assertThat(cache.get(1)).as("stale").isEqualTo(1);
+    assertThat(cache.get(1)).as("stale").isEqualTo(1);
+    assertThat(loads).hasSize(1);
+    assertThat(loaderCalls.get()).isEqualTo(1);
+    loads.poll().run();
+    assertThat(loaderCalls.get()).isEqualTo(2);
+    assertThat(cache.get(1)).isEqualTo(2);
+    assertThat(loads).isEmpty();
+  }
+
+  @Test
+  public void heapCache() {
+    cache = builder().build();
+    staleValueReturnedAndOneLoad();
+  }
+
+  @Test
+  public void wiredCache() {
+    cache = wiredBuilder().build();
+    staleValueReturnedAndOneLoad();
+  }
+
+  void staleEntryReturnedAndOneLoad() {
+    assertThat(cache.getEntry(1).getValue()).isEqualTo(1);
+    clock.time = START + 100;
+    assertThat(cache.getEntry(1).getValue()).as("stale").isEqualTo(1);
+    assertThat(cache.getEntry(1).getValue()).as("stale").isEqualTo(1);
+    assertThat(loads).hasSize(1);
+    loads.poll().run();
+    assertThat(cache.getEntry(1).getValue()).isEqualTo(2);
+    assertThat(loads).isEmpty();
+  }
+
+  void staleValuesInGetAllAndOneLoadPerKey() {
+    assertThat(cache.get(1)).isEqualTo(1);
+    assertThat(cache.get(2)).isEqualTo(2);
+    clock.time = START + 100;
+    assertThat(cache.getAll(asList(1, 2))).as("stale")
+      .containsEntry(1, 1).containsEntry(2, 2);
+    assertThat(cache.getAll(asList(1, 2))).as("stale")
+      .containsEntry(1, 1).containsEntry(2, 2);
+    assertThat(loads).hasSize(2);
+    while (!loads.isEmpty()) {
+      loads.poll().run();
+    }
+    assertThat(cache.getAll(asList(1, 2))).containsEntry(1, 3).containsEntry(2, 4);
+    assertThat(loads).isEmpty();
+  }
+
+  @Test
+  public void heapCacheGetEntry() {
+    cache = builder().build();
+    staleEntryReturnedAndOneLoad();
+  }
+
+  @Test
+  public void wiredCacheGetEntry() {
+    cache = wiredBuilder().build();
+    staleEntryReturnedAndOneLoad();
+  }
+
+  @Test
+  public void heapCacheGetAll() {
+    cache = builder().build();
+    staleValuesInGetAllAndOneLoadPerKey();
+  }
+
+  @Test
+  public void wiredCacheGetAll() {
+    cache = wiredBuilder().build();
+    staleValuesInGetAllAndOneLoadPerKey();
+  }
+
+  @Test
+  public void loadByCallerIfRejected() {
+    cache = builder()
+      .loaderExecutor(r -> { throw new RejectedExecutionException(); })
+      .build();
+    assertThat(cache.get(1)).isEqualTo(1);
+    clock.time = START + 100;
+    assertThat(cache.get(1)).isEqualTo(2);
+  }
+
+  @Test
+  public void expiredValueKept() {
+    cache = builder().build();
+    cache.put(1, 7);
+    clock.time = START + 100;
+    cache.expireAt(1, START + 50);
+    assertThat(cache.containsKey(1)).isFalse();
+    assertThat(cache.get(1)).as("stale").isEqualTo(7);
+    assertThat(loads).hasSize(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void loaderNeeded() {
+    Cache2kBuilder.of(Integer.class, Integer.class)
+      .staleWhileRevalidate(true)
+      .build();
+  }
+
+  /**
+   * Time reference that does not move by itself, no timer events are executed.
+   */
+  static class ManualClock implements TimeReference, Scheduler {
+
+    volatile long time = START;
+
+    @Override
+    public long millis() {
+      return time;
+    }
+
+    @Override
+    public void sleep(long millis) { }
+
+    @Override
+    public void schedule(Runnable runnable, long millis) { }
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+
+  }
+
+}
@@ -26,6 +26,8 @@ import org.cache2k.testing.category.FastTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.concurrent.locks.StampedLock;
+
 /**
  * @author Jens Wilke
  */
@@ -50,4 +52,60 @@ public class StampedHashTest {
     }
   }
 
+  @Test
+  public void incrementalExpansion() {
+    StampedHash<Integer, Integer> ht = new StampedHash<>("test", true);
+    int count = 10_000;
+    boolean expansionSeen = false;
+    for (int i = 0; i < count; i++) {
+      insert(ht, i);
+      expansionSeen |= ht.isExpanding();
+      if (ht.isExpanding()) {
+        assertEquals(ht.getSize(), ht.calcEntryCount());
+        assertNotNull(ht.lookup(0, HeapCache.spreadHash(0), HeapCache.spreadHash(0)));
+      }
+    }
+    assertTrue(expansionSeen);
+    for (int i = 0; i < count; i++) {
+      int hc = HeapCache.spreadHash(i);
+      Entry<Integer, Integer> e = ht.lookup(i, hc, hc);
+      assertNotNull(e);
+      assertEquals(i, (int) e.getKeyObj());
+    }
+    assertNull(ht.lookup(count, HeapCache.spreadHash(count), HeapCache.spreadHash(count)));
+    assertEquals(count, ht.calcEntryCount());
+  }
+
+  /**
+   * Blocking rehash completes a running incremental expansion.
+   */
+  @Test
+  public void rehashCompletesIncrementalExpansion() {
+    StampedHash<Integer, Integer> ht = new StampedHash<>("test", true);
+    int i = 0;
+    while (!ht.isExpanding()) {
+      insert(ht, i++);
+    }
+    int length = ht.getEntries().length;
+    ht.runTotalLocked(() -> {
+      ht.rehash();
+      return null;
+    });
+    assertFalse(ht.isExpanding());
+    assertEquals(length * 2, ht.getEntries().length);
+    assertEquals(i, ht.calcEntryCount());
+  }
+
+  private static void insert(StampedHash<Integer, Integer> ht, int key) {
+    int hc = HeapCache.spreadHash(key);
+    StampedLock l = ht.getSegmentLock(hc);
+    long stamp = l.writeLock();
+    try {
+      ht.insertWithinLock(new Entry<>(key, hc), hc, hc);
+    } finally {
+      l.unlockWrite(stamp);
+    }
+    ht.checkExpand(hc);
+  }
+
 }
@@ -0,0 +1,119 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.HeapCache;
+import org.cache2k.core.LoaderExecutorConfig;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * The concurrency limit is tested with platform threads, so it runs on any JDK.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class VirtualThreadExecutorTest {
+
+  @Test
+  public void concurrencyLimit() throws Exception {
+    VirtualThreadExecutor executor =
+      new VirtualThreadExecutor(Executors.defaultThreadFactory(), 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(5);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    for (int i = 0; i < 5; i++) {
+      executor.execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        done.countDown();
+      });
+    }
+    while (executor.getWaitingCount() < 3) {
+      Thread.yield();
+    }
+    release.countDown();
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxRunning.get()).isEqualTo(2);
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void rejectAfterClose() {
+    VirtualThreadExecutor executor =
+      new VirtualThreadExecutor(Executors.defaultThreadFactory(), 2);
+    executor.close();
+    executor.execute(() -> { });
+  }
+
+  @Test
+  public void supportedDependsOnJdk() {
+    boolean hasVirtualThreads;
+    try {
+      Thread.class.getMethod("ofVirtual");
+      hasVirtualThreads = true;
+    } catch (NoSuchMethodException ex) {
+      hasVirtualThreads = false;
+    }
+    assertThat(VirtualThreadExecutor.isSupported()).isEqualTo(hasVirtualThreads);
+  }
+
+  /**
+   * With virtual threads supported, the executor is used, otherwise the
+   * cache falls back to the thread pool.
+   */
+  @Test
+  public void cacheLoadsWithVirtualThreadsOrFallback() throws Exception {
+    Cache<Integer, Integer> cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .loader(k -> k + 1)
+      .with(LoaderExecutorConfig.class, b -> b.virtualThreads(true).maxConcurrency(10))
+      .build();
+    cache.loadAll(asList(1, 2, 3)).get();
+    assertThat(cache.peek(3)).isEqualTo(4);
+    assertThat(cache.requestInterface(HeapCache.class).getLoaderExecutor()
+      instanceof VirtualThreadExecutor)
+      .isEqualTo(VirtualThreadExecutor.isSupported());
+    cache.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maxConcurrencyPositive() {
+    new LoaderExecutorConfig().builder().maxConcurrency(0);
+  }
+
+}
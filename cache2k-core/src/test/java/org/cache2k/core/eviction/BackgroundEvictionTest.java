@@ -0,0 +1,145 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.Entry;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+/**
+ * Eviction on the executor with overshoot and backpressure.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class BackgroundEvictionTest {
+
+  final List<Runnable> tasks = new ArrayList<>();
+
+  Cache<Integer, Integer> build(int capacity, int overshootPercentage) {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .entryCapacity(capacity)
+      .executor(tasks::add)
+      .with(EvictionConfig.class, b -> b
+        .backgroundEviction(true)
+        .overshootPercentage(overshootPercentage))
+      .build();
+  }
+
+  void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  @Test
+  public void evictionRunsInBackground() {
+    Cache<Integer, Integer> c = build(100, 10);
+    for (int i = 0; i < 105; i++) {
+      c.put(i, i);
+    }
+    assertThat(c.asMap().size()).isEqualTo(105);
+    assertThat(tasks).hasSize(1);
+    runTasks();
+    assertThat(c.asMap().size()).isEqualTo(100);
+    assertThat(c.toString()).contains("backpressureCount=0");
+    c.close();
+  }
+
+  @Test
+  public void backpressureAboveOvershoot() {
+    Cache<Integer, Integer> c = build(100, 10);
+    for (int i = 0; i < 200; i++) {
+      c.put(i, i);
+    }
+    assertThat(c.asMap().size()).isEqualTo(110);
+    assertThat(tasks).hasSize(1);
+    assertThat(c.toString()).doesNotContain("backpressureCount=0");
+    runTasks();
+    assertThat(c.asMap().size()).isEqualTo(100);
+    c.close();
+  }
+
+  /**
+   * An exception within the background eviction is counted and the next insert
+   * schedules the eviction again.
+   */
+  @Test
+  public void exceptionDoesNotStopEviction() {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .entryCapacity(100)
+      .executor(tasks::add)
+      .with(EvictionConfig.class, b -> b
+        .backgroundEviction(true)
+        .overshootPercentage(10)
+        .policyFactory((heapCache, listener, maxSize, weigher, maxWeight, noChunking) ->
+          new EvictionPolicyFactoryTest.FifoEviction(new HeapCacheForEviction() {
+            @Override
+            public Entry[] getHashEntries() {
+              return heapCache.getHashEntries();
+            }
+            @Override
+            public void removeEntryForEviction(Entry e) {
+              if (fail.compareAndSet(true, false)) {
+                throw new IllegalStateException("test");
+              }
+              heapCache.removeEntryForEviction(e);
+            }
+            @Override
+            public void logAndCountInternalException(String text, Throwable exception) {
+              heapCache.logAndCountInternalException(text, exception);
+            }
+          }, listener, maxSize, weigher, maxWeight, noChunking)))
+      .build();
+    for (int i = 0; i < 105; i++) {
+      c.put(i, i);
+    }
+    runTasks();
+    assertThat(c.toString()).contains("internalException=1");
+    c.put(200, 200);
+    assertThat(tasks)
+      .as("eviction scheduled again")
+      .hasSize(1);
+    c.close();
+  }
+
+  @Test
+  public void strictEvictionNotSupported() {
+    assertThatCode(() ->
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .strictEviction(true)
+        .with(EvictionConfig.class, b -> b.backgroundEviction(true))
+        .build())
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
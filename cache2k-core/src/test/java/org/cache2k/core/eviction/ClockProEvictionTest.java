@@ -21,6 +21,7 @@ package org.cache2k.core.eviction;
  */
 
 import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
 import org.cache2k.core.util.TunableFactory;
 import org.cache2k.test.util.TestingBase;
 import org.cache2k.testing.category.FastTests;
@@ -28,6 +29,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.*;
 
 /**
@@ -150,6 +152,82 @@ public class ClockProEvictionTest extends TestingBase {
     assertEquals(size, count);
   }
 
+  /**
+   * Entries are requested again after they were evicted from the cold clock.
+   * The ghost hits make the hot clock smaller.
+   */
+  @Test
+  public void adaptiveHotMax() {
+    final int size = 500;
+    final int recentKeys = 150;
+    Cache<Integer, Integer> c = provideCache(size);
+    for (int i = 0; i < size; i++) {
+      c.put(i, i);
+      c.put(i, i);
+    }
+    long initialHotMax = extractHotMax(c);
+    int key = size;
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < recentKeys; i++) {
+        c.put(key + i, i);
+      }
+      for (int i = 0; i < recentKeys; i++) {
+        c.put(key + i, i);
+      }
+      key += recentKeys;
+    }
+    assertThat(extractHotMax(c), lessThan(initialHotMax));
+    assertEquals(size, countEntriesViaIteration());
+  }
+
+  /**
+   * Ghosts are stored by hash code. When an entry is evicted while a ghost with the
+   * same hash code is present, the ghost is moved to the front. This drops the oldest
+   * ghost, which needs to be counted like in the normal insert. The moved ghost leaves
+   * a free position in the ring, so one ghost less is dropped in total.
+   */
+  @Test
+  public void ghostDroppedOnReAddIsCounted() {
+    long expiredWithoutCollision = extractGhostExpiredCount(ghostWorkload(2L));
+    assertEquals(expiredWithoutCollision - 1,
+      extractGhostExpiredCount(ghostWorkload(0x1_0000_0001L)));
+  }
+
+  /**
+   * Fill the cache and the ghosts, insert key 0 and the second key, then evict both
+   * from the cold clock with a stream of new keys.
+   */
+  private String ghostWorkload(long secondKey) {
+    Cache<Long, Integer> c = Cache2kBuilder.of(Long.class, Integer.class)
+      .eternal(true)
+      .entryCapacity(100)
+      .build();
+    for (long i = 1000; i < 1300; i++) {
+      c.put(i, 1);
+    }
+    c.put(0L, 1);
+    c.put(secondKey, 1);
+    for (long i = 2000; i < 3000; i++) {
+      c.put(i, 1);
+    }
+    String s = c.toString();
+    c.close();
+    return s;
+  }
+
+  static long extractGhostExpiredCount(String s) {
+    final String str = "ghostExpiredCnt=";
+    int idx = s.indexOf(str) + str.length();
+    return Long.parseLong(s.substring(idx, s.indexOf(',', idx)));
+  }
+
+  static long extractHotMax(Cache<?, ?> c) {
+    String s = c.toString();
+    final String str = "hotMaxSize=";
+    int idx = s.indexOf(str) + str.length();
+    return Long.parseLong(s.substring(idx, s.indexOf(',', idx)));
+  }
+
   /**
    * Additional test to extend test coverage
    */
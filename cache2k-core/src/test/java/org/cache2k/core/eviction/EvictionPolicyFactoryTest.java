@@ -0,0 +1,141 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.Entry;
+import org.cache2k.core.IntegrityState;
+import org.cache2k.operation.Weigher;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plug in a custom eviction algorithm via {@link EvictionPolicyFactory}.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class EvictionPolicyFactoryTest {
+
+  @Test
+  public void customFifoEviction() {
+    AtomicInteger createCount = new AtomicInteger();
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .entryCapacity(10)
+      .strictEviction(true)
+      .with(EvictionConfig.class, b -> b
+        .algorithm(EvictionConfig.Algorithm.TINY_LFU)
+        .policyFactory((heapCache, listener, maxSize, weigher, maxWeight, noChunking) -> {
+          createCount.incrementAndGet();
+          return new FifoEviction(heapCache, listener, maxSize, weigher, maxWeight, noChunking);
+        }))
+      .build();
+    for (int i = 0; i < 10; i++) {
+      c.put(i, i);
+    }
+    for (int i = 0; i < 10; i++) {
+      c.get(0);
+    }
+    c.put(10, 10);
+    assertThat(c.containsKey(0))
+      .as("oldest entry evicted, regardless of hits")
+      .isFalse();
+    assertThat(c.asMap().size()).isEqualTo(10);
+    assertThat(createCount.get()).isEqualTo(1);
+    assertThat(c.toString()).contains("impl=FifoEviction");
+    c.close();
+  }
+
+  @Test
+  public void algorithmFactory() {
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .entryCapacity(10)
+      .with(EvictionConfig.class, b -> b.algorithm(EvictionConfig.Algorithm.TINY_LFU))
+      .build();
+    assertThat(c.toString()).contains("impl=TinyLfuEviction");
+    c.close();
+  }
+
+  static class FifoEviction extends AbstractEviction {
+
+    private final Entry head = new Entry().shortCircuit();
+    private long size;
+
+    FifoEviction(HeapCacheForEviction heapCache, InternalEvictionListener listener,
+                 long maxSize, Weigher weigher, long maxWeight, boolean noChunking) {
+      super(heapCache, listener, maxSize, weigher, maxWeight, noChunking);
+    }
+
+    @Override
+    protected long getSize() {
+      return size;
+    }
+
+    @Override
+    protected long removeAllFromReplacementList() {
+      long count = 0;
+      while (head.next != head) {
+        Entry.removeFromList(head.next);
+        count++;
+      }
+      size = 0;
+      return count;
+    }
+
+    @Override
+    protected void insertIntoReplacementList(Entry e) {
+      size++;
+      Entry.insertInList(head, e);
+    }
+
+    @Override
+    protected Entry findEvictionCandidate() {
+      return head.prev;
+    }
+
+    @Override
+    protected Entry findIdleCandidate(int maxScan) {
+      return null;
+    }
+
+    @Override
+    protected void removeFromReplacementList(Entry e) {
+      size--;
+      Entry.removeFromList(e);
+    }
+
+    @Override
+    protected long getScanCount() {
+      return 0;
+    }
+
+    @Override
+    public void checkIntegrity(IntegrityState integrityState) { }
+
+  }
+
+}
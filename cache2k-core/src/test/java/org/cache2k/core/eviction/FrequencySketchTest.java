@@ -0,0 +1,67 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class FrequencySketchTest {
+
+  @Test
+  public void countAndSaturate() {
+    FrequencySketch sketch = new FrequencySketch(10);
+    sketch.ensureCapacity(1000);
+    assertEquals(0, sketch.frequency(4711));
+    sketch.increment(4711, 1);
+    sketch.increment(4711, 2);
+    assertEquals(3, sketch.frequency(4711));
+    sketch.increment(4711, 100);
+    assertEquals(15, sketch.frequency(4711));
+  }
+
+  @Test
+  public void capacityIsPowerOfTwo() {
+    FrequencySketch sketch = new FrequencySketch(10);
+    sketch.ensureCapacity(1000);
+    assertEquals(1024, sketch.getCapacity());
+    sketch.ensureCapacity(10);
+    assertEquals(1024, sketch.getCapacity());
+  }
+
+  @Test
+  public void agingHalvesCounters() {
+    FrequencySketch sketch = new FrequencySketch(1);
+    sketch.ensureCapacity(16);
+    sketch.increment(1, 8);
+    for (int i = 100; sketch.getResetCount() == 0; i++) {
+      sketch.increment(i, 1);
+    }
+    assertEquals(4, sketch.frequency(1));
+  }
+
+}
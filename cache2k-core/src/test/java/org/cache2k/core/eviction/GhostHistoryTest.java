@@ -0,0 +1,130 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class GhostHistoryTest {
+
+  @Test
+  public void emptyHistory() {
+    GhostHistory ghosts = new GhostHistory(63);
+    assertEquals(0, ghosts.capacity());
+    assertEquals(GhostHistory.NOTHING_DROPPED, ghosts.add(1));
+    assertEquals(-1, ghosts.lookup(1));
+    assertEquals(0, ghosts.size());
+  }
+
+  @Test
+  public void addDropsOldest() {
+    GhostHistory ghosts = new GhostHistory(63);
+    ghosts.resize(3);
+    for (int i = 1; i <= 3; i++) {
+      assertEquals(GhostHistory.NOTHING_DROPPED, ghosts.add(i));
+    }
+    ghosts.setHit(ghosts.lookup(1));
+    assertEquals(GhostHistory.DROPPED_AFTER_HIT, ghosts.add(4));
+    assertEquals(-1, ghosts.lookup(1));
+    assertEquals(GhostHistory.DROPPED, ghosts.add(5));
+    assertEquals(-1, ghosts.lookup(2));
+    assertTrue(ghosts.lookup(3) >= 0);
+    assertFalse("hit bit is cleared on reuse", ghosts.isHit(ghosts.lookup(4)));
+    assertEquals(3, ghosts.size());
+    assertEquals(3, ghosts.countReachable());
+  }
+
+  @Test
+  public void removeLeavesUnusedPosition() {
+    GhostHistory ghosts = new GhostHistory(63);
+    ghosts.resize(3);
+    ghosts.add(1);
+    ghosts.add(2);
+    ghosts.add(3);
+    ghosts.remove(ghosts.lookup(1));
+    assertEquals(-1, ghosts.lookup(1));
+    assertEquals(2, ghosts.size());
+    assertEquals("removed position is reused", GhostHistory.NOTHING_DROPPED, ghosts.add(4));
+    assertEquals(GhostHistory.DROPPED, ghosts.add(5));
+    assertEquals(-1, ghosts.lookup(2));
+    assertEquals(3, ghosts.size());
+  }
+
+  @Test
+  public void resizeKeepsNewestAndHits() {
+    GhostHistory ghosts = new GhostHistory(63);
+    ghosts.resize(10);
+    for (int i = 0; i < 10; i++) {
+      ghosts.add(i);
+    }
+    ghosts.setHit(ghosts.lookup(9));
+    ghosts.remove(ghosts.lookup(8));
+    ghosts.resize(4);
+    assertEquals(4, ghosts.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(-1, ghosts.lookup(i));
+    }
+    assertEquals(-1, ghosts.lookup(8));
+    assertTrue(ghosts.isHit(ghosts.lookup(9)));
+    assertFalse(ghosts.isHit(ghosts.lookup(7)));
+    assertEquals(GhostHistory.DROPPED, ghosts.add(10));
+    assertEquals(-1, ghosts.lookup(5));
+    ghosts.resize(20);
+    assertEquals(4, ghosts.size());
+    assertTrue(ghosts.isHit(ghosts.lookup(9)));
+  }
+
+  /**
+   * Random operations with colliding hashes, compared against the expected content.
+   */
+  @Test
+  public void randomOperationsStayConsistent() {
+    GhostHistory ghosts = new GhostHistory(63);
+    ghosts.resize(100);
+    Random random = new Random(1802);
+    for (int i = 0; i < 100_000; i++) {
+      int hash = random.nextInt(300) * 0x10000;
+      int pos = ghosts.lookup(hash);
+      if (pos >= 0) {
+        ghosts.remove(pos);
+        assertEquals(-1, ghosts.lookup(hash));
+      } else {
+        ghosts.add(hash);
+        assertTrue(ghosts.lookup(hash) >= 0);
+      }
+      if (i % 10_000 == 0) {
+        ghosts.resize(50 + random.nextInt(100));
+      }
+    }
+    assertEquals(ghosts.size(), ghosts.countReachable());
+    assertTrue(ghosts.size() <= ghosts.capacity());
+  }
+
+}
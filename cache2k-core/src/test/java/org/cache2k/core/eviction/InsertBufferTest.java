@@ -0,0 +1,129 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.Entry;
+import org.cache2k.core.HeapCache;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class InsertBufferTest {
+
+  @Test
+  public void offerUntilFullAndDrain() {
+    InsertBuffer buffer = new InsertBuffer(1, 4);
+    List<Entry> drained = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(new Entry<>(i, i)));
+    }
+    assertFalse("stripe full", buffer.offer(new Entry<>(4, 4)));
+    assertEquals(4, buffer.size());
+    buffer.drain(drained::add);
+    assertEquals(0, buffer.size());
+    assertEquals(4, drained.size());
+    assertEquals(0, drained.get(0).hashCode);
+    assertTrue(buffer.offer(new Entry<>(5, 5)));
+    assertEquals(1, buffer.size());
+  }
+
+  /**
+   * The segment is selected by the low bits of the hash code. Entries of one segment
+   * need to use all stripes of the segment's buffer.
+   */
+  @Test
+  public void stripesSpreadWithinSegment() {
+    int segmentCount = 16;
+    int stripeCount = 8;
+    InsertBuffer buffer = new InsertBuffer(stripeCount, 4);
+    for (int segment = 0; segment < segmentCount; segment++) {
+      Set<Integer> usedStripes = new HashSet<>();
+      Set<Integer> usedStripesIntKey = new HashSet<>();
+      for (int i = 0; i < 10_000; i++) {
+        int hc = HeapCache.spreadHash(i);
+        if ((hc & (segmentCount - 1)) == segment) {
+          usedStripes.add(buffer.stripeIndex(hc));
+        }
+        if ((i & (segmentCount - 1)) == segment) {
+          usedStripesIntKey.add(buffer.stripeIndex(i));
+        }
+      }
+      assertEquals(stripeCount, usedStripes.size());
+      assertEquals(stripeCount, usedStripesIntKey.size());
+    }
+  }
+
+  @Test
+  public void concurrentOfferAndDrain() throws Exception {
+    final int threadCount = 4;
+    final int entriesPerThread = 100_000;
+    InsertBuffer buffer = new InsertBuffer(2, 16);
+    Map<Entry, Entry> drained = new IdentityHashMap<>();
+    AtomicBoolean done = new AtomicBoolean();
+    Object lock = new Object();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      int offset = i * entriesPerThread;
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < entriesPerThread; j++) {
+          Entry e = new Entry<>(offset + j, offset + j);
+          while (!buffer.offer(e)) {
+            synchronized (lock) {
+              buffer.drain(x -> drained.put(x, x));
+            }
+          }
+        }
+      });
+      threads[i].start();
+    }
+    Thread drainer = new Thread(() -> {
+      while (!done.get()) {
+        synchronized (lock) {
+          buffer.drain(x -> drained.put(x, x));
+        }
+      }
+    });
+    drainer.start();
+    for (Thread t : threads) {
+      t.join();
+    }
+    done.set(true);
+    drainer.join();
+    buffer.drain(x -> drained.put(x, x));
+    assertEquals(0, buffer.size());
+    assertEquals(threadCount * entriesPerThread, drained.size());
+  }
+
+}
@@ -0,0 +1,79 @@
+package org.cache2k.core.eviction;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * Run the access patterns of the clock pro test with TinyLFU eviction and check
+ * that frequently used entries survive a scan.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class TinyLfuEvictionTest extends ClockProEvictionTest {
+
+  protected Cache<Integer, Integer> provideCache(long size) {
+    return builder(Integer.class, Integer.class)
+      .eternal(true)
+      .entryCapacity(size)
+      .with(EvictionConfig.class, b -> b.algorithm(EvictionConfig.Algorithm.TINY_LFU))
+      .build();
+  }
+
+  /**
+   * Clock-Pro+ specific
+   */
+  @Override
+  public void adaptiveHotMax() { }
+
+  @Test
+  public void frequentEntriesSurviveScan() {
+    final int size = 100;
+    final int hotCount = size / 2;
+    Cache<Integer, Integer> c = provideCache(size);
+    for (int i = 0; i < size; i++) {
+      c.put(i, i);
+    }
+    for (int j = 0; j < 5; j++) {
+      for (int i = 0; i < hotCount; i++) {
+        c.get(i);
+      }
+      for (int i = size; i < size * 2; i++) {
+        c.put(i + j * size, i);
+      }
+    }
+    int hotPresent = 0;
+    for (int i = 0; i < hotCount; i++) {
+      if (c.containsKey(i)) {
+        hotPresent++;
+      }
+    }
+    assertEquals(size, countEntriesViaIteration());
+    assertTrue("most hot entries present, got " + hotPresent, hotPresent >= hotCount * 9 / 10);
+  }
+
+}
@@ -0,0 +1,83 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class CoarseTimeReferenceTest {
+
+  @Test
+  public void advancesAndStops() throws Exception {
+    CoarseTimeReference clock = new CoarseTimeReference(1);
+    long t0 = clock.millis();
+    assertThat(t0).isLessThanOrEqualTo(System.currentTimeMillis());
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (clock.millis() == t0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(clock.millis()).isGreaterThan(t0);
+    clock.close();
+    while (clock.isRunning()) {
+      Thread.sleep(1);
+    }
+    long before = System.currentTimeMillis();
+    assertThat(clock.millis())
+      .as("system time after close")
+      .isGreaterThanOrEqualTo(before);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void resolutionPositive() {
+    new CoarseTimeReference(0);
+  }
+
+  /**
+   * The time reference is not closed with the cache, since it may be shared.
+   */
+  @Test
+  public void notClosedByCache() {
+    CoarseTimeReference clock = new CoarseTimeReference(1);
+    Cache<Integer, Integer> cache = Cache2kBuilder.of(Integer.class, Integer.class)
+      .timeReference(clock)
+      .expireAfterWrite(5, TimeUnit.MINUTES)
+      .build();
+    assertThat(((InternalCache<Integer, Integer>) cache).getClock()).isSameAs(clock);
+    cache.put(1, 1);
+    cache.close();
+    assertThat(clock.isRunning()).isTrue();
+    clock.close();
+  }
+
+}
@@ -0,0 +1,192 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.Entry;
+import org.cache2k.core.StampedHash;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.event.CacheEntryExpiredListener;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Lazy expiry, no timer tasks, expired entries are removed by the sweep.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class LazyExpiryTest {
+
+  static final long NOW = 10000;
+
+  final TimerTest.MyClock clock = new TimerTest.MyClock(NOW);
+  final List<Integer> expired = new CopyOnWriteArrayList<>();
+  Cache<Integer, Integer> cache;
+
+  Cache2kBuilder<Integer, Integer> builder() {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .timeReference(clock)
+      .scheduler(clock)
+      .executor(Runnable::run)
+      .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+      .addListener((CacheEntryExpiredListener<Integer, Integer>) (c, e) -> expired.add(e.getKey()))
+      .with(LazyExpiryConfig.class, b -> b.sweepTime(1000, TimeUnit.MILLISECONDS));
+  }
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  /**
+   * Run wakeups for one full round of the sweep, without moving the clock.
+   */
+  void sweepRound() {
+    for (int i = 0; i < ExpirySweep.WAKEUPS_PER_ROUND; i++) {
+      clock.scheduled.run();
+    }
+  }
+
+  @Test
+  public void expiredOnAccessAndRemovedBySweep() {
+    cache = builder().build();
+    cache.put(1, 1);
+    cache.put(2, 2);
+    assertThat(cache.containsKey(1)).isTrue();
+    assertThat(clock.scheduledTime)
+      .as("sweep wakeup")
+      .isEqualTo(NOW + 1000 / ExpirySweep.WAKEUPS_PER_ROUND);
+    clock.moveTo(NOW + 100);
+    assertThat(cache.containsKey(1)).isFalse();
+    assertThat(cache.peek(2)).isNull();
+    assertThat(expired).isEmpty();
+    sweepRound();
+    assertThat(expired).containsExactlyInAnyOrder(1, 2);
+    assertThat(cache.asMap()).isEmpty();
+  }
+
+  @Test
+  public void updateMovesExpiry() {
+    cache = builder().build();
+    cache.put(1, 1);
+    clock.moveTo(NOW + 50);
+    cache.put(1, 2);
+    clock.moveTo(NOW + 100);
+    sweepRound();
+    assertThat(expired).isEmpty();
+    assertThat(cache.peek(1)).isEqualTo(2);
+    clock.moveTo(NOW + 150);
+    sweepRound();
+    assertThat(expired).containsExactly(1);
+  }
+
+  /**
+   * Stop inserting while an incremental expansion of the hash table is running.
+   * Entries in buckets already moved to the target table are found by the sweep.
+   */
+  @Test
+  public void sweepWhileExpanding() {
+    cache = builder().build();
+    InternalCache<Integer, Integer> internal = cache.requestInterface(InternalCache.class);
+    int count = 0;
+    while (!isExpanding(internal.getHashEntries())) {
+      cache.put(count, count);
+      count++;
+    }
+    clock.moveTo(NOW + 100);
+    sweepRound();
+    assertThat(isExpanding(internal.getHashEntries()))
+      .as("expansion still running")
+      .isTrue();
+    assertThat(expired).hasSize(count);
+  }
+
+  static boolean isExpanding(Entry<?, ?>[] entries) {
+    for (Entry<?, ?> e : entries) {
+      if (e instanceof StampedHash.ForwardingEntry) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void exceptionDoesNotStopSweep() {
+    Entry<Integer, Integer> e = new Entry<>(1, 1);
+    e.setNextRefreshTime(-(NOW + 100));
+    Entry<Integer, Integer>[] entries = new Entry[] {e};
+    AtomicInteger exceptionCount = new AtomicInteger();
+    ExpirySweep<Integer, Integer> sweep = new ExpirySweep<>(clock, clock, 1000);
+    sweep.start(new TimerEventListener<Integer, Integer>() {
+      @Override
+      public String getName() { return null; }
+
+      @Override
+      public void timerEventExpireEntry(Entry<Integer, Integer> e, Object task) {
+        throw new IllegalStateException("test");
+      }
+
+      @Override
+      public void timerEventRefresh(Entry<Integer, Integer> e, Object task) { }
+
+      @Override
+      public void timerEventProbationTerminated(Entry<Integer, Integer> e, Object task) { }
+
+      @Override
+      public Entry<Integer, Integer>[] getHashEntries() { return entries; }
+
+      @Override
+      public void logAndCountInternalException(String text, Throwable exception) {
+        exceptionCount.incrementAndGet();
+      }
+    });
+    clock.moveTo(NOW + 100);
+    Runnable wakeup = clock.scheduled;
+    clock.reset();
+    wakeup.run();
+    assertThat(exceptionCount.get()).isEqualTo(1);
+    assertThat(clock.scheduled)
+      .as("next wakeup scheduled")
+      .isNotNull();
+  }
+
+  @Test
+  public void refreshAheadNotSupported() {
+    assertThatThrownBy(() -> builder().refreshAhead(true).loader(k -> k).build())
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
@@ -0,0 +1,146 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Timer in queued mode, requests are applied by the timer thread.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class QueuedTimerTest {
+
+  final Queue<Task> executed = new ConcurrentLinkedQueue<>();
+  final TimerTest.MyClock clock = new TimerTest.MyClock(100);
+  final DefaultTimer timer = new DefaultTimer(clock, clock, 10, 10, 2, true);
+
+  Task schedule(long time) {
+    Task t = new Task();
+    timer.schedule(t, time);
+    return t;
+  }
+
+  void run(long time) {
+    clock.moveTo(time);
+    Runnable action = clock.scheduled;
+    clock.reset();
+    action.run();
+  }
+
+  @Test
+  public void scheduleIsAppliedOnRun() {
+    Task t = schedule(200);
+    assertThat(clock.scheduledTime).isEqualTo(210);
+    assertThat(t.isUnscheduled()).isFalse();
+    run(210);
+    assertThat(executed).containsExactly(t);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void scheduleTwice() {
+    Task t = schedule(200);
+    timer.schedule(t, 300);
+  }
+
+  @Test
+  public void cancelBeforeApplied() {
+    Task t1 = schedule(200);
+    Task t2 = schedule(200);
+    timer.cancel(t1);
+    run(210);
+    assertThat(executed).containsExactly(t2);
+    assertThat(t1.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void cancelAfterApplied() {
+    Task t1 = schedule(200);
+    Task t2 = schedule(300);
+    run(210);
+    timer.cancel(t2);
+    assertThat(clock.scheduled).isNotNull();
+    run(310);
+    assertThat(executed).containsExactly(t1);
+  }
+
+  /**
+   * Tasks that are due when applied are executed immediately.
+   */
+  @Test
+  public void dueWhenApplied() {
+    Task t1 = schedule(200);
+    Task t2 = schedule(150);
+    clock.moveTo(400);
+    run(400);
+    assertThat(executed).containsExactlyInAnyOrder(t1, t2);
+  }
+
+  /**
+   * The requesting thread applies the queue when the threshold is reached,
+   * cancelled tasks are removed from the timer structure.
+   */
+  @Test
+  public void drainAtThreshold() {
+    List<Task> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      Task t = schedule(1000 + i);
+      if (i % 2 == 0) {
+        timer.cancel(t);
+      } else {
+        expected.add(t);
+      }
+    }
+    assertThat(expected.get(0).isScheduled())
+      .as("applied by the requesting thread")
+      .isTrue();
+    run(7000);
+    assertThat(executed).containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  @Test
+  public void cancelAllDiscardsQueue() {
+    schedule(200);
+    timer.cancelAll();
+    run(210);
+    assertThat(executed).isEmpty();
+  }
+
+  class Task extends TimerTask {
+
+    @Override
+    protected void action() {
+      executed.add(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,117 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Only entries accessed since the last load are refreshed.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class RefreshAheadAccessAwareTest {
+
+  static final long NOW = 10000;
+
+  final TimerTest.MyClock clock = new TimerTest.MyClock(NOW);
+  final AtomicInteger loads = new AtomicInteger();
+  Cache<Integer, Integer> cache;
+
+  Cache2kBuilder<Integer, Integer> builder() {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .timeReference(clock)
+      .scheduler(clock)
+      .executor(Runnable::run)
+      .refreshExecutor(Runnable::run)
+      .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+      .timerLag(1, TimeUnit.MILLISECONDS)
+      .refreshAhead(true)
+      .loader(k -> loads.incrementAndGet())
+      .with(RefreshAheadConfig.class, b -> b.accessAware(true));
+  }
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  /**
+   * Run timer events until the time is reached.
+   */
+  void runUntil(long time) {
+    while (clock.scheduled != null && clock.scheduledTime <= time) {
+      clock.moveTo(clock.scheduledTime);
+      clock.scheduled.run();
+    }
+    clock.moveTo(time);
+  }
+
+  void onlyAccessedEntryIsRefreshed() {
+    assertThat(cache.get(1)).isEqualTo(1);
+    assertThat(cache.get(2)).isEqualTo(2);
+    cache.get(1);
+    runUntil(NOW + 150);
+    assertThat(loads.get()).as("key 1 refreshed").isEqualTo(3);
+    assertThat(cache.containsKey(2)).as("key 2 expired").isFalse();
+    runUntil(NOW + 300);
+    assertThat(loads.get()).as("refreshed entry expires without access").isEqualTo(3);
+  }
+
+  @Test
+  public void heapCache() {
+    cache = builder().build();
+    onlyAccessedEntryIsRefreshed();
+  }
+
+  @Test
+  public void wiredCache() {
+    cache = builder()
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { })
+      .build();
+    onlyAccessedEntryIsRefreshed();
+  }
+
+  @Test
+  public void refreshWithoutAccess() {
+    cache = builder()
+      .with(RefreshAheadConfig.class, b -> b.accessAware(false))
+      .build();
+    cache.get(1);
+    runUntil(NOW + 150);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+}
@@ -0,0 +1,161 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.core.api.InternalCache;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.testing.category.FastTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Refresh with jitter and rate limit.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class RefreshAheadRateLimitTest {
+
+  static final long NOW = 10000;
+
+  final TimerTest.MyClock clock = new TimerTest.MyClock(NOW);
+  final AtomicInteger loads = new AtomicInteger();
+  final Queue<Long> loadTimes = new ConcurrentLinkedQueue<>();
+  Cache<Integer, Integer> cache;
+
+  Cache2kBuilder<Integer, Integer> builder() {
+    return Cache2kBuilder.of(Integer.class, Integer.class)
+      .timeReference(clock)
+      .scheduler(clock)
+      .executor(Runnable::run)
+      .refreshExecutor(Runnable::run)
+      .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+      .timerLag(1, TimeUnit.MILLISECONDS)
+      .refreshAhead(true)
+      .loader(k -> {
+        loadTimes.add(clock.millis());
+        return loads.incrementAndGet();
+      });
+  }
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  /**
+   * Run timer events until the time is reached.
+   */
+  void runUntil(long time) {
+    while (clock.scheduled != null && clock.scheduledTime <= time) {
+      clock.moveTo(clock.scheduledTime);
+      clock.scheduled.run();
+    }
+    clock.moveTo(time);
+  }
+
+  long refreshDeferredCount() {
+    return cache.requestInterface(InternalCache.class).getInfo().getRefreshDeferredCount();
+  }
+
+  @Test
+  public void limiterBurstAndReserve() {
+    RefreshRateLimiter limiter = new RefreshRateLimiter(2);
+    assertThat(limiter.reserve(NOW)).isEqualTo(0);
+    assertThat(limiter.reserve(NOW)).isEqualTo(0);
+    assertThat(limiter.reserve(NOW)).isEqualTo(NOW + 500);
+    assertThat(limiter.reserve(NOW)).isEqualTo(NOW + 1000);
+    assertThat(limiter.reserve(NOW + 5000))
+      .as("permits available again after a pause")
+      .isEqualTo(0);
+  }
+
+  void refreshIsDeferred() {
+    for (int i = 0; i < 4; i++) {
+      cache.get(i);
+    }
+    assertThat(loads.get()).isEqualTo(4);
+    runUntil(NOW + 150);
+    assertThat(loads.get()).as("burst refreshed").isEqualTo(6);
+    assertThat(refreshDeferredCount()).isEqualTo(2);
+    assertThat(IntStream.range(0, 4).filter(cache::containsKey).count())
+      .as("deferred entries stay visible")
+      .isEqualTo(2);
+    runUntil(NOW + 700);
+    assertThat(loads.get()).isEqualTo(7);
+    runUntil(NOW + 1200);
+    assertThat(loads.get()).as("all refreshed, none dropped").isEqualTo(8);
+    assertThat(refreshDeferredCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void heapCache() {
+    cache = builder()
+      .with(RefreshAheadConfig.class, b -> b.maxRefreshesPerSecond(2))
+      .build();
+    refreshIsDeferred();
+  }
+
+  @Test
+  public void wiredCache() {
+    cache = builder()
+      .with(RefreshAheadConfig.class, b -> b.maxRefreshesPerSecond(2))
+      .addListener((CacheEntryCreatedListener<Integer, Integer>) (c, e) -> { })
+      .build();
+    refreshIsDeferred();
+  }
+
+  @Test
+  public void jitterSpreadsRefresh() {
+    cache = builder()
+      .with(RefreshAheadConfig.class, b -> b.jitterPercent(50))
+      .build();
+    for (int i = 0; i < 100; i++) {
+      cache.get(i);
+    }
+    loadTimes.clear();
+    runUntil(NOW + 99);
+    assertThat(loadTimes).as("never refreshed earlier").isEmpty();
+    runUntil(NOW + 160);
+    assertThat(loadTimes).hasSize(100);
+    assertThat(loadTimes).allSatisfy(t -> assertThat(t).isBetween(NOW + 100, NOW + 151));
+    assertThat(loadTimes.stream().distinct().count()).isGreaterThan(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void jitterOutOfRange() {
+    new RefreshAheadConfig().builder().jitterPercent(101);
+  }
+
+}
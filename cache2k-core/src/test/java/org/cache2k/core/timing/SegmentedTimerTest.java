@@ -0,0 +1,91 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Run the timer tests with multiple segments and check concurrent scheduling.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class SegmentedTimerTest extends TimerTest {
+
+  @Override
+  protected Timer createTimer(MyClock clock, long lagMillis, int steps) {
+    return new DefaultTimer(clock, clock, lagMillis, steps, 4, false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void segmentCountPowerOfTwo() {
+    MyClock clock = new MyClock(100);
+    new DefaultTimer(clock, clock, 10, 10, 3, false);
+  }
+
+  @Test
+  public void concurrentScheduleAndCancel() throws Exception {
+    init(100, 10, 10);
+    int threadCount = 4;
+    int tasksPerThread = 1000;
+    List<MyTimerTask> expected = new ArrayList<>();
+    List<MyTimerTask> cancelled = new ArrayList<>();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      List<MyTimerTask> scheduled = new ArrayList<>();
+      List<MyTimerTask> removed = new ArrayList<>();
+      long seed = i;
+      threads[i] = new Thread(() -> {
+        Random random = new Random(seed);
+        for (int j = 0; j < tasksPerThread; j++) {
+          MyTimerTask t = new MyTimerTask();
+          timer.schedule(t, 200 + random.nextInt(800));
+          if (j % 3 == 0) {
+            timer.cancel(t);
+            removed.add(t);
+          } else {
+            scheduled.add(t);
+          }
+        }
+        synchronized (expected) {
+          expected.addAll(scheduled);
+          cancelled.addAll(removed);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    run(2000);
+    assertThat(executed).containsExactlyInAnyOrderElementsOf(expected);
+    assertThat(cancelled).allMatch(TimerTask::isCancelled);
+  }
+
+}
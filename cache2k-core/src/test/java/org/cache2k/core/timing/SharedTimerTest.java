@@ -0,0 +1,133 @@
+package org.cache2k.core.timing;
+
+/*
+ * #%L
+ * cache2k core implementation
+ * %%
+ * Copyright (C) 2000 - 2021 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.CacheManager;
+import org.cache2k.core.api.InternalCacheCloseContext;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class SharedTimerTest {
+
+  final List<Task> executed = new ArrayList<>();
+  final TimerTest.MyClock clock = new TimerTest.MyClock(100);
+  final SharedTimer shared = new SharedTimer(clock, clock, 10);
+  final Timer client1 = shared.createClient(t -> ((Task) t).owner == 1);
+  final Timer client2 = shared.createClient(t -> ((Task) t).owner == 2);
+
+  Task schedule(Timer timer, int owner, long time) {
+    Task t = new Task(owner);
+    timer.schedule(t, time);
+    return t;
+  }
+
+  void run(long time) {
+    clock.moveTo(time);
+    Runnable action = clock.scheduled;
+    clock.reset();
+    action.run();
+  }
+
+  /**
+   * Tasks of both clients are processed with one scheduler wakeup.
+   */
+  @Test
+  public void oneWakeupForAllClients() {
+    Task t1 = schedule(client1, 1, 200);
+    Task t2 = schedule(client2, 2, 205);
+    assertThat(clock.scheduledTime).isEqualTo(210);
+    run(220);
+    assertThat(executed).containsExactlyInAnyOrder(t1, t2);
+  }
+
+  @Test
+  public void cancelAllOnlyAffectsOwnTasks() {
+    schedule(client1, 1, 200);
+    Task t2 = schedule(client2, 2, 200);
+    client1.cancelAll();
+    run(220);
+    assertThat(executed).containsExactly(t2);
+  }
+
+  @Test
+  public void closeLastClientClosesSharedTimer() {
+    Task t2 = schedule(client2, 2, 200);
+    CloseContext ctx = new CloseContext();
+    client1.close(ctx);
+    client1.close(ctx);
+    assertThat(shared.getClientCount()).isEqualTo(1);
+    assertThat(ctx.closed).isEmpty();
+    run(220);
+    assertThat(executed).containsExactly(t2);
+    client2.close(ctx);
+    assertThat(shared.isClosed()).isTrue();
+    assertThat(ctx.closed).containsExactly("scheduler");
+    assertThatCode(() -> shared.createClient(t -> true))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  class Task extends TimerTask {
+
+    final int owner;
+
+    Task(int owner) {
+      this.owner = owner;
+    }
+
+    @Override
+    protected void action() {
+      executed.add(this);
+    }
+
+  }
+
+  static class CloseContext implements InternalCacheCloseContext {
+
+    final List<String> closed = new ArrayList<>();
+
+    @Override
+    public String getName() {
+      return null;
+    }
+
+    @Override
+    public CacheManager getCacheManager() {
+      return null;
+    }
+
+    @Override
+    public void closeCustomization(Object customization, String name) {
+      closed.add(name);
+    }
+
+  }
+
+}
@@ -54,12 +54,16 @@ public class TimerTest {
 
   void init(long startTime, long lagMillis, int steps) {
     clock = new MyClock(startTime);
-    timer = new DefaultTimer(clock, clock, lagMillis, steps);
+    timer = createTimer(clock, lagMillis, steps);
   }
 
   void init(long startTime, long lagMillis) {
     clock = new MyClock(startTime);
-    timer = new DefaultTimer(clock, clock, lagMillis);
+    timer = createTimer(clock, lagMillis, 876);
+  }
+
+  protected Timer createTimer(MyClock clock, long lagMillis, int steps) {
+    return new DefaultTimer(clock, clock, lagMillis, steps, DefaultTimer.defaultSegmentCount(), false);
   }
 
   List<MyTimerTask> schedule(long... times) {
@@ -128,7 +132,7 @@ public class TimerTest {
     long startTime = 10;
     long lagTime = 100;
     MyClock clock = new MyClock(startTime);
-    Timer st = new DefaultTimer(clock, clock, lagTime);
+    Timer st = createTimer(clock, lagTime, 876);
     MyTimerTask tt1 = new MyTimerTask();
     long t1 = 123456789;
     st.schedule(tt1, t1);
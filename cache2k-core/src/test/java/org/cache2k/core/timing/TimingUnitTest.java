@@ -35,6 +35,8 @@ import org.cache2k.testing.category.FastTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -55,6 +57,11 @@ public class TimingUnitTest {
 
   private <K, V> Timing<K, V> create(TimeReference clock,
                                      Cache2kConfig<K, V> cfg) {
+    return create(clock, null, cfg);
+  }
+
+  private <K, V> Timing<K, V> create(TimeReference clock, Scheduler scheduler,
+                                     Cache2kConfig<K, V> cfg) {
     return Timing.of(new InternalCacheBuildContext<K, V>() {
       @Override
       public TimeReference getTimeReference() {
@@ -90,7 +97,7 @@ public class TimingUnitTest {
 
       @Override
       public Scheduler createScheduler() {
-        return null;
+        return scheduler;
       }
     });
   }
@@ -315,4 +322,58 @@ public class TimingUnitTest {
     assertTrue(Math.abs(t) < sharpPointInTime);
   }
 
+  /**
+   * An update that moves the expiry later keeps the timer task. When it fires,
+   * a new task is scheduled for the remaining time.
+   */
+  @Test
+  public void lazyRescheduleOnLaterExpiry() {
+    TimerTest.MyClock clock = new TimerTest.MyClock(NOW);
+    Timing<Integer, Integer> h = create(clock, clock,
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .expireAfterWrite(100, TimeUnit.MILLISECONDS)
+        .timerLag(10, TimeUnit.MILLISECONDS)
+        .config()
+    );
+    List<Object> expired = new ArrayList<>();
+    h.setTarget(new TimerEventListener<Integer, Integer>() {
+      @Override
+      public String getName() { return null; }
+
+      @Override
+      public void timerEventExpireEntry(Entry<Integer, Integer> e, Object task) {
+        if (e.getTask() != task || h.rescheduleDeferredTimer(e, task)) { return; }
+        expired.add(task);
+      }
+
+      @Override
+      public void timerEventRefresh(Entry<Integer, Integer> e, Object task) { }
+
+      @Override
+      public void timerEventProbationTerminated(Entry<Integer, Integer> e, Object task) { }
+
+      @Override
+      public Entry<Integer, Integer>[] getHashEntries() { return null; }
+
+      @Override
+      public void logAndCountInternalException(String text, Throwable exception) { }
+    });
+    Entry<Integer, Integer> e = new Entry<>(1, 1);
+    assertEquals(NOW + 100, h.stopStartTimer(NOW + 100, e));
+    TimerTask task = e.getTask();
+    assertEquals(NOW + 150, h.stopStartTimer(NOW + 150, e));
+    assertSame("task kept", task, e.getTask());
+    clock.moveTo(NOW + 110);
+    clock.scheduled.run();
+    assertTrue("no expiry yet", expired.isEmpty());
+    assertNotSame("rescheduled", task, e.getTask());
+    TimerTask rescheduled = e.getTask();
+    assertEquals(NOW + 120, h.stopStartTimer(NOW + 120, e));
+    assertNotSame("earlier expiry replaces task", rescheduled, e.getTask());
+    clock.moveTo(NOW + 130);
+    clock.scheduled.run();
+    assertEquals(1, expired.size());
+    assertSame(e.getTask(), expired.get(0));
+  }
+
 }
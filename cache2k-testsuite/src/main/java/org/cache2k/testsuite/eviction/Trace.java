@@ -23,6 +23,7 @@ package org.cache2k.testsuite.eviction;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Random;
 import java.util.function.Supplier;
 import java.util.zip.GZIPInputStream;
 
@@ -52,6 +53,14 @@ public class Trace implements Supplier<int[]> {
    */
   public final static Trace WEBLOG424_ROBOTS = new Trace("weblog-424.slt.gz");
 
+  /**
+   * Generated trace with phases shifting between frequency and recency. Frequency
+   * phases access 5000 keys with a skewed distribution. Recency phases access 300 new
+   * keys and then the same keys again. Each of the six phases has 100000 requests,
+   * the time advances one second per request.
+   */
+  public final static Trace PHASE_SHIFT = new Trace(Trace::generatePhaseShift);
+
   private final Supplier<int[]> supplier;
   private int[] data = null;
 
@@ -72,6 +81,34 @@ public class Trace implements Supplier<int[]> {
     return data = supplier.get();
   }
 
+  static int[] generatePhaseShift() {
+    final int phaseCount = 6;
+    final int phaseLength = 100_000;
+    final int frequentKeys = 5000;
+    final int recentKeys = 300;
+    Random random = new Random(1802);
+    int[] trace = new int[phaseCount * phaseLength * 2];
+    int[] recent = new int[recentKeys];
+    int idx = 0;
+    int time = 0;
+    int newKey = frequentKeys;
+    for (int phase = 0; phase < phaseCount; phase++) {
+      for (int i = 0; i < phaseLength; i++) {
+        int key;
+        if (phase % 2 == 0) {
+          key = (int) Math.pow(frequentKeys, random.nextDouble());
+        } else if ((i / recentKeys) % 2 == 0) {
+          key = recent[i % recentKeys] = newKey++;
+        } else {
+          key = recent[i % recentKeys];
+        }
+        trace[idx++] = time++;
+        trace[idx++] = key;
+      }
+    }
+    return trace;
+  }
+
   static int[] readTrace(String fileName) {
     int count = 0;
     int[] buffer = new int[2048];